@@ -0,0 +1,220 @@
+package com.udacity.boogle.maps;
+
+import java.util.Arrays;
+
+/**
+ * An immutable spatial index answering "which address is nearest to this
+ * coordinate".
+ * <p>
+ * Coordinates are stored as points on the unit sphere, where the straight-line
+ * distance between two points grows with their great-circle distance, so the
+ * nearest point in 3-d is also the nearest address on the globe, across the
+ * antimeridian and near the poles. The points form a balanced k-d tree laid out
+ * implicitly in flat arrays: the node of a range is its middle element, with
+ * the lower half on its left and the upper half on its right. Lookups take
+ * O(log n) expected time and allocate nothing besides the search state.
+ * <p>
+ * Results are deterministic: of two equally near addresses, the one earlier in
+ * the tree wins, and the tree only depends on the loaded addresses.
+ */
+public final class AddressIndex {
+
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final Address[] addresses;
+
+    private AddressIndex(double[] xs, double[] ys, double[] zs, Address[] addresses) {
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.addresses = addresses;
+    }
+
+    /**
+     * Creates a builder for an index of up to {@code expectedSize} addresses;
+     * it grows beyond that as needed.
+     */
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public int size() {
+        return addresses.length;
+    }
+
+    /**
+     * Finds the address nearest to a coordinate.
+     *
+     * @param lat latitude in degrees
+     * @param lon longitude in degrees
+     * @return the nearest address, or null if the index is empty
+     */
+    public Address nearest(double lat, double lon) {
+        if (addresses.length == 0) {
+            return null;
+        }
+        double latRad = Math.toRadians(lat);
+        double lonRad = Math.toRadians(lon);
+        double cosLat = Math.cos(latRad);
+        Search search = new Search(cosLat * Math.cos(lonRad), cosLat * Math.sin(lonRad), Math.sin(latRad));
+        search(search, 0, addresses.length, 0);
+        return addresses[search.best];
+    }
+
+    private void search(Search search, int lo, int hi, int axis) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            double dx = xs[mid] - search.x;
+            double dy = ys[mid] - search.y;
+            double dz = zs[mid] - search.z;
+            double distance = dx * dx + dy * dy + dz * dz;
+            if (distance < search.bestDistance) {
+                search.bestDistance = distance;
+                search.best = mid;
+            }
+            double delta = axis == 0 ? -dx : axis == 1 ? -dy : -dz;
+            int next = axis == 2 ? 0 : axis + 1;
+            // Descend into the side of the query first; the other side only
+            // matters if the splitting plane is nearer than the best match.
+            if (delta < 0) {
+                search(search, lo, mid, next);
+                if (delta * delta >= search.bestDistance) {
+                    return;
+                }
+                lo = mid + 1;
+            } else {
+                search(search, mid + 1, hi, next);
+                if (delta * delta >= search.bestDistance) {
+                    return;
+                }
+                hi = mid;
+            }
+            axis = next;
+        }
+    }
+
+    private static final class Search {
+
+        private final double x;
+        private final double y;
+        private final double z;
+        private int best = -1;
+        private double bestDistance = Double.POSITIVE_INFINITY;
+
+        private Search(double x, double y, double z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+    }
+
+    /**
+     * Collects addresses and their coordinates and arranges them into a tree.
+     */
+    public static final class Builder {
+
+        private double[] xs;
+        private double[] ys;
+        private double[] zs;
+        private Address[] addresses;
+        private int size;
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            xs = new double[capacity];
+            ys = new double[capacity];
+            zs = new double[capacity];
+            addresses = new Address[capacity];
+        }
+
+        public Builder add(double lat, double lon, Address address) {
+            if (lat < -90 || lat > 90 || lon < -180 || lon > 180) {
+                throw new IllegalArgumentException("Invalid coordinate " + lat + "," + lon);
+            }
+            if (size == addresses.length) {
+                int capacity = size + (size >> 1);
+                xs = Arrays.copyOf(xs, capacity);
+                ys = Arrays.copyOf(ys, capacity);
+                zs = Arrays.copyOf(zs, capacity);
+                addresses = Arrays.copyOf(addresses, capacity);
+            }
+            double latRad = Math.toRadians(lat);
+            double lonRad = Math.toRadians(lon);
+            double cosLat = Math.cos(latRad);
+            xs[size] = cosLat * Math.cos(lonRad);
+            ys[size] = cosLat * Math.sin(lonRad);
+            zs[size] = Math.sin(latRad);
+            addresses[size] = address;
+            size++;
+            return this;
+        }
+
+        public AddressIndex build() {
+            double[] x = Arrays.copyOf(xs, size);
+            double[] y = Arrays.copyOf(ys, size);
+            double[] z = Arrays.copyOf(zs, size);
+            Address[] a = Arrays.copyOf(addresses, size);
+            arrange(new double[][]{x, y, z}, a, 0, size, 0);
+            return new AddressIndex(x, y, z, a);
+        }
+
+        /**
+         * Places the median along {@code axis} in the middle of the range, the
+         * smaller points before it and the larger after it, then arranges both
+         * halves along the next axis.
+         */
+        private static void arrange(double[][] coords, Address[] addresses, int lo, int hi, int axis) {
+            while (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                select(coords, addresses, lo, hi - 1, mid, coords[axis]);
+                int next = axis == 2 ? 0 : axis + 1;
+                arrange(coords, addresses, lo, mid, next);
+                lo = mid + 1;
+                axis = next;
+            }
+        }
+
+        /**
+         * Hoare's quickselect: moves the k-th smallest key of [left, right]
+         * into position k.
+         */
+        private static void select(double[][] coords, Address[] addresses, int left, int right, int k,
+                                   double[] keys) {
+            while (right > left) {
+                double pivot = keys[(left + right) >>> 1];
+                int i = left;
+                int j = right;
+                while (i <= j) {
+                    while (keys[i] < pivot) {
+                        i++;
+                    }
+                    while (keys[j] > pivot) {
+                        j--;
+                    }
+                    if (i <= j) {
+                        swap(coords, addresses, i++, j--);
+                    }
+                }
+                if (k <= j) {
+                    right = j;
+                } else if (k >= i) {
+                    left = i;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private static void swap(double[][] coords, Address[] addresses, int i, int j) {
+            for (double[] axis : coords) {
+                double t = axis[i];
+                axis[i] = axis[j];
+                axis[j] = t;
+            }
+            Address a = addresses[i];
+            addresses[i] = addresses[j];
+            addresses[j] = a;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.udacity.boogle.maps;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Loads the address dataset into an AddressIndex at startup.
+ * <p>
+ * The dataset is a JSON array of objects with {@code address}, {@code city},
+ * {@code state}, {@code zip}, {@code lat} and {@code lon}. It is read with a
+ * streaming parser so that datasets of millions of addresses load without
+ * materializing an intermediate document.
+ */
+@Configuration
+public class AddressIndexConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(AddressIndexConfig.class);
+
+    @Bean
+    public AddressIndex addressIndex(@Value("${maps.addresses:classpath:adresses.json}") Resource dataset,
+                                     @Value("${maps.addresses.expected-size:1024}") int expectedSize,
+                                     ObjectMapper objectMapper) {
+        long start = System.nanoTime();
+        AddressIndex.Builder builder = AddressIndex.builder(expectedSize);
+        try (InputStream in = dataset.getInputStream();
+             JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            load(parser, builder);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read addresses from " + dataset, e);
+        }
+        AddressIndex index = builder.build();
+        logger.info("Indexed {} addresses from {} in {} ms",
+                index.size(), dataset, (System.nanoTime() - start) / 1_000_000);
+        return index;
+    }
+
+    static void load(JsonParser parser, AddressIndex.Builder builder) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IllegalStateException("Expected an array of addresses");
+        }
+        int entry = 0;
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            String address = null;
+            String city = null;
+            String state = null;
+            String zip = null;
+            double lat = Double.NaN;
+            double lon = Double.NaN;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch (field) {
+                    case "address":
+                        address = parser.getValueAsString();
+                        break;
+                    case "city":
+                        city = parser.getValueAsString();
+                        break;
+                    case "state":
+                        state = parser.getValueAsString();
+                        break;
+                    case "zip":
+                        zip = parser.getValueAsString();
+                        break;
+                    case "lat":
+                        lat = parser.getDoubleValue();
+                        break;
+                    case "lon":
+                        lon = parser.getDoubleValue();
+                        break;
+                    default:
+                        parser.skipChildren();
+                }
+            }
+            if (Double.isNaN(lat) || Double.isNaN(lon)) {
+                throw new IllegalStateException("Address " + entry + " has no lat/lon");
+            }
+            builder.add(lat, lon, new Address(address, city, state, zip));
+            entry++;
+        }
+    }
+}
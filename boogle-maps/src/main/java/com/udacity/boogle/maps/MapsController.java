@@ -1,16 +1,77 @@
 package com.udacity.boogle.maps;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reverse-geocodes coordinates. By default the nearest address of the
+ * AddressIndex is returned; with {@code maps.mode=random} a random address is
+ * returned regardless of the coordinate, as the original mock did.
+ * <p>
+ * The coordinates of the bundled dataset are synthetic, so the nearest
+ * address is deterministic but not a real address near the coordinate
+ * unless a geocoded dataset is configured with {@code maps.addresses}.
+ */
 @RestController
 @RequestMapping("/maps")
 public class MapsController {
 
+    private final AddressIndex addressIndex;
+    private final boolean random;
+    private final int maxBatchSize;
+
+    public MapsController(AddressIndex addressIndex, @Value("${maps.mode:nearest}") String mode,
+                          @Value("${maps.batch.max-size:1000}") int maxBatchSize) {
+        this.addressIndex = addressIndex;
+        this.random = "random".equalsIgnoreCase(mode);
+        this.maxBatchSize = maxBatchSize;
+    }
+
     @GetMapping
     public Address get(@RequestParam Double lat, @RequestParam Double lon) {
-        return MockAddressRepository.getRandom();
+        if (random) {
+            return MockAddressRepository.getRandom();
+        }
+        // written so that NaN, which fails every comparison, is rejected as well
+        if (!(lat >= -90 && lat <= 90 && lon >= -180 && lon <= 180)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid coordinate " + lat + "," + lon);
+        }
+        Address address = addressIndex.nearest(lat, lon);
+        if (address == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No addresses loaded");
+        }
+        return address;
+    }
+
+    /**
+     * Reverse-geocodes many coordinates in one request.
+     *
+     * @param coordinates up to {@code maps.batch.max-size} coordinates
+     * @return one address per coordinate, in the same order
+     */
+    @PostMapping("/batch")
+    public List<Address> batch(@RequestBody List<Coordinate> coordinates) {
+        if (coordinates.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchSize + " coordinates per batch");
+        }
+        List<Address> addresses = new ArrayList<>(coordinates.size());
+        for (Coordinate coordinate : coordinates) {
+            if (coordinate == null || coordinate.getLat() == null || coordinate.getLon() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every coordinate needs lat and lon");
+            }
+            addresses.add(get(coordinate.getLat(), coordinate.getLon()));
+        }
+        return addresses;
     }
 }
@@ -1,9 +1,7 @@
 package com.udacity.boogle.maps;
 
 import java.util.Arrays;
-import java.util.LinkedList;
-import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Implements a mock repository for generating a random address.
@@ -12,34 +10,30 @@ class MockAddressRepository {
 
     /**
      * Gets a random address from the list.
-     * @return A new, random address split into street, city, state and zip
+     * @return A random address split into street, city, state and zip
      */
     static Address getRandom() {
+        return PARSED[ThreadLocalRandom.current().nextInt(PARSED.length)];
+    }
 
-        Random generator = new Random();
-        int randomIndex = generator.nextInt(ADDRESSES.length);
-
-        String address = ADDRESSES[randomIndex];
-
-        String[] addressParts = address.split(",");
-        String streetAndNumber = addressParts[0];
-        String cityStateAndZip = addressParts[1];
-
-        String[] cityStateAndZipParts = cityStateAndZip.trim().split(" ");
-
-        LinkedList<String> list =
-                Arrays.stream(cityStateAndZipParts).map(String::trim)
-                        .collect(Collectors.toCollection(LinkedList::new));
+    /**
+     * Splits an address of the form "street, city state zip".
+     */
+    private static Address parse(String address) {
+        int comma = address.indexOf(',');
+        String streetAndNumber = address.substring(0, comma);
+        String[] cityStateAndZip = address.substring(comma + 1).trim().split("\\s+");
 
-        String zip = list.pollLast();
-        String state = list.pollLast();
-        String city = String.join(" ", list);
+        int last = cityStateAndZip.length - 1;
+        String zip = cityStateAndZip[last];
+        String state = cityStateAndZip[last - 1];
+        String city = String.join(" ", Arrays.asList(cityStateAndZip).subList(0, last - 1));
 
         return new Address(streetAndNumber, city, state, zip);
     }
 
     /**
-     * An array of random addresses for use in getRandom()
+     * An array of random addresses, parsed once into PARSED for use in getRandom()
      */
     private static final String[] ADDRESSES = {
             "777 Brockton Avenue, Abington MA 2351",
@@ -277,4 +271,8 @@ class MockAddressRepository {
             "4538 Us Hwy 231, Wetumpka AL 36092",
             "2575 Us Hwy 43, Winfield AL 35594"
     };
+
+    private static final Address[] PARSED = Arrays.stream(ADDRESSES)
+            .map(MockAddressRepository::parse)
+            .toArray(Address[]::new);
 }
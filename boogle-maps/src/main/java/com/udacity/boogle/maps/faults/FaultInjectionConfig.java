@@ -0,0 +1,25 @@
+package com.udacity.boogle.maps.faults;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * Enables fault injection (faults.enabled=true). Never enable it in production.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "faults", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(FaultInjectionProperties.class)
+public class FaultInjectionConfig {
+
+    @Bean
+    public FilterRegistrationBean<FaultInjectionFilter> faultInjectionFilter(FaultInjectionProperties properties) {
+        FilterRegistrationBean<FaultInjectionFilter> registration =
+                new FilterRegistrationBean<>(new FaultInjectionFilter(properties));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
@@ -0,0 +1,99 @@
+package com.udacity.boogle.maps.faults;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Faults injected into responses when {@code faults.enabled=true}. With
+ * {@code faults.headers=true} each request may override them with the
+ * {@code X-Fault-Latency}, {@code X-Fault-Error-Rate} and
+ * {@code X-Fault-Body-Rate} headers.
+ */
+@ConfigurationProperties("faults")
+public class FaultInjectionProperties {
+
+    private boolean enabled;
+
+    /**
+     * Delay before handling a request; see LatencyDistribution.
+     */
+    private String latency = "none";
+
+    /**
+     * Fraction of requests, between 0 and 1, answered with errorStatus.
+     */
+    private double errorRate;
+
+    private int errorStatus = 503;
+
+    /**
+     * Response bodies are written at this many bytes per second; 0 writes them
+     * at full speed.
+     */
+    private int bodyBytesPerSecond;
+
+    private boolean headers = true;
+
+    /**
+     * Ant-style paths never faulted.
+     */
+    private List<String> exclude = new ArrayList<>(List.of("/actuator/**"));
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getLatency() {
+        return latency;
+    }
+
+    public void setLatency(String latency) {
+        this.latency = latency;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public int getErrorStatus() {
+        return errorStatus;
+    }
+
+    public void setErrorStatus(int errorStatus) {
+        this.errorStatus = errorStatus;
+    }
+
+    public int getBodyBytesPerSecond() {
+        return bodyBytesPerSecond;
+    }
+
+    public void setBodyBytesPerSecond(int bodyBytesPerSecond) {
+        this.bodyBytesPerSecond = bodyBytesPerSecond;
+    }
+
+    public boolean isHeaders() {
+        return headers;
+    }
+
+    public void setHeaders(boolean headers) {
+        this.headers = headers;
+    }
+
+    public List<String> getExclude() {
+        return exclude;
+    }
+
+    public void setExclude(List<String> exclude) {
+        this.exclude = exclude;
+    }
+}
@@ -0,0 +1,115 @@
+package com.udacity.boogle.maps.faults;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.util.Random;
+
+/**
+ * A distribution of injected response delays, written as
+ * <ul>
+ * <li>{@code none}</li>
+ * <li>{@code fixed:50ms}</li>
+ * <li>{@code uniform:10ms-200ms}</li>
+ * <li>{@code long-tail:20ms-500ms}, a log-normal delay with the given median
+ * and 99th percentile, capped at ten times the 99th percentile</li>
+ * </ul>
+ */
+public final class LatencyDistribution {
+
+    public static final LatencyDistribution NONE = new LatencyDistribution(Kind.NONE, 0, 0);
+
+    // 99th percentile of the standard normal distribution
+    private static final double Z_99 = 2.3263;
+
+    private enum Kind {NONE, FIXED, UNIFORM, LONG_TAIL}
+
+    private final Kind kind;
+    private final long first;
+    private final long second;
+
+    private LatencyDistribution(Kind kind, long first, long second) {
+        this.kind = kind;
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * Parses a distribution.
+     *
+     * @throws IllegalArgumentException if the spec is malformed
+     */
+    public static LatencyDistribution parse(String spec) {
+        String trimmed = spec.trim();
+        if (trimmed.isEmpty() || trimmed.equalsIgnoreCase("none")) {
+            return NONE;
+        }
+        int colon = trimmed.indexOf(':');
+        if (colon < 0) {
+            throw new IllegalArgumentException("Expected <kind>:<durations> but got " + spec);
+        }
+        String kind = trimmed.substring(0, colon).toLowerCase();
+        String[] durations = trimmed.substring(colon + 1).split("-");
+        switch (kind) {
+            case "fixed":
+                return new LatencyDistribution(Kind.FIXED, millis(durations[0]), 0);
+            case "uniform":
+                return range(Kind.UNIFORM, spec, durations);
+            case "long-tail":
+                return range(Kind.LONG_TAIL, spec, durations);
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution " + spec);
+        }
+    }
+
+    private static LatencyDistribution range(Kind kind, String spec, String[] durations) {
+        if (durations.length != 2) {
+            throw new IllegalArgumentException("Expected two durations in " + spec);
+        }
+        long low = millis(durations[0]);
+        long high = millis(durations[1]);
+        if (high < low || (kind == Kind.LONG_TAIL && low <= 0)) {
+            throw new IllegalArgumentException("Invalid range in " + spec);
+        }
+        return new LatencyDistribution(kind, low, high);
+    }
+
+    private static long millis(String duration) {
+        return DurationStyle.detectAndParse(duration.trim()).toMillis();
+    }
+
+    /**
+     * Draws a delay in milliseconds.
+     */
+    public long sample(Random random) {
+        switch (kind) {
+            case FIXED:
+                return first;
+            case UNIFORM:
+                return first + (long) (random.nextDouble() * (second - first + 1));
+            case LONG_TAIL:
+                double sigma = Math.log((double) second / first) / Z_99;
+                double delay = first * Math.exp(sigma * random.nextGaussian());
+                return Math.min(Math.round(delay), 10 * second);
+            default:
+                return 0;
+        }
+    }
+
+    public boolean isNone() {
+        return kind == Kind.NONE;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case FIXED:
+                return "fixed:" + first + "ms";
+            case UNIFORM:
+                return "uniform:" + first + "ms-" + second + "ms";
+            case LONG_TAIL:
+                return "long-tail:" + first + "ms-" + second + "ms";
+            default:
+                return "none";
+        }
+    }
+}
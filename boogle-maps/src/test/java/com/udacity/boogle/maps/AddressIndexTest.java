@@ -0,0 +1,71 @@
+package com.udacity.boogle.maps;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AddressIndexTest {
+
+    @Test
+    public void findsTheSameAddressAsAnExhaustiveSearch() {
+        Random random = new Random(42);
+        int size = 10_000;
+        double[] lats = new double[size];
+        double[] lons = new double[size];
+        Address[] addresses = new Address[size];
+        AddressIndex.Builder builder = AddressIndex.builder(16);
+        for (int i = 0; i < size; i++) {
+            lats[i] = Math.toDegrees(Math.asin(2 * random.nextDouble() - 1));
+            lons[i] = 360 * random.nextDouble() - 180;
+            addresses[i] = new Address(i + " Main St", "City", "ST", "00000");
+            builder.add(lats[i], lons[i], addresses[i]);
+        }
+        AddressIndex index = builder.build();
+
+        for (int q = 0; q < 1_000; q++) {
+            double lat = 180 * random.nextDouble() - 90;
+            double lon = 360 * random.nextDouble() - 180;
+            assertThat(index.nearest(lat, lon)).isSameAs(addresses[bruteForce(lats, lons, lat, lon)]);
+        }
+    }
+
+    @Test
+    public void wrapsAroundTheAntimeridian() {
+        Address east = new Address("east", "Suva", "FJ", "00000");
+        Address west = new Address("west", "Apia", "WS", "00000");
+        AddressIndex index = AddressIndex.builder(2)
+                .add(0, 179.5, east)
+                .add(0, -170, west)
+                .build();
+
+        assertThat(index.nearest(0, -179.9)).isSameAs(east);
+    }
+
+    @Test
+    public void emptyIndexHasNoNearestAddress() {
+        assertThat(AddressIndex.builder(0).build().nearest(40.7, -73.9)).isNull();
+    }
+
+    private static int bruteForce(double[] lats, double[] lons, double lat, double lon) {
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int i = 0; i < lats.length; i++) {
+            double distance = haversine(lats[i], lons[i], lat, lon);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static double haversine(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.pow(Math.sin(dLat / 2), 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.pow(Math.sin(dLon / 2), 2);
+        return 2 * Math.asin(Math.sqrt(a));
+    }
+}
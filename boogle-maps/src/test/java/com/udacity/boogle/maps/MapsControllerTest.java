@@ -0,0 +1,78 @@
+package com.udacity.boogle.maps;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "maps.batch.max-size=3")
+@AutoConfigureMockMvc
+public class MapsControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    public void returnsTheNearestAddressOfTheDataset() throws Exception {
+        // coordinates of 777 Brockton Avenue in adresses.json
+        mvc.perform(get("/maps").param("lat", "41.601251").param("lon", "-72.708992"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("address", is("777 Brockton Avenue")))
+                .andExpect(jsonPath("city", is("Abington")))
+                .andExpect(jsonPath("zip", is("02351")));
+    }
+
+    @Test
+    public void rejectsCoordinatesOffTheGlobe() throws Exception {
+        mvc.perform(get("/maps").param("lat", "91").param("lon", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void rejectsCoordinatesThatAreNotNumbers() throws Exception {
+        mvc.perform(get("/maps").param("lat", "NaN").param("lon", "0"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/maps").param("lat", "0").param("lon", "Infinity"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/maps/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"lat\":41.601251,\"lon\":-72.708992},{\"lat\":\"NaN\",\"lon\":0}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void reverseGeocodesABatchInOrder() throws Exception {
+        mvc.perform(post("/maps/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"lat\":41.601251,\"lon\":-72.708992},{\"lat\":91,\"lon\":0}]"))
+                .andExpect(status().isBadRequest());
+
+        mvc.perform(post("/maps/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"lat\":41.601251,\"lon\":-72.708992},{\"lat\":40.730610,\"lon\":-73.935242},"
+                        + "{\"lat\":41.601251,\"lon\":-72.708992}]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].address", is("777 Brockton Avenue")))
+                .andExpect(jsonPath("$[1].state", is("NY")))
+                .andExpect(jsonPath("$[2].address", is("777 Brockton Avenue")));
+    }
+
+    @Test
+    public void rejectsOversizedBatches() throws Exception {
+        mvc.perform(post("/maps/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"lat\":0,\"lon\":0},{\"lat\":0,\"lon\":0},{\"lat\":0,\"lon\":0},{\"lat\":0,\"lon\":0}]"))
+                .andExpect(status().isBadRequest());
+    }
+}
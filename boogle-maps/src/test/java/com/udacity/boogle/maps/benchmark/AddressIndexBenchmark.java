@@ -0,0 +1,57 @@
+package com.udacity.boogle.maps.benchmark;
+
+import com.udacity.boogle.maps.Address;
+import com.udacity.boogle.maps.AddressIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures nearest-address lookups in an AddressIndex of {@code size}
+ * addresses spread over the contiguous United States.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class AddressIndexBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int size;
+
+    private AddressIndex index;
+
+    @Setup(Level.Trial)
+    public void build() {
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        AddressIndex.Builder builder = AddressIndex.builder(size);
+        for (int i = 0; i < size; i++) {
+            builder.add(25 + 24 * random.nextDouble(), -124 + 57 * random.nextDouble(),
+                    new Address(i + " Main St", "City", "ST", "00000"));
+        }
+        index = builder.build();
+        System.out.printf("%nIndexed %d addresses in %d ms%n", size, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @Benchmark
+    public Address nearest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return index.nearest(25 + 24 * random.nextDouble(), -124 + 57 * random.nextDouble());
+    }
+}
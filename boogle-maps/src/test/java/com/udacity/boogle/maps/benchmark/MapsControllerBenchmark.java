@@ -0,0 +1,86 @@
+package com.udacity.boogle.maps.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.udacity.boogle.maps.Address;
+import com.udacity.boogle.maps.AddressIndexConfig;
+import com.udacity.boogle.maps.MapsController;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Measures the throughput of MapsController, including JSON serialization of
+ * the address, in each {@code maps.mode}. The {@code legacyRandom} benchmark
+ * repeats how addresses were produced before they were parsed once at startup.
+ * Run with {@code -prof gc} to compare allocation per call.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MapsControllerBenchmark {
+
+    private static final String[] LEGACY_ADDRESSES = {
+            "777 Brockton Avenue, Abington MA 2351",
+            "141 Washington Ave Extension, Albany NY 12205",
+            "1400 Farmington Ave, Bristol CT 6010",
+            "5919 Trussville Crossings Pkwy, Birmingham AL 35235"
+    };
+
+    @Param({"random", "nearest"})
+    private String mode;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private MapsController controller;
+
+    @Setup
+    public void setup() {
+        controller = new MapsController(
+                new AddressIndexConfig().addressIndex(new ClassPathResource("adresses.json"), 1024, objectMapper),
+                mode, 1000);
+    }
+
+    @Benchmark
+    public byte[] get() throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Address address = controller.get(41 + 3 * random.nextDouble(), -80 + 7 * random.nextDouble());
+        return objectMapper.writeValueAsBytes(address);
+    }
+
+    @Benchmark
+    public byte[] legacyRandom() throws Exception {
+        Random generator = new Random();
+        String address = LEGACY_ADDRESSES[generator.nextInt(LEGACY_ADDRESSES.length)];
+
+        String[] addressParts = address.split(",");
+        String[] cityStateAndZipParts = addressParts[1].trim().split(" ");
+        LinkedList<String> list = Arrays.stream(cityStateAndZipParts).map(String::trim)
+                .collect(Collectors.toCollection(LinkedList::new));
+
+        String zip = list.pollLast();
+        String state = list.pollLast();
+        String city = String.join(" ", list);
+        return objectMapper.writeValueAsBytes(new Address(addressParts[0], city, state, zip));
+    }
+}
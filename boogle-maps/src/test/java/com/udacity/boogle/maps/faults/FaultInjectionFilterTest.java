@@ -0,0 +1,58 @@
+package com.udacity.boogle.maps.faults;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {"faults.enabled=true", "faults.latency=fixed:100ms", "faults.error-rate=0"})
+@AutoConfigureMockMvc
+public class FaultInjectionFilterTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    public void appliesConfiguredLatency() throws Exception {
+        long start = System.nanoTime();
+        mvc.perform(get("/maps").param("lat", "41.601251").param("lon", "-72.708992"))
+                .andExpect(status().isOk());
+        assertThat((System.nanoTime() - start) / 1_000_000).isGreaterThanOrEqualTo(100);
+    }
+
+    @Test
+    public void headersOverrideConfiguredFaults() throws Exception {
+        mvc.perform(get("/maps").param("lat", "0").param("lon", "0")
+                .header(FaultInjectionFilter.LATENCY_HEADER, "none")
+                .header(FaultInjectionFilter.ERROR_RATE_HEADER, "1"))
+                .andExpect(status().isServiceUnavailable());
+    }
+
+    @Test
+    public void rejectsErrorRatesOutsideZeroToOne() throws Exception {
+        mvc.perform(get("/maps").param("lat", "0").param("lon", "0")
+                .header(FaultInjectionFilter.ERROR_RATE_HEADER, "5"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/maps").param("lat", "0").param("lon", "0")
+                .header(FaultInjectionFilter.ERROR_RATE_HEADER, "-1"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void streamsSlowBodiesIntact() throws Exception {
+        mvc.perform(get("/maps").param("lat", "41.601251").param("lon", "-72.708992")
+                .header(FaultInjectionFilter.BODY_RATE_HEADER, "200"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("address", is("777 Brockton Avenue")));
+    }
+}
@@ -0,0 +1,231 @@
+package com.kpatil.eureka;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * Simulates Eureka clients over the REST API to measure how quickly the registry
+ * reflects registrations and expired leases, and what a registry fetch costs.
+ * Run it against a live server with
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.kpatil.eureka.RegistryHarness \
+ *     -Dexec.args="http://localhost:8761/eureka 300"
+ * </pre>
+ */
+public class RegistryHarness implements AutoCloseable {
+
+	private static final Duration POLL_INTERVAL = Duration.ofMillis(20);
+	private static final Duration GIVE_UP_AFTER = Duration.ofMinutes(5);
+
+	private final String serviceUrl;
+	private final HttpClient http = HttpClient.newHttpClient();
+	private final ScheduledExecutorService heartbeats = Executors.newScheduledThreadPool(2, r -> {
+		Thread thread = new Thread(r, "registry-harness-heartbeat");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final Map<String, ScheduledFuture<?>> registered = new ConcurrentHashMap<>();
+	private final AtomicInteger sequence = new AtomicInteger();
+
+	public RegistryHarness(String serviceUrl) {
+		this.serviceUrl = serviceUrl.endsWith("/") ? serviceUrl.substring(0, serviceUrl.length() - 1) : serviceUrl;
+	}
+
+	/**
+	 * Registers instances of an application that keep renewing their leases
+	 * every {@code renewalSeconds} until the harness is closed.
+	 */
+	public void register(String app, int count, int renewalSeconds) {
+		for (int i = 0; i < count; i++) {
+			String id = registerInstance(app, renewalSeconds, renewalSeconds * 3);
+			registered.put(key(app, id), heartbeats.scheduleAtFixedRate(() -> renew(app, id),
+					renewalSeconds, renewalSeconds, TimeUnit.SECONDS));
+		}
+	}
+
+	/**
+	 * Registers a new instance and returns how long it took to show up in the
+	 * registry delta that clients fetch incrementally.
+	 */
+	public Duration measureVisibility(String app) {
+		String id = registerInstance(app, 30, 90);
+		registered.put(key(app, id), heartbeats.scheduleAtFixedRate(() -> renew(app, id), 30, 30, TimeUnit.SECONDS));
+		long start = System.nanoTime();
+		awaitBody("/apps/delta", body -> body.contains(quoted(id)));
+		return Duration.ofNanos(System.nanoTime() - start);
+	}
+
+	/**
+	 * Registers an instance that never renews its lease of {@code leaseSeconds}
+	 * and returns how long it took to disappear from the registry.
+	 */
+	public Duration measureEviction(String app, int leaseSeconds) {
+		String id = registerInstance(app, leaseSeconds, leaseSeconds);
+		long start = System.nanoTime();
+		awaitBody("/apps/" + app, body -> body.contains(quoted(id)));
+		awaitBody("/apps/" + app, body -> !body.contains(quoted(id)));
+		return Duration.ofNanos(System.nanoTime() - start);
+	}
+
+	/**
+	 * Fetches {@code path} (for example {@code /apps} or {@code /apps/delta})
+	 * the way the Eureka client does, gzip compressed.
+	 */
+	public FetchCost measureFetch(String path, int iterations) {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(serviceUrl + path))
+				.header("Accept", "application/json")
+				.header("Accept-Encoding", "gzip")
+				.build();
+		long bytes = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			bytes += send(request, HttpResponse.BodyHandlers.ofByteArray()).body().length;
+		}
+		long elapsed = System.nanoTime() - start;
+		return new FetchCost(path, bytes / iterations, elapsed / (iterations * 1_000_000.0));
+	}
+
+	@Override
+	public void close() {
+		heartbeats.shutdownNow();
+		registered.forEach((key, heartbeat) -> {
+			String[] parts = key.split("/", 2);
+			send(HttpRequest.newBuilder(URI.create(serviceUrl + "/apps/" + parts[0] + "/" + parts[1]))
+					.DELETE().build(), HttpResponse.BodyHandlers.discarding());
+		});
+		registered.clear();
+	}
+
+	private String registerInstance(String app, int renewalSeconds, int durationSeconds) {
+		int n = sequence.incrementAndGet();
+		String id = app.toLowerCase(Locale.ROOT) + ":" + n;
+		String body = "{\"instance\":{"
+				+ "\"instanceId\":\"" + id + "\","
+				+ "\"hostName\":\"10.0." + (n / 250) + "." + (n % 250 + 1) + "\","
+				+ "\"app\":\"" + app + "\","
+				+ "\"ipAddr\":\"10.0." + (n / 250) + "." + (n % 250 + 1) + "\","
+				+ "\"vipAddress\":\"" + app.toLowerCase(Locale.ROOT) + "\","
+				+ "\"status\":\"UP\","
+				+ "\"port\":{\"$\":8080,\"@enabled\":\"true\"},"
+				+ "\"securePort\":{\"$\":443,\"@enabled\":\"false\"},"
+				+ "\"dataCenterInfo\":{\"@class\":\"com.netflix.appinfo.InstanceInfo$DefaultDataCenterInfo\",\"name\":\"MyOwn\"},"
+				+ "\"leaseInfo\":{\"renewalIntervalInSecs\":" + renewalSeconds + ",\"durationInSecs\":" + durationSeconds + "}"
+				+ "}}";
+		HttpResponse<Void> response = send(HttpRequest.newBuilder(URI.create(serviceUrl + "/apps/" + app))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build(), HttpResponse.BodyHandlers.discarding());
+		if (response.statusCode() != 204) {
+			throw new IllegalStateException("Registration of " + id + " failed with " + response.statusCode());
+		}
+		return id;
+	}
+
+	private void renew(String app, String id) {
+		send(HttpRequest.newBuilder(URI.create(serviceUrl + "/apps/" + app + "/" + id + "?status=UP"))
+				.PUT(HttpRequest.BodyPublishers.noBody())
+				.build(), HttpResponse.BodyHandlers.discarding());
+	}
+
+	private void awaitBody(String path, Predicate<String> condition) {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(serviceUrl + path))
+				.header("Accept", "application/json")
+				.build();
+		long deadline = System.nanoTime() + GIVE_UP_AFTER.toNanos();
+		while (!condition.test(send(request, HttpResponse.BodyHandlers.ofString()).body())) {
+			if (System.nanoTime() > deadline) {
+				throw new IllegalStateException("Gave up waiting on " + path);
+			}
+			try {
+				Thread.sleep(POLL_INTERVAL.toMillis());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+		try {
+			return http.send(request, handler);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String key(String app, String id) {
+		return app + "/" + id;
+	}
+
+	private static String quoted(String id) {
+		return "\"" + id + "\"";
+	}
+
+	/**
+	 * Average size on the wire and latency of one registry fetch.
+	 */
+	public static final class FetchCost {
+
+		private final String path;
+		private final long bytes;
+		private final double millis;
+
+		FetchCost(String path, long bytes, double millis) {
+			this.path = path;
+			this.bytes = bytes;
+			this.millis = millis;
+		}
+
+		public long getBytes() {
+			return bytes;
+		}
+
+		public double getMillis() {
+			return millis;
+		}
+
+		@Override
+		public String toString() {
+			return String.format(Locale.ROOT, "%s: %d bytes, %.2f ms", path, bytes, millis);
+		}
+	}
+
+	public static void main(String[] args) {
+		String serviceUrl = args.length > 0 ? args[0] : "http://localhost:8761/eureka";
+		int instances = args.length > 1 ? Integer.parseInt(args[1]) : 300;
+		try (RegistryHarness harness = new RegistryHarness(serviceUrl)) {
+			harness.register("PRICING-SERVICE", instances / 3, 5);
+			harness.register("BOOGLE-MAPS", instances / 3, 5);
+			harness.register("VEHICLES-API", instances - 2 * (instances / 3), 5);
+			List<Duration> visibility = new ArrayList<>();
+			for (int i = 0; i < 5; i++) {
+				visibility.add(harness.measureVisibility("PRICING-SERVICE"));
+			}
+			System.out.println(instances + " instances");
+			System.out.println("registration to visibility: " + visibility);
+			System.out.println("expired lease (5s) to removal: " + harness.measureEviction("PRICING-SERVICE", 5));
+			System.out.println(harness.measureFetch("/apps", 200));
+			System.out.println(harness.measureFetch("/apps/delta", 200));
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package com.kpatil.eureka;
+
+import com.netflix.eureka.EurekaServerConfig;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the fast profile reaches the server. How fast changes then
+ * propagate is measured by RegistryHarness against a live server, see the
+ * README.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@ActiveProfiles("fast")
+public class RegistryPropagationTest {
+
+	@Autowired
+	private EurekaServerConfig config;
+
+	@Test
+	public void fastProfileRefreshesAndEvictsWithinSeconds() {
+		assertThat(config.getResponseCacheUpdateIntervalMs()).isEqualTo(1000);
+		assertThat(config.getEvictionIntervalTimerInMs()).isEqualTo(5000);
+		assertThat(config.getExpectedClientRenewalIntervalSeconds()).isEqualTo(5);
+		assertThat(config.shouldEnableSelfPreservation()).isFalse();
+	}
+}
@@ -0,0 +1,30 @@
+package com.kpatil.pricing.api;
+
+import com.kpatil.pricing.events.PriceChangeStream;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Streams price changes to other services as server-sent events.
+ */
+@RestController
+public class PriceEventsController {
+
+    private final PriceChangeStream stream;
+
+    public PriceEventsController(PriceChangeStream stream) {
+        this.stream = stream;
+    }
+
+    /**
+     * Subscribes to price changes.
+     *
+     * @return a {@code ready} event followed by one {@code price} event per change
+     */
+    @GetMapping(path = "/prices/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events() {
+        return stream.subscribe();
+    }
+}
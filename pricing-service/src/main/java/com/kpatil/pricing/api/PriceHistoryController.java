@@ -0,0 +1,46 @@
+package com.kpatil.pricing.api;
+
+import com.kpatil.pricing.entity.PriceHistory;
+import com.kpatil.pricing.repository.PriceHistoryRepository;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Serves the price series of a vehicle over a time range.
+ */
+@RestController
+@RequestMapping("/prices/vehicle")
+public class PriceHistoryController {
+
+    private final PriceHistoryRepository historyRepository;
+
+    public PriceHistoryController(PriceHistoryRepository historyRepository) {
+        this.historyRepository = historyRepository;
+    }
+
+    /**
+     * Gets the prices a vehicle had between two instants, oldest first.
+     *
+     * @param vehicleId ID number of the vehicle
+     * @param from      start of the range (inclusive), defaults to the beginning of time
+     * @param to        end of the range (inclusive), defaults to now
+     * @return the price changes of the vehicle within the range
+     */
+    @GetMapping("/{vehicleId}/history")
+    public List<PriceHistory> history(
+            @PathVariable Long vehicleId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        return historyRepository.findByVehicleIdAndEffectiveAtBetweenOrderByEffectiveAtAsc(
+                vehicleId,
+                from != null ? from : Instant.EPOCH,
+                to != null ? to : Instant.now());
+    }
+}
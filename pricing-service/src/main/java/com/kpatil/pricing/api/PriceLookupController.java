@@ -0,0 +1,46 @@
+package com.kpatil.pricing.api;
+
+import com.kpatil.pricing.repository.PriceRepository;
+import com.kpatil.pricing.snapshot.CurrentPrice;
+import com.kpatil.pricing.snapshot.PriceSnapshot;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Serves the current price of a vehicle by vehicle ID. Reads come from the
+ * in-memory PriceSnapshot when it is enabled and from the database otherwise.
+ */
+@RestController
+@RequestMapping("/prices/vehicle")
+public class PriceLookupController {
+
+    private final PriceRepository priceRepository;
+    private final PriceSnapshot snapshot;
+
+    public PriceLookupController(PriceRepository priceRepository, ObjectProvider<PriceSnapshot> snapshot) {
+        this.priceRepository = priceRepository;
+        this.snapshot = snapshot.getIfAvailable();
+    }
+
+    /**
+     * Gets the current price of a vehicle.
+     *
+     * @param vehicleId ID number of the vehicle
+     * @return the current price, or 404 if the vehicle has none
+     */
+    @GetMapping("/{vehicleId}")
+    public ResponseEntity<CurrentPrice> get(@PathVariable Long vehicleId) {
+        if (snapshot != null) {
+            CurrentPrice price = snapshot.get(vehicleId);
+            return price != null ? ResponseEntity.ok(price) : ResponseEntity.notFound().build();
+        }
+        return priceRepository.findByVehicleId(vehicleId)
+                .map(price -> new CurrentPrice(price.getVehicleId(), price.getCurrency(), price.getPrice()))
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
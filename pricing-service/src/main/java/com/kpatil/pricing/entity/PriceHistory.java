@@ -0,0 +1,55 @@
+package com.kpatil.pricing.entity;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Represents a price a vehicle had from a given point in time.
+ * Rows are only ever appended; the price table holds the current one.
+ */
+@Entity
+public class PriceHistory {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long vehicleId;
+    private String currency;
+    private BigDecimal price;
+    private Instant effectiveAt;
+
+    public PriceHistory() {
+    }
+
+    public PriceHistory(Long vehicleId, String currency, BigDecimal price, Instant effectiveAt) {
+        this.vehicleId = vehicleId;
+        this.currency = currency;
+        this.price = price;
+        this.effectiveAt = effectiveAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getVehicleId() {
+        return vehicleId;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public Instant getEffectiveAt() {
+        return effectiveAt;
+    }
+}
@@ -0,0 +1,116 @@
+package com.kpatil.pricing.events;
+
+import com.kpatil.pricing.entity.Price;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Pushes every committed price change to the subscribers of /prices/events as
+ * server-sent events.
+ * <p>
+ * Each subscriber first receives a {@code ready} event. Changes made while a
+ * subscriber was disconnected are not replayed, so a subscriber should treat
+ * {@code ready} as "drop everything cached". Events are sent from a single
+ * thread so that saving a price never waits on a slow subscriber.
+ */
+@Component
+@RepositoryEventHandler
+public class PriceChangeStream implements DisposableBean {
+
+    static final String READY = "ready";
+    static final String PRICE = "price";
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceChangeStream.class);
+
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final ExecutorService sender = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "price-events");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long timeout;
+
+    public PriceChangeStream(@Value("${pricing.events.timeout:30m}") Duration timeout) {
+        this.timeout = timeout.toMillis();
+    }
+
+    /**
+     * Registers a new subscriber. The stream completes after the configured
+     * timeout and subscribers are expected to reconnect.
+     *
+     * @return the emitter to return from the request handler
+     */
+    public SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(timeout);
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(error -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+        try {
+            emitter.send(SseEmitter.event().name(READY).data(""));
+        } catch (IOException e) {
+            subscribers.remove(emitter);
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    /**
+     * Publishes a created or updated price once its transaction has committed.
+     *
+     * @param event the changed price
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPriceChanged(PriceChangedEvent event) {
+        sender.execute(() -> broadcast(event));
+    }
+
+    /**
+     * Publishes the removal of a price deleted through the REST repository.
+     *
+     * @param price the deleted price
+     */
+    @HandleAfterDelete
+    public void onPriceDeleted(Price price) {
+        onPriceChanged(new PriceChangedEvent(price.getVehicleId(), null, null));
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    private void broadcast(PriceChangedEvent event) {
+        for (SseEmitter emitter : subscribers) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .name(PRICE)
+                        .id(String.valueOf(event.getVehicleId()))
+                        .data(event, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Dropping price event subscriber", e);
+                subscribers.remove(emitter);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        sender.shutdownNow();
+        subscribers.forEach(SseEmitter::complete);
+    }
+}
@@ -0,0 +1,32 @@
+package com.kpatil.pricing.events;
+
+import java.math.BigDecimal;
+
+/**
+ * Signals that the current price of a vehicle was created, updated or removed.
+ * A removed price carries neither currency nor price.
+ */
+public class PriceChangedEvent {
+
+    private final Long vehicleId;
+    private final String currency;
+    private final BigDecimal price;
+
+    public PriceChangedEvent(Long vehicleId, String currency, BigDecimal price) {
+        this.vehicleId = vehicleId;
+        this.currency = currency;
+        this.price = price;
+    }
+
+    public Long getVehicleId() {
+        return vehicleId;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+}
@@ -0,0 +1,192 @@
+package com.kpatil.pricing.faults;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Delays, fails or slowly streams responses so that this service can stand in
+ * for a misbehaving downstream in load and resilience tests.
+ */
+public class FaultInjectionFilter extends OncePerRequestFilter {
+
+    static final String LATENCY_HEADER = "X-Fault-Latency";
+    static final String ERROR_RATE_HEADER = "X-Fault-Error-Rate";
+    static final String BODY_RATE_HEADER = "X-Fault-Body-Rate";
+
+    private static final Logger logger = LoggerFactory.getLogger(FaultInjectionFilter.class);
+
+    // Slow bodies are written in this many chunks per second
+    private static final int CHUNKS_PER_SECOND = 10;
+
+    private final FaultInjectionProperties properties;
+    private final LatencyDistribution latency;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public FaultInjectionFilter(FaultInjectionProperties properties) {
+        this.properties = properties;
+        this.latency = LatencyDistribution.parse(properties.getLatency());
+        errorRate(properties.getErrorRate());
+        bodyRate(properties.getBodyBytesPerSecond());
+        logger.warn("Injecting faults: latency {}, error rate {}, body rate {} B/s",
+                latency, properties.getErrorRate(), properties.getBodyBytesPerSecond());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return properties.getExclude().stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        LatencyDistribution requestLatency = latency;
+        double errorRate = properties.getErrorRate();
+        int bodyRate = properties.getBodyBytesPerSecond();
+        if (properties.isHeaders()) {
+            try {
+                String header = request.getHeader(LATENCY_HEADER);
+                requestLatency = header != null ? LatencyDistribution.parse(header) : requestLatency;
+                header = request.getHeader(ERROR_RATE_HEADER);
+                errorRate = header != null ? errorRate(Double.parseDouble(header)) : errorRate;
+                header = request.getHeader(BODY_RATE_HEADER);
+                bodyRate = header != null ? bodyRate(Integer.parseInt(header)) : bodyRate;
+            } catch (IllegalArgumentException e) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
+            }
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = requestLatency.sample(random);
+        if (delay > 0) {
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (errorRate > 0 && random.nextDouble() < errorRate) {
+            response.sendError(properties.getErrorStatus(), "Injected fault");
+            return;
+        }
+        if (bodyRate > 0) {
+            response = new SlowResponse(response, bodyRate);
+        }
+        chain.doFilter(request, response);
+        response.flushBuffer();
+    }
+
+    private static double errorRate(double errorRate) {
+        // written so that NaN is rejected as well
+        if (!(errorRate >= 0 && errorRate <= 1)) {
+            throw new IllegalArgumentException("Error rate must be between 0 and 1: " + errorRate);
+        }
+        return errorRate;
+    }
+
+    private static int bodyRate(int bytesPerSecond) {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("Body rate must not be negative: " + bytesPerSecond);
+        }
+        return bytesPerSecond;
+    }
+
+    /**
+     * Writes the body in small chunks, pausing between them.
+     */
+    private static final class SlowResponse extends HttpServletResponseWrapper {
+
+        private final int chunkSize;
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        private SlowResponse(HttpServletResponse response, int bytesPerSecond) {
+            super(response);
+            this.chunkSize = Math.max(1, bytesPerSecond / CHUNKS_PER_SECOND);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new SlowOutputStream(super.getOutputStream(), this, chunkSize);
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(),
+                        Charset.forName(getCharacterEncoding())));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            super.flushBuffer();
+        }
+    }
+
+    private static final class SlowOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private final HttpServletResponse response;
+        private final int chunkSize;
+
+        private SlowOutputStream(ServletOutputStream delegate, HttpServletResponse response, int chunkSize) {
+            this.delegate = delegate;
+            this.response = response;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            for (int written = 0; written < length; written += chunkSize) {
+                delegate.write(bytes, offset + written, Math.min(chunkSize, length - written));
+                response.flushBuffer();
+                try {
+                    Thread.sleep(1000 / CHUNKS_PER_SECOND);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while writing a slow body", e);
+                }
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+            delegate.setWriteListener(listener);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.kpatil.pricing.repository;
+
+import com.kpatil.pricing.entity.PriceHistory;
+import org.springframework.data.repository.Repository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Append-only access to price history. Rows are written by PriceRepository.save,
+ * so the repository is not exported through Spring Data REST.
+ */
+@RepositoryRestResource(exported = false)
+public interface PriceHistoryRepository extends Repository<PriceHistory, Long> {
+
+    PriceHistory save(PriceHistory priceHistory);
+
+    List<PriceHistory> findByVehicleIdAndEffectiveAtBetweenOrderByEffectiveAtAsc(
+            Long vehicleId, Instant from, Instant to);
+
+    Optional<PriceHistory> findFirstByVehicleIdOrderByEffectiveAtDesc(Long vehicleId);
+}
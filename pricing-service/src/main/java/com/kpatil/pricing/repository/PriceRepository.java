@@ -4,7 +4,16 @@ import com.kpatil.pricing.entity.Price;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
-public interface PriceRepository extends CrudRepository<Price, Long> {
+public interface PriceRepository extends CrudRepository<Price, Long>, PriceRepositoryCustom {
+
+    @Override
+    <S extends Price> S save(S price);
+
+    @Override
+    <S extends Price> Iterable<S> saveAll(Iterable<S> prices);
 
+    Optional<Price> findByVehicleId(Long vehicleId);
 }
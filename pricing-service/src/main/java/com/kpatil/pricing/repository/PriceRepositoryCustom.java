@@ -0,0 +1,14 @@
+package com.kpatil.pricing.repository;
+
+import com.kpatil.pricing.entity.Price;
+
+/**
+ * Overrides PriceRepository.save and saveAll so every created or updated
+ * price is also appended to the price history in the same transaction.
+ */
+public interface PriceRepositoryCustom {
+
+    <S extends Price> S save(S price);
+
+    <S extends Price> Iterable<S> saveAll(Iterable<S> prices);
+}
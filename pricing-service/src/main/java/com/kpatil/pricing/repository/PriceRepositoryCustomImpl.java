@@ -0,0 +1,54 @@
+package com.kpatil.pricing.repository;
+
+import com.kpatil.pricing.entity.Price;
+import com.kpatil.pricing.entity.PriceHistory;
+import com.kpatil.pricing.events.PriceChangedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+class PriceRepositoryCustomImpl implements PriceRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final PriceHistoryRepository historyRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    PriceRepositoryCustomImpl(PriceHistoryRepository historyRepository, ApplicationEventPublisher eventPublisher) {
+        this.historyRepository = historyRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    @Transactional
+    public <S extends Price> S save(S price) {
+        S saved;
+        if (price.getId() == null) {
+            entityManager.persist(price);
+            saved = price;
+        } else {
+            saved = entityManager.merge(price);
+        }
+        historyRepository.save(new PriceHistory(
+                saved.getVehicleId(), saved.getCurrency(), saved.getPrice(), Instant.now()));
+        eventPublisher.publishEvent(new PriceChangedEvent(
+                saved.getVehicleId(), saved.getCurrency(), saved.getPrice()));
+        return saved;
+    }
+
+    @Override
+    @Transactional
+    public <S extends Price> Iterable<S> saveAll(Iterable<S> prices) {
+        List<S> saved = new ArrayList<>();
+        for (S price : prices) {
+            saved.add(save(price));
+        }
+        return saved;
+    }
+}
@@ -0,0 +1,31 @@
+package com.kpatil.pricing.snapshot;
+
+import java.math.BigDecimal;
+
+/**
+ * Current price of a vehicle, as served by the price lookup endpoint.
+ */
+public class CurrentPrice {
+
+    private final Long vehicleId;
+    private final String currency;
+    private final BigDecimal price;
+
+    public CurrentPrice(Long vehicleId, String currency, BigDecimal price) {
+        this.vehicleId = vehicleId;
+        this.currency = currency;
+        this.price = price;
+    }
+
+    public Long getVehicleId() {
+        return vehicleId;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+}
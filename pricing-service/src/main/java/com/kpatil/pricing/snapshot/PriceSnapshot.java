@@ -0,0 +1,211 @@
+package com.kpatil.pricing.snapshot;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Compact map of vehicle ID to current price, kept in parallel primitive arrays
+ * with open addressing. Prices are stored as cents and currencies as an index
+ * into a small code table, so an entry costs 17 bytes per slot.
+ *
+ * Written by a single refresher at a time; reads are lock-free in the common
+ * case through optimistic stamps and fall back to a read lock on contention.
+ */
+public class PriceSnapshot {
+
+    static final int SCALE = 2;
+    private static final float LOAD_FACTOR = 0.7f;
+    private static final long EMPTY = 0L;
+
+    private final StampedLock lock = new StampedLock();
+    // replaced, never mutated, so optimistic readers always see a consistent table
+    private volatile String[] currencies = new String[0];
+
+    private long[] keys;
+    private long[] amounts;
+    private byte[] currencyIndexes;
+    // read by the metrics thread without the lock
+    private volatile int size;
+
+    public PriceSnapshot(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Gets the current price of a vehicle.
+     *
+     * @param vehicleId ID number of the vehicle
+     * @return the price, or null if the vehicle has none
+     */
+    public CurrentPrice get(long vehicleId) {
+        long stamp = lock.tryOptimisticRead();
+        CurrentPrice price = find(vehicleId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                price = find(vehicleId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return price;
+    }
+
+    public void put(long vehicleId, String currency, BigDecimal price) {
+        requireValidKey(vehicleId);
+        long amount = price.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        long stamp = lock.writeLock();
+        try {
+            byte currencyIndex = currencyIndex(currency);
+            if (size + 1 > keys.length * LOAD_FACTOR) {
+                resize(keys.length * 2);
+            }
+            int slot = slot(vehicleId);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = vehicleId;
+                size++;
+            }
+            amounts[slot] = amount;
+            currencyIndexes[slot] = currencyIndex;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(long vehicleId) {
+        requireValidKey(vehicleId);
+        long stamp = lock.writeLock();
+        try {
+            int slot = slot(vehicleId);
+            if (keys[slot] == EMPTY) {
+                return;
+            }
+            keys[slot] = EMPTY;
+            size--;
+            // shift back the entries of the probe chain that follows the freed slot
+            int mask = keys.length - 1;
+            int next = (slot + 1) & mask;
+            while (keys[next] != EMPTY) {
+                long key = keys[next];
+                keys[next] = EMPTY;
+                int target = slot(key);
+                keys[target] = key;
+                amounts[target] = amounts[next];
+                currencyIndexes[target] = currencyIndexes[next];
+                next = (next + 1) & mask;
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Estimates the heap retained by the snapshot, excluding the currency table.
+     *
+     * @return the size of the backing arrays in bytes
+     */
+    public long estimatedBytes() {
+        long stamp = lock.tryOptimisticRead();
+        long slots = keys.length;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                slots = keys.length;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return 3 * 16L + slots * (Long.BYTES + Long.BYTES + Byte.BYTES);
+    }
+
+    private CurrentPrice find(long vehicleId) {
+        long[] keys = this.keys;
+        long[] amounts = this.amounts;
+        byte[] currencyIndexes = this.currencyIndexes;
+        int mask = keys.length - 1;
+        // arrays may be swapped by a concurrent resize; the stamp check discards such reads
+        if (amounts.length != keys.length || currencyIndexes.length != keys.length) {
+            return null;
+        }
+        for (int slot = hash(vehicleId) & mask, probes = 0; probes <= mask; slot = (slot + 1) & mask, probes++) {
+            long key = keys[slot];
+            if (key == vehicleId) {
+                String[] currencies = this.currencies;
+                int currency = currencyIndexes[slot] & 0xFF;
+                return currency < currencies.length
+                        ? new CurrentPrice(vehicleId, currencies[currency], BigDecimal.valueOf(amounts[slot], SCALE))
+                        : null;
+            }
+            if (key == EMPTY) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private int slot(long vehicleId) {
+        int mask = keys.length - 1;
+        int slot = hash(vehicleId) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != vehicleId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private byte currencyIndex(String currency) {
+        int index = Arrays.asList(currencies).indexOf(currency);
+        if (index < 0) {
+            if (currencies.length == 256) {
+                throw new IllegalStateException("More than 256 currencies in price snapshot");
+            }
+            index = currencies.length;
+            String[] extended = Arrays.copyOf(currencies, index + 1);
+            extended[index] = currency;
+            currencies = extended;
+        }
+        return (byte) index;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldAmounts = amounts;
+        byte[] oldCurrencyIndexes = currencyIndexes;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                amounts[slot] = oldAmounts[i];
+                currencyIndexes[slot] = oldCurrencyIndexes[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        amounts = new long[capacity];
+        currencyIndexes = new byte[capacity];
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) Math.ceil(expectedSize / LOAD_FACTOR)) - 1) << 1;
+        return Math.max(16, capacity);
+    }
+
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static void requireValidKey(long vehicleId) {
+        if (vehicleId == EMPTY) {
+            throw new IllegalArgumentException("Vehicle ID 0 cannot be stored in the price snapshot");
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.kpatil.pricing.snapshot;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Duration;
+
+/**
+ * Enables serving current prices from memory (pricing.snapshot.enabled=true).
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "pricing.snapshot", name = "enabled", havingValue = "true")
+@EnableScheduling
+public class PriceSnapshotConfig {
+
+    @Bean
+    public PriceSnapshot priceSnapshot(@Value("${pricing.snapshot.expected-size:1024}") int expectedSize) {
+        return new PriceSnapshot(expectedSize);
+    }
+
+    @Bean
+    public PriceSnapshotRefresher priceSnapshotRefresher(JdbcTemplate jdbcTemplate, PriceSnapshot snapshot,
+                                                         MeterRegistry meterRegistry,
+                                                         @Value("${pricing.snapshot.batch-size:10000}") int batchSize,
+                                                         @Value("${pricing.snapshot.gap-timeout:60s}") Duration gapTimeout) {
+        return new PriceSnapshotRefresher(jdbcTemplate, snapshot, meterRegistry, batchSize, gapTimeout);
+    }
+}
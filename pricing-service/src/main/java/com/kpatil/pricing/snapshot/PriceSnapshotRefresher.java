@@ -0,0 +1,199 @@
+package com.kpatil.pricing.snapshot;
+
+import com.kpatil.pricing.entity.Price;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.data.rest.core.annotation.HandleAfterDelete;
+import org.springframework.data.rest.core.annotation.RepositoryEventHandler;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads all current prices into the PriceSnapshot at startup and then follows
+ * the rows appended to price_history since the last refresh. A history row
+ * only names the vehicle that changed; its price is read from the price table,
+ * which holds the last committed change even when changes commit in another
+ * order than their history ids.
+ * <p>
+ * History ids are handed out on insert, not on commit, so a change may become
+ * visible after higher ids have been read. The ids skipped below the
+ * high-water mark are kept as gaps and read again on every refresh until they
+ * show up or {@code gapTimeout} has passed; ids of rolled back transactions
+ * never show up.
+ */
+@RepositoryEventHandler
+public class PriceSnapshotRefresher implements InitializingBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceSnapshotRefresher.class);
+
+    private static final String CHANGES = "SELECT h.id, h.vehicle_id, h.effective_at, p.currency, p.price "
+            + "FROM price_history h LEFT JOIN price p ON p.vehicle_id = h.vehicle_id ";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PriceSnapshot snapshot;
+    private final int batchSize;
+    private final long gapTimeoutMillis;
+    private final Timer refreshLag;
+
+    // Ids skipped below lastHistoryId, only used by the refreshing thread
+    private final List<Gap> gaps = new ArrayList<>();
+
+    private volatile long lastHistoryId;
+    private volatile long loadedHistoryId;
+    private volatile long lastRefreshMillis;
+    private volatile int gapCount;
+
+    public PriceSnapshotRefresher(JdbcTemplate jdbcTemplate, PriceSnapshot snapshot,
+                                  MeterRegistry meterRegistry, int batchSize, Duration gapTimeout) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshot = snapshot;
+        this.batchSize = batchSize;
+        this.gapTimeoutMillis = gapTimeout.toMillis();
+        this.refreshLag = Timer.builder("pricing.snapshot.refresh.lag")
+                .description("Time from a price change to it being served from the snapshot")
+                .register(meterRegistry);
+        Gauge.builder("pricing.snapshot.entries", snapshot, PriceSnapshot::size).register(meterRegistry);
+        Gauge.builder("pricing.snapshot.bytes", snapshot, PriceSnapshot::estimatedBytes)
+                .baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("pricing.snapshot.staleness", this, PriceSnapshotRefresher::secondsSinceRefresh)
+                .baseUnit("seconds").register(meterRegistry);
+        Gauge.builder("pricing.snapshot.gaps", this, refresher -> refresher.gapCount)
+                .description("Ranges of history ids skipped while their transactions had not committed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        long start = System.nanoTime();
+        // take the high-water mark first: changes racing with the load are applied again later
+        Long highWaterMark = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(MAX(id), 0) FROM price_history", Long.class);
+        jdbcTemplate.query("SELECT vehicle_id, currency, price FROM price", resultSet -> {
+            apply(resultSet.getLong(1), resultSet.getString(2), resultSet.getBigDecimal(3));
+        });
+        loadedHistoryId = highWaterMark != null ? highWaterMark : 0L;
+        // read the last batch again on the first refresh, for the gaps of transactions in flight meanwhile
+        lastHistoryId = Math.max(0, loadedHistoryId - batchSize);
+        lastRefreshMillis = System.currentTimeMillis();
+        logger.info("Loaded {} prices into the snapshot ({} bytes) in {} ms",
+                snapshot.size(), snapshot.estimatedBytes(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Applies the price changes recorded since the previous refresh.
+     */
+    @Scheduled(fixedDelayString = "${pricing.snapshot.refresh-interval:1000}")
+    public synchronized void refresh() {
+        fillGaps();
+        int applied;
+        do {
+            applied = applyBatch();
+        } while (applied == batchSize);
+        lastRefreshMillis = System.currentTimeMillis();
+    }
+
+    // Deletes are not part of price_history, so they are applied as they happen.
+    @HandleAfterDelete
+    public void onDelete(Price price) {
+        snapshot.remove(price.getVehicleId());
+    }
+
+    private int applyBatch() {
+        long now = System.currentTimeMillis();
+        int[] applied = {0};
+        jdbcTemplate.query(CHANGES + "WHERE h.id > ? ORDER BY h.id LIMIT ?",
+                resultSet -> {
+                    long id = resultSet.getLong(1);
+                    if (id > lastHistoryId + 1) {
+                        gaps.add(new Gap(lastHistoryId + 1, id - 1, now));
+                    }
+                    apply(resultSet, now);
+                    lastHistoryId = id;
+                    applied[0]++;
+                },
+                lastHistoryId, batchSize);
+        gapCount = gaps.size();
+        return applied[0];
+    }
+
+    /**
+     * Applies the changes that were skipped because they had not committed
+     * yet, and forgets gaps older than the timeout.
+     */
+    private void fillGaps() {
+        if (gaps.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Gap> open = new ArrayList<>(gaps);
+        gaps.clear();
+        for (Gap gap : open) {
+            if (now - gap.seenAtMillis > gapTimeoutMillis) {
+                logger.debug("History ids {} to {} did not show up, assuming rolled back", gap.from, gap.to);
+                continue;
+            }
+            long[] next = {gap.from};
+            jdbcTemplate.query(CHANGES + "WHERE h.id BETWEEN ? AND ? ORDER BY h.id",
+                    resultSet -> {
+                        long id = resultSet.getLong(1);
+                        if (id > next[0]) {
+                            gaps.add(new Gap(next[0], id - 1, gap.seenAtMillis));
+                        }
+                        apply(resultSet, now);
+                        next[0] = id + 1;
+                    },
+                    gap.from, gap.to);
+            if (next[0] <= gap.to) {
+                gaps.add(new Gap(next[0], gap.to, gap.seenAtMillis));
+            }
+        }
+        gapCount = gaps.size();
+    }
+
+    private void apply(ResultSet change, long now) throws SQLException {
+        apply(change.getLong(2), change.getString(4), change.getBigDecimal(5));
+        if (change.getLong(1) > loadedHistoryId) {
+            Timestamp effectiveAt = change.getTimestamp(3);
+            refreshLag.record(Duration.ofMillis(Math.max(0, now - effectiveAt.getTime())));
+        }
+    }
+
+    private void apply(long vehicleId, String currency, BigDecimal price) {
+        if (price == null || currency == null) {
+            snapshot.remove(vehicleId);
+        } else {
+            snapshot.put(vehicleId, currency, price);
+        }
+    }
+
+    private double secondsSinceRefresh() {
+        return (System.currentTimeMillis() - lastRefreshMillis) / 1000.0;
+    }
+
+    private static final class Gap {
+
+        private final long from;
+        private final long to;
+        private final long seenAtMillis;
+
+        private Gap(long from, long to, long seenAtMillis) {
+            this.from = from;
+            this.to = to;
+            this.seenAtMillis = seenAtMillis;
+        }
+    }
+}
@@ -0,0 +1,9 @@
+CREATE TABLE price (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    currency VARCHAR(255),
+    price DECIMAL(19, 2),
+    vehicle_id BIGINT,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_price_vehicle_id ON price (vehicle_id);
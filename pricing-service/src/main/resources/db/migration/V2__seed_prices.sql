@@ -1,3 +1,4 @@
+-- Sample prices, previously loaded from data.sql
 INSERT INTO price (currency, price, vehicle_id)
 VALUES ('USD', 20000, 1);
 
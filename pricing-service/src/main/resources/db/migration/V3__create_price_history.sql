@@ -0,0 +1,18 @@
+-- Append-only price history. The price table stays the materialized current
+-- row per vehicle, so current-price reads remain a single indexed lookup.
+CREATE TABLE price_history (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    vehicle_id BIGINT NOT NULL,
+    currency VARCHAR(255),
+    price DECIMAL(19, 2),
+    effective_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE INDEX idx_price_history_vehicle_effective ON price_history (vehicle_id, effective_at DESC);
+
+DROP INDEX idx_price_vehicle_id;
+CREATE UNIQUE INDEX uq_price_vehicle_id ON price (vehicle_id);
+
+INSERT INTO price_history (vehicle_id, currency, price, effective_at)
+SELECT vehicle_id, currency, price, CURRENT_TIMESTAMP FROM price;
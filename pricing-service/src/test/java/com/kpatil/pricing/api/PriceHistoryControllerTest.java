@@ -0,0 +1,57 @@
+package com.kpatil.pricing.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "eureka.client.enabled=false")
+@AutoConfigureMockMvc
+class PriceHistoryControllerTest {
+
+    // a vehicle the seed data does not price, so that the cached context keeps the seed prices
+    private static final long VEHICLE_ID = 9101;
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Test
+    void returnsPriceSeriesForVehicle() throws Exception {
+        String price = mvc.perform(post("/prices")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"currency\":\"USD\",\"price\":21000,\"vehicleId\":" + VEHICLE_ID + "}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getHeader("Location");
+
+        mvc.perform(put(price)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"currency\":\"USD\",\"price\":19500,\"vehicleId\":" + VEHICLE_ID + "}"))
+                .andExpect(status().is2xxSuccessful());
+
+        mvc.perform(get("/prices/vehicle/{vehicleId}/history", VEHICLE_ID))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].price", is(21000.0)))
+                .andExpect(jsonPath("$[1].price", is(19500.0)));
+    }
+
+    @Test
+    void rangeExcludesOlderPrices() throws Exception {
+        mvc.perform(get("/prices/vehicle/3/history").param("from", "2999-01-01T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+    }
+}
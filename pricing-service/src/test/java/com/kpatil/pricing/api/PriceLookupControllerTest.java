@@ -0,0 +1,56 @@
+package com.kpatil.pricing.api;
+
+import com.kpatil.pricing.snapshot.PriceSnapshotRefresher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {
+        "eureka.client.enabled=false",
+        "pricing.snapshot.enabled=true",
+        "pricing.snapshot.refresh-interval=3600000"})
+@AutoConfigureMockMvc
+class PriceLookupControllerTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private PriceSnapshotRefresher refresher;
+
+    @Test
+    void servesSnapshotAndAppliesChangesOnRefresh() throws Exception {
+        mvc.perform(get("/prices/vehicle/5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("currency", is("USD")))
+                .andExpect(jsonPath("price", is(23000.0)))
+                .andExpect(jsonPath("vehicleId", is(5)));
+
+        mvc.perform(put("/prices/5")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"currency\":\"USD\",\"price\":21999.99,\"vehicleId\":5}"))
+                .andExpect(status().is2xxSuccessful());
+        refresher.refresh();
+
+        mvc.perform(get("/prices/vehicle/5"))
+                .andExpect(jsonPath("price", is(21999.99)));
+    }
+
+    @Test
+    void unknownVehicleIsNotFound() throws Exception {
+        mvc.perform(get("/prices/vehicle/999999"))
+                .andExpect(status().isNotFound());
+    }
+}
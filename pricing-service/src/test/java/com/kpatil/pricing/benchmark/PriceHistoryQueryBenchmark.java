@@ -0,0 +1,115 @@
+package com.kpatil.pricing.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares current-price lookups against a price history of {@code rows} entries:
+ * the materialized current row, the newest row via the (vehicle_id, effective_at desc)
+ * index, and the naive MAX() subquery.
+ *
+ * Run with: mvn test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test
+ * -Dexec.args="-cp %classpath org.openjdk.jmh.Main PriceHistoryQueryBenchmark -p rows=10000000"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class PriceHistoryQueryBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:price-history-bench;DB_CLOSE_DELAY=-1";
+
+    @Param("1000000")
+    private int rows;
+
+    @Param("100")
+    private int rowsPerVehicle;
+
+    private int vehicles;
+    private Connection connection;
+    private PreparedStatement currentRow;
+    private PreparedStatement latestHistoryRow;
+    private PreparedStatement maxSubquery;
+
+    @Setup(Level.Trial)
+    public void load() throws SQLException {
+        Flyway.configure().dataSource(URL, "sa", "").load().migrate();
+        vehicles = Math.max(1, rows / rowsPerVehicle);
+
+        connection = DriverManager.getConnection(URL, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM price_history");
+            statement.execute("DELETE FROM price");
+            statement.execute("INSERT INTO price_history (vehicle_id, currency, price, effective_at) "
+                    + "SELECT MOD(X, " + vehicles + ") + 1, 'USD', 10000 + MOD(X, 977), "
+                    + "DATEADD('SECOND', X, TIMESTAMP '2020-01-01 00:00:00') FROM SYSTEM_RANGE(1, " + rows + ")");
+            statement.execute("INSERT INTO price (currency, price, vehicle_id) "
+                    + "SELECT 'USD', 10000, X FROM SYSTEM_RANGE(1, " + vehicles + ")");
+            statement.execute("ANALYZE");
+        }
+
+        currentRow = connection.prepareStatement(
+                "SELECT currency, price FROM price WHERE vehicle_id = ?");
+        latestHistoryRow = connection.prepareStatement(
+                "SELECT currency, price FROM price_history WHERE vehicle_id = ? "
+                        + "ORDER BY effective_at DESC LIMIT 1");
+        maxSubquery = connection.prepareStatement(
+                "SELECT h.currency, h.price FROM price_history h WHERE h.vehicle_id = ? "
+                        + "AND h.effective_at = (SELECT MAX(m.effective_at) FROM price_history m "
+                        + "WHERE m.vehicle_id = h.vehicle_id)");
+    }
+
+    @TearDown(Level.Trial)
+    public void close() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public BigDecimal currentRow() throws SQLException {
+        return query(currentRow);
+    }
+
+    @Benchmark
+    public BigDecimal latestHistoryRow() throws SQLException {
+        return query(latestHistoryRow);
+    }
+
+    @Benchmark
+    public BigDecimal naiveMaxSubquery() throws SQLException {
+        return query(maxSubquery);
+    }
+
+    private BigDecimal query(PreparedStatement statement) throws SQLException {
+        statement.setLong(1, ThreadLocalRandom.current().nextInt(vehicles) + 1);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            return resultSet.next() ? resultSet.getBigDecimal(2) : null;
+        }
+    }
+}
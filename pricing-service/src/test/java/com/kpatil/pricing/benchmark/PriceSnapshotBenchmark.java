@@ -0,0 +1,65 @@
+package com.kpatil.pricing.benchmark;
+
+import com.kpatil.pricing.snapshot.CurrentPrice;
+import com.kpatil.pricing.snapshot.PriceSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures lookups in a PriceSnapshot of {@code entries} prices and prints the
+ * heap the snapshot retains after loading.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Threads(4)
+@State(Scope.Benchmark)
+public class PriceSnapshotBenchmark {
+
+    @Param("10000000")
+    private int entries;
+
+    private PriceSnapshot snapshot;
+
+    @Setup(Level.Trial)
+    public void load() {
+        long before = usedHeap();
+        snapshot = new PriceSnapshot(entries);
+        for (long id = 1; id <= entries; id++) {
+            snapshot.put(id, id % 10 == 0 ? "EUR" : "USD", BigDecimal.valueOf(10_000 + id % 50_000, 2));
+        }
+        long retained = usedHeap() - before;
+        System.out.printf("%nSnapshot of %d prices: %d MB measured, %d MB estimated (%.1f bytes/price)%n",
+                entries, retained >> 20, snapshot.estimatedBytes() >> 20, (double) retained / entries);
+    }
+
+    @Benchmark
+    public CurrentPrice lookup() {
+        return snapshot.get(ThreadLocalRandom.current().nextInt(entries) + 1);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
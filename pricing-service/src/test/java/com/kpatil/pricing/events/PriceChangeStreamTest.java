@@ -0,0 +1,80 @@
+package com.kpatil.pricing.events;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "eureka.client.enabled=false")
+class PriceChangeStreamTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PriceChangeStream stream;
+
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+    @Test
+    void pushesCommittedPriceChanges() throws Exception {
+        HttpResponse<InputStream> response = http.send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/prices/events")).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (BufferedReader events = new BufferedReader(
+                new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            assertThat(nextEventName(events)).isEqualTo(PriceChangeStream.READY);
+            assertThat(stream.subscriberCount()).isEqualTo(1);
+
+            HttpResponse<String> update = http.send(
+                    HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/prices/7"))
+                            .header("Content-Type", "application/json")
+                            .PUT(HttpRequest.BodyPublishers.ofString(
+                                    "{\"currency\":\"USD\",\"price\":12345.67,\"vehicleId\":7}"))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertThat(update.statusCode()).isBetween(200, 299);
+
+            assertThat(nextEventName(events)).isEqualTo(PriceChangeStream.PRICE);
+            assertThat(nextData(events))
+                    .contains("\"vehicleId\":7")
+                    .contains("\"price\":12345.67");
+        }
+    }
+
+    private static String nextEventName(BufferedReader events) throws Exception {
+        String line;
+        while ((line = events.readLine()) != null) {
+            if (line.startsWith("event:")) {
+                return line.substring("event:".length());
+            }
+        }
+        return null;
+    }
+
+    private static String nextData(BufferedReader events) throws Exception {
+        String line;
+        while ((line = events.readLine()) != null) {
+            if (line.startsWith("data:")) {
+                return line.substring("data:".length());
+            }
+        }
+        return null;
+    }
+}
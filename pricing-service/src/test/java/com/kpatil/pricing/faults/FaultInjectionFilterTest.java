@@ -0,0 +1,76 @@
+package com.kpatil.pricing.faults;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {"eureka.client.enabled=false", "faults.enabled=true"})
+@AutoConfigureMockMvc
+class FaultInjectionFilterTest {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private FaultInjectionProperties properties;
+
+    @Test
+    void failsRequestsAtTheRequestedErrorRate() throws Exception {
+        mvc.perform(get("/prices/vehicle/1").header(FaultInjectionFilter.ERROR_RATE_HEADER, "1"))
+                .andExpect(status().isServiceUnavailable());
+        mvc.perform(get("/prices/vehicle/1").header(FaultInjectionFilter.ERROR_RATE_HEADER, "0"))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void delaysRequests() throws Exception {
+        long start = System.nanoTime();
+        mvc.perform(get("/prices/vehicle/1").header(FaultInjectionFilter.LATENCY_HEADER, "fixed:150ms"))
+                .andExpect(status().isOk());
+        assertThat((System.nanoTime() - start) / 1_000_000).isGreaterThanOrEqualTo(150);
+    }
+
+    @Test
+    void streamsSlowBodiesIntact() throws Exception {
+        long start = System.nanoTime();
+        mvc.perform(get("/prices/vehicle/1").header(FaultInjectionFilter.BODY_RATE_HEADER, "100"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("vehicleId", is(1)));
+        // at least five 10-byte chunks, 100 ms apart
+        assertThat((System.nanoTime() - start) / 1_000_000).isGreaterThanOrEqualTo(400);
+    }
+
+    @Test
+    void rejectsMalformedFaultHeaders() throws Exception {
+        mvc.perform(get("/prices/vehicle/1").header(FaultInjectionFilter.LATENCY_HEADER, "sometimes"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/prices/vehicle/1").header(FaultInjectionFilter.ERROR_RATE_HEADER, "5"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/prices/vehicle/1").header(FaultInjectionFilter.ERROR_RATE_HEADER, "-1"))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/prices/vehicle/1").header(FaultInjectionFilter.ERROR_RATE_HEADER, "NaN"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void neverFaultsExcludedPaths() throws Exception {
+        mvc.perform(get("/actuator/health").header(FaultInjectionFilter.ERROR_RATE_HEADER, "1"))
+                .andExpect(status().isOk());
+        // the event stream never ends, so only check that it is excluded
+        FaultInjectionFilter filter = new FaultInjectionFilter(properties);
+        assertThat(filter.shouldNotFilter(new MockHttpServletRequest("GET", "/prices/events"))).isTrue();
+        assertThat(filter.shouldNotFilter(new MockHttpServletRequest("GET", "/prices/vehicle/1"))).isFalse();
+    }
+}
@@ -0,0 +1,44 @@
+package com.kpatil.pricing.faults;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LatencyDistributionTest {
+
+    private final Random random = new Random(7);
+
+    @Test
+    void samplesFixedAndUniformDelays() {
+        assertThat(LatencyDistribution.parse("none").sample(random)).isZero();
+        assertThat(LatencyDistribution.parse("fixed:50ms").sample(random)).isEqualTo(50);
+        LatencyDistribution uniform = LatencyDistribution.parse("uniform:10ms-20ms");
+        for (int i = 0; i < 1000; i++) {
+            assertThat(uniform.sample(random)).isBetween(10L, 20L);
+        }
+    }
+
+    @Test
+    void longTailMatchesMedianAndPercentile() {
+        LatencyDistribution longTail = LatencyDistribution.parse("long-tail:20ms-500ms");
+        long[] samples = new long[100_000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = longTail.sample(random);
+        }
+        Arrays.sort(samples);
+        assertThat(samples[samples.length / 2]).isBetween(18L, 22L);
+        assertThat(samples[samples.length * 99 / 100]).isBetween(430L, 580L);
+        assertThat(samples[samples.length - 1]).isLessThanOrEqualTo(5000L);
+    }
+
+    @Test
+    void rejectsMalformedSpecs() {
+        assertThatThrownBy(() -> LatencyDistribution.parse("uniform:20ms")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> LatencyDistribution.parse("gaussian:1ms-2ms"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,60 @@
+package com.kpatil.pricing.repository;
+
+import com.kpatil.pricing.entity.Price;
+import com.kpatil.pricing.entity.PriceHistory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+class PriceHistoryRepositoryTest {
+
+    @Autowired
+    private PriceRepository priceRepository;
+
+    @Autowired
+    private PriceHistoryRepository historyRepository;
+
+    @Test
+    void savingPriceAppendsHistory() {
+        Price price = priceRepository.save(new Price(null, "USD", BigDecimal.valueOf(10000), 500L));
+        price.setPrice(BigDecimal.valueOf(9500));
+        priceRepository.save(price);
+
+        List<PriceHistory> history = historyRepository.findByVehicleIdAndEffectiveAtBetweenOrderByEffectiveAtAsc(
+                500L, Instant.EPOCH, Instant.now());
+
+        assertThat(history).extracting(PriceHistory::getPrice)
+                .containsExactly(BigDecimal.valueOf(10000), BigDecimal.valueOf(9500));
+        assertThat(historyRepository.findFirstByVehicleIdOrderByEffectiveAtDesc(500L))
+                .hasValueSatisfying(latest -> assertThat(latest.getPrice()).isEqualTo(BigDecimal.valueOf(9500)));
+        assertThat(priceRepository.findByVehicleId(500L))
+                .hasValueSatisfying(current -> assertThat(current.getPrice()).isEqualTo(BigDecimal.valueOf(9500)));
+    }
+
+    @Test
+    void savingPricesTogetherAppendsHistoryOfEach() {
+        priceRepository.saveAll(List.of(
+                new Price(null, "USD", BigDecimal.valueOf(12000), 501L),
+                new Price(null, "USD", BigDecimal.valueOf(13000), 502L)));
+
+        assertThat(historyRepository.findFirstByVehicleIdOrderByEffectiveAtDesc(501L))
+                .hasValueSatisfying(latest -> assertThat(latest.getPrice()).isEqualTo(BigDecimal.valueOf(12000)));
+        assertThat(historyRepository.findFirstByVehicleIdOrderByEffectiveAtDesc(502L))
+                .hasValueSatisfying(latest -> assertThat(latest.getPrice()).isEqualTo(BigDecimal.valueOf(13000)));
+    }
+
+    @Test
+    void seededPricesHaveHistory() {
+        assertThat(historyRepository.findFirstByVehicleIdOrderByEffectiveAtDesc(1L)).isPresent();
+    }
+}
@@ -0,0 +1,145 @@
+package com.kpatil.pricing.snapshot;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Commits price changes on connections of their own, so that a change can
+ * commit after one with a higher history id has been read. Each test gets a
+ * fresh database, whose history ids have no gaps but those it makes.
+ */
+@ExtendWith(SpringExtension.class)
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class PriceSnapshotRefresherTest {
+
+    // vehicles the seed data does not price
+    private static final long SLOW_VEHICLE = 9001;
+    private static final long FAST_VEHICLE = 9002;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final PriceSnapshot snapshot = new PriceSnapshot(64);
+
+    @Test
+    void appliesChangesCommittedOutOfOrder() throws SQLException {
+        PriceSnapshotRefresher refresher = refresher(Duration.ofMinutes(1));
+
+        try (Connection slow = dataSource.getConnection()) {
+            slow.setAutoCommit(false);
+            change(slow, SLOW_VEHICLE, 10000);
+            try (Connection fast = dataSource.getConnection()) {
+                change(fast, FAST_VEHICLE, 20000);
+            }
+
+            refresher.refresh();
+            assertThat(snapshot.get(FAST_VEHICLE).getPrice()).isEqualByComparingTo("20000");
+            assertThat(snapshot.get(SLOW_VEHICLE)).isNull();
+            assertThat(gaps()).isEqualTo(1);
+
+            slow.commit();
+        }
+        refresher.refresh();
+
+        assertThat(snapshot.get(SLOW_VEHICLE).getPrice()).isEqualByComparingTo("10000");
+        assertThat(gaps()).isZero();
+    }
+
+    @Test
+    void appliesChangesInFlightAtStartup() throws SQLException {
+        try (Connection slow = dataSource.getConnection()) {
+            slow.setAutoCommit(false);
+            change(slow, SLOW_VEHICLE, 10000);
+            try (Connection fast = dataSource.getConnection()) {
+                change(fast, FAST_VEHICLE, 20000);
+            }
+            PriceSnapshotRefresher refresher = refresher(Duration.ofMinutes(1));
+            slow.commit();
+
+            refresher.refresh();
+        }
+
+        assertThat(snapshot.get(SLOW_VEHICLE).getPrice()).isEqualByComparingTo("10000");
+        assertThat(snapshot.get(FAST_VEHICLE).getPrice()).isEqualByComparingTo("20000");
+    }
+
+    @Test
+    void forgetsGapsOfRolledBackChangesAfterTheTimeout() throws SQLException {
+        PriceSnapshotRefresher refresher = refresher(Duration.ZERO);
+
+        try (Connection slow = dataSource.getConnection()) {
+            slow.setAutoCommit(false);
+            change(slow, SLOW_VEHICLE, 10000);
+            try (Connection fast = dataSource.getConnection()) {
+                change(fast, FAST_VEHICLE, 20000);
+            }
+            refresher.refresh();
+            assertThat(gaps()).isEqualTo(1);
+            slow.rollback();
+        }
+        // a gap is given up on once it is older than the timeout
+        long rolledBack = System.currentTimeMillis();
+        while (System.currentTimeMillis() <= rolledBack) {
+            Thread.onSpinWait();
+        }
+        refresher.refresh();
+
+        assertThat(gaps()).isZero();
+        assertThat(snapshot.get(SLOW_VEHICLE)).isNull();
+    }
+
+    private PriceSnapshotRefresher refresher(Duration gapTimeout) {
+        PriceSnapshotRefresher refresher = new PriceSnapshotRefresher(jdbcTemplate, snapshot, registry, 100,
+                gapTimeout);
+        refresher.afterPropertiesSet();
+        return refresher;
+    }
+
+    /**
+     * Changes a price the way PriceRepository does, the history row first.
+     */
+    private static void change(Connection connection, long vehicleId, long price) throws SQLException {
+        try (PreparedStatement history = connection.prepareStatement(
+                "INSERT INTO price_history (vehicle_id, currency, price, effective_at) VALUES (?, 'USD', ?, ?)");
+             PreparedStatement current = connection.prepareStatement(
+                     "INSERT INTO price (currency, price, vehicle_id) VALUES ('USD', ?, ?)")) {
+            history.setLong(1, vehicleId);
+            history.setBigDecimal(2, BigDecimal.valueOf(price));
+            history.setTimestamp(3, Timestamp.from(Instant.now()));
+            history.executeUpdate();
+            current.setBigDecimal(1, BigDecimal.valueOf(price));
+            current.setLong(2, vehicleId);
+            current.executeUpdate();
+        }
+    }
+
+    private double gaps() {
+        return registry.get("pricing.snapshot.gaps").gauge().value();
+    }
+}
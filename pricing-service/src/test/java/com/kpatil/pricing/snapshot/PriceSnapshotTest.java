@@ -0,0 +1,52 @@
+package com.kpatil.pricing.snapshot;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceSnapshotTest {
+
+    @Test
+    void storesAndUpdatesPrices() {
+        PriceSnapshot snapshot = new PriceSnapshot(4);
+        snapshot.put(1L, "USD", new BigDecimal("20000.50"));
+        snapshot.put(2L, "EUR", BigDecimal.valueOf(18000));
+        snapshot.put(1L, "USD", BigDecimal.valueOf(19000));
+
+        CurrentPrice first = snapshot.get(1L);
+        assertThat(first.getCurrency()).isEqualTo("USD");
+        assertThat(first.getPrice()).isEqualByComparingTo("19000");
+        assertThat(snapshot.get(2L).getCurrency()).isEqualTo("EUR");
+        assertThat(snapshot.get(3L)).isNull();
+        assertThat(snapshot.size()).isEqualTo(2);
+    }
+
+    @Test
+    void growsAndKeepsEntriesReachableAfterRemoval() {
+        PriceSnapshot snapshot = new PriceSnapshot(16);
+        for (long id = 1; id <= 10_000; id++) {
+            snapshot.put(id, id % 2 == 0 ? "USD" : "EUR", BigDecimal.valueOf(id));
+        }
+        for (long id = 1; id <= 10_000; id += 3) {
+            snapshot.remove(id);
+        }
+
+        for (long id = 1; id <= 10_000; id++) {
+            if (id % 3 == 1) {
+                assertThat(snapshot.get(id)).isNull();
+            } else {
+                assertThat(snapshot.get(id).getPrice()).isEqualByComparingTo(BigDecimal.valueOf(id));
+            }
+        }
+        assertThat(snapshot.size()).isEqualTo(10_000 - 3334);
+    }
+
+    @Test
+    void footprintIsBoundedBySlotCount() {
+        PriceSnapshot snapshot = new PriceSnapshot(1_000_000);
+        // 2^21 slots at 17 bytes each
+        assertThat(snapshot.estimatedBytes()).isLessThan(36L * 1024 * 1024);
+    }
+}
@@ -0,0 +1,163 @@
+#!/usr/bin/env bash
+#
+# Fast start for the Spring Boot services: runs a packaged service from its
+# unpacked jar with an AppCDS archive of the classes it loads while starting,
+# so that the JVM maps them in instead of loading and verifying them again.
+#
+#   util/fast-start.sh archive <module>            unpack target/*.jar, train and dump the archive
+#   util/fast-start.sh run <module> [args...]      run with the archive
+#   util/fast-start.sh benchmark [-n runs] [module...]
+#                                                  time to first request, java -jar against the archive
+#
+# <module> is eureka, pricing-service, boogle-maps or vehicles-api, or a path
+# to one. Package the module first (mvn package, or mvn -Pfast-start package
+# to also archive). The archive only holds for the JDK and jar it was dumped
+# with; rerun archive after either changes, or the JVM ignores it and starts
+# as usual. It is the static AppCDS of JDK 11: a class list recorded by a
+# training run that serves the first request, then dumped with -Xshare:dump.
+# JAVA_OPTS are passed to every JVM started, e.g. the --add-opens options the
+# Eureka libraries need on JDK 16 and newer (see eureka/pom.xml).
+
+set -euo pipefail
+
+ROOT="$(cd "$(dirname "${BASH_SOURCE[0]}")/.." && pwd)"
+MODULES=(eureka pricing-service boogle-maps vehicles-api)
+
+# The first request of each service, on its default port
+first_request() {
+    case "$1" in
+        eureka) echo "http://localhost:8761/eureka/apps" ;;
+        pricing-service) echo "http://localhost:8082/prices/vehicle/1" ;;
+        boogle-maps) echo "http://localhost:9191/maps?lat=40.730610&lon=-73.935242" ;;
+        vehicles-api) echo "http://localhost:8080/cars" ;;
+        *) echo "unknown module $1" >&2; exit 2 ;;
+    esac
+}
+
+module_dir() {
+    local dir
+    if [[ -d "$1" ]]; then dir="$(cd "$1" && pwd)"; else dir="$ROOT/$1"; fi
+    [[ -f "$dir/pom.xml" ]] || { echo "no module at $1" >&2; exit 2; }
+    echo "$dir"
+}
+
+jar_of() {
+    local jar
+    jar="$(ls "$1"/target/*.jar 2>/dev/null | grep -v -e '-sources.jar$' -e '-javadoc.jar$' | head -1 || true)"
+    [[ -n "$jar" ]] || { echo "no jar in $1/target, run mvn package first" >&2; exit 2; }
+    echo "$jar"
+}
+
+# Unpacks the jar into target/fast-start. CDS only archives classes from jar
+# files, so the application classes are packed into one of their own.
+unpack() {
+    local dir="$1" jar out
+    jar="$(jar_of "$dir")"
+    out="$dir/target/fast-start"
+    rm -rf "$out"
+    mkdir -p "$out/unpacked"
+    (cd "$out/unpacked" && unzip -q "$jar")
+    (cd "$out/unpacked/BOOT-INF/classes" && zip -qr "$out/application.jar" .)
+    # in the order of the jar, which decides between classes found in more than one library
+    {
+        echo "$out/application.jar"
+        unzip -Z1 "$jar" 'BOOT-INF/lib/*.jar' | sed "s|^|$out/unpacked/|"
+    } | paste -sd: - > "$out/classpath"
+    sed -n 's/^Start-Class: *//p' "$out/unpacked/META-INF/MANIFEST.MF" | tr -d '\r' > "$out/main-class"
+}
+
+# Waits for the url to answer 200, for at most a minute
+await() {
+    local url="$1" pid="$2"
+    for _ in $(seq 1 1200); do
+        kill -0 "$pid" 2>/dev/null || return 1
+        [[ "$(curl -s -o /dev/null -w '%{http_code}' "$url" || true)" == 200 ]] && return 0
+        sleep 0.05
+    done
+    return 1
+}
+
+stop() {
+    kill "$1" 2>/dev/null || true
+    wait "$1" 2>/dev/null || true
+}
+
+archive() {
+    local dir name out url pid
+    dir="$(module_dir "$1")"
+    name="$(basename "$dir")"
+    url="$(first_request "$name")"
+    out="$dir/target/fast-start"
+    unpack "$dir"
+    echo "Training $name until $url answers"
+    java ${JAVA_OPTS:-} -Xshare:off -XX:DumpLoadedClassList="$out/classes.lst" -cp "$(cat "$out/classpath")" \
+        "$(cat "$out/main-class")" > "$out/training.log" 2>&1 &
+    pid=$!
+    if ! await "$url" "$pid"; then
+        stop "$pid"
+        echo "$name did not answer, see $out/training.log" >&2
+        exit 1
+    fi
+    stop "$pid"
+    java ${JAVA_OPTS:-} -Xshare:dump -XX:SharedClassListFile="$out/classes.lst" -XX:SharedArchiveFile="$out/app.jsa" \
+        -cp "$(cat "$out/classpath")" > "$out/dump.log" 2>&1
+    echo "Archived $(wc -l < "$out/classes.lst") classes in $out/app.jsa"
+}
+
+run() {
+    local dir out
+    dir="$(module_dir "$1")"
+    shift
+    out="$dir/target/fast-start"
+    [[ -f "$out/app.jsa" ]] || { echo "no archive in $out, run archive first" >&2; exit 2; }
+    exec java ${JAVA_OPTS:-} -XX:SharedArchiveFile="$out/app.jsa" -cp "$(cat "$out/classpath")" "$(cat "$out/main-class")" "$@"
+}
+
+# Milliseconds from launching the command until the url answers
+time_to_first_request() {
+    local url="$1" start pid
+    shift
+    start=$(date +%s%N)
+    "$@" > /dev/null 2>&1 &
+    pid=$!
+    if ! await "$url" "$pid"; then
+        stop "$pid"
+        echo "-"
+        return
+    fi
+    echo $(( ($(date +%s%N) - start) / 1000000 ))
+    stop "$pid"
+}
+
+median() {
+    tr ' ' '\n' | grep -v '^-$' | sort -n | awk '{ v[NR] = $1 } END { print NR ? v[int((NR + 1) / 2)] : "-" }'
+}
+
+benchmark() {
+    local runs=3 modules dir name url jar out plain fast
+    if [[ "${1:-}" == "-n" ]]; then runs="$2"; shift 2; fi
+    modules=("$@")
+    [[ ${#modules[@]} -gt 0 ]] || modules=("${MODULES[@]}")
+    printf '%-16s %12s %12s   (median of %d, ms to first request)\n' module "java -jar" fast-start "$runs"
+    for module in "${modules[@]}"; do
+        dir="$(module_dir "$module")"
+        name="$(basename "$dir")"
+        url="$(first_request "$name")"
+        jar="$(jar_of "$dir")"
+        out="$dir/target/fast-start"
+        plain=()
+        fast=()
+        for _ in $(seq 1 "$runs"); do
+            plain+=("$(time_to_first_request "$url" java ${JAVA_OPTS:-} -jar "$jar")")
+            fast+=("$(time_to_first_request "$url" "$0" run "$dir")")
+        done
+        printf '%-16s %12s %12s\n' "$name" "$(echo "${plain[@]}" | median)" "$(echo "${fast[@]}" | median)"
+    done
+}
+
+case "${1:-}" in
+    archive) shift; archive "$@" ;;
+    run) shift; run "$@" ;;
+    benchmark) shift; benchmark "$@" ;;
+    *) sed -n '3,20p' "$0" | sed 's/^# \{0,1\}//'; exit 2 ;;
+esac
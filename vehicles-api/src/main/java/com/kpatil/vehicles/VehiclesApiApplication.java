@@ -1,22 +1,23 @@
 package com.kpatil.vehicles;
 
-import com.kpatil.vehicles.domain.manufacturer.Manufacturer;
-import com.kpatil.vehicles.domain.manufacturer.ManufacturerRepository;
+import com.kpatil.vehicles.client.balancer.LoadBalancers;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.web.reactive.function.client.WebClient;
 
 /**
- * Launches a Spring Boot application for the Vehicles API,
- * initializes the car manufacturers in the database,
+ * Launches a Spring Boot application for the Vehicles API
  * and launches web clients to communicate with maps and pricing.
+ * The car manufacturers are seeded by the db/migration scripts.
+ * Prices are cached and evicted by the price change events of the pricing service.
  */
 @SpringBootApplication
+@EnableCaching
 @EnableJpaAuditing
 public class VehiclesApiApplication {
 
@@ -24,22 +25,6 @@ public class VehiclesApiApplication {
         SpringApplication.run(VehiclesApiApplication.class, args);
     }
 
-    /**
-     * Initializes the car manufacturers available to the Vehicle API.
-     * @param repository where the manufacturer information persists.
-     * @return the car manufacturers to add to the related repository
-     */
-    @Bean
-    CommandLineRunner initDatabase(ManufacturerRepository repository) {
-        return args -> {
-            repository.save(new Manufacturer(100, "Audi"));
-            repository.save(new Manufacturer(101, "Chevrolet"));
-            repository.save(new Manufacturer(102, "Ford"));
-            repository.save(new Manufacturer(103, "BMW"));
-            repository.save(new Manufacturer(104, "Dodge"));
-        };
-    }
-
     @Bean
     public ModelMapper modelMapper() {
         return new ModelMapper();
@@ -47,22 +32,22 @@ public class VehiclesApiApplication {
 
     /**
      * Web Client for the maps (location) API
-     * @param endpoint where to communicate for the maps API
+     * @param endpoint where to communicate for the maps API, or lb://service-id
      * @return created maps endpoint
      */
     @Bean(name="maps")
-    public WebClient webClientMaps(@Value("${maps.endpoint}") String endpoint) {
-        return WebClient.create(endpoint);
+    public WebClient webClientMaps(@Value("${maps.endpoint}") String endpoint, LoadBalancers loadBalancers) {
+        return loadBalancers.webClient(endpoint);
     }
 
     /**
      * Web Client for the pricing API
-     * @param endpoint where to communicate for the pricing API
+     * @param endpoint where to communicate for the pricing API, or lb://service-id
      * @return created pricing endpoint
      */
     @Bean(name="pricing")
-    public WebClient webClientPricing(@Value("${pricing.endpoint}") String endpoint) {
-        return WebClient.create(endpoint);
+    public WebClient webClientPricing(@Value("${pricing.endpoint}") String endpoint, LoadBalancers loadBalancers) {
+        return loadBalancers.webClient(endpoint);
     }
 
 }
@@ -1,16 +1,28 @@
 package com.kpatil.vehicles.api;
 
 
+import com.kpatil.vehicles.domain.Condition;
 import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.service.CarFields;
 import com.kpatil.vehicles.service.CarService;
+import com.kpatil.vehicles.service.FacetFilter;
+import com.kpatil.vehicles.service.Facets;
+import com.kpatil.vehicles.service.PriceQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.PagedResources;
 import org.springframework.hateoas.Resource;
-import org.springframework.hateoas.Resources;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import javax.validation.Valid;
+import java.math.BigDecimal;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.List;
@@ -28,6 +40,8 @@ class CarController {
 
     private static final Logger logger = LoggerFactory.getLogger(CarController.class);
 
+    static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     private final CarService carService;
     private final CarResourceAssembler assembler;
 
@@ -37,30 +51,129 @@ class CarController {
     }
 
     /**
-     * Creates a list to store any vehicles.
+     * Lists the vehicles, optionally restricted to a price range and ordered
+     * by price. The listing is written to the response while it is read.
      *
+     * @param minPrice lowest price to include
+     * @param maxPrice highest price to include
+     * @param currency only include prices in this ISO currency
+     * @param sort     {@code id} (the default), {@code price}, {@code price,asc} or {@code price,desc}
+     * @param fields   comma separated fields to include in each vehicle, all by default
      * @return list of vehicles
      */
     @GetMapping
-    Resources<Resource<Car>> list() {
+    CarListing list(@RequestParam(required = false) BigDecimal minPrice,
+                    @RequestParam(required = false) BigDecimal maxPrice,
+                    @RequestParam(required = false) String currency,
+                    @RequestParam(required = false) String sort,
+                    @RequestParam(required = false) String fields) {
         logger.info("Received request to get all cars ...");
-        List<Resource<Car>> resources = carService.list().stream().map(assembler::toResource)
+        PriceQuery query = new PriceQuery(minPrice, maxPrice, currency, priceOrder(sort));
+        CarFields carFields = carFields(fields);
+        return new CarListing(
+                // without the template of the parameters that were not given
+                linkTo(methodOn(CarController.class).list(minPrice, maxPrice, currency, sort, fields)).withSelfRel()
+                        .expand(),
+                query, carFields, carService, assembler);
+    }
+
+    private static Sort.Direction priceOrder(String sort) {
+        if (sort == null || sort.equals("id")) {
+            return null;
+        }
+        if (sort.equals("price") || sort.equalsIgnoreCase("price,asc")) {
+            return Sort.Direction.ASC;
+        }
+        if (sort.equalsIgnoreCase("price,desc")) {
+            return Sort.Direction.DESC;
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported sort: " + sort);
+    }
+
+    private static CarFields carFields(String fields) {
+        CarFields carFields;
+        try {
+            carFields = CarFields.parse(fields);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        CarFieldsModule.select(carFields);
+        return carFields;
+    }
+
+    /**
+     * Counts the vehicles per manufacturer, condition, body, fuel type and
+     * model year, optionally only those with some of these values.
+     *
+     * @param manufacturer code of the manufacturer to count
+     * @param condition    condition to count
+     * @param body         body to count
+     * @param fuelType     fuel type to count
+     * @param modelYear    model year to count
+     * @return the counts of the matching vehicles
+     */
+    @GetMapping("/facets")
+    Facets facets(@RequestParam(required = false) Integer manufacturer,
+                  @RequestParam(required = false) Condition condition,
+                  @RequestParam(required = false) String body,
+                  @RequestParam(required = false) String fuelType,
+                  @RequestParam(required = false) Integer modelYear) {
+        logger.info("Received request to count cars ...");
+        return carService.facets(new FacetFilter(manufacturer, condition, body, fuelType, modelYear));
+    }
+
+    /**
+     * Searches the vehicles by free text over their model, manufacturer, body,
+     * engine, fuel type and color, best matches first.
+     *
+     * @param q      free text, such as {@code red diesel sedan}
+     * @param page   number of the page, from 0, starting within the first
+     *               {@value CarService#MAX_SEARCH_HITS} matches
+     * @param size   vehicles per page, at most {@value #MAX_SEARCH_PAGE_SIZE}
+     * @param fields comma separated fields to include in each vehicle, all by default
+     * @return the page of matching vehicles
+     */
+    @GetMapping("/search")
+    PagedResources<Resource<Car>> search(@RequestParam String q,
+                                         @RequestParam(defaultValue = "0") int page,
+                                         @RequestParam(defaultValue = "20") int size,
+                                         @RequestParam(required = false) String fields) {
+        logger.info("Received request to search cars ...");
+        if (page < 0 || size < 1 || size > MAX_SEARCH_PAGE_SIZE || (long) page * size >= CarService.MAX_SEARCH_HITS) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unsupported page " + page + " of size " + size
+                    + "; pages hold up to " + MAX_SEARCH_PAGE_SIZE + " of the first "
+                    + CarService.MAX_SEARCH_HITS + " matches");
+        }
+        CarFields carFields = carFields(fields);
+        Page<Car> cars = carService.search(q, PageRequest.of(page, size), carFields);
+        List<Resource<Car>> resources = cars.getContent().stream()
+                .map(car -> assembler.toResource(car, carFields))
                 .collect(Collectors.toList());
-        return new Resources<>(resources,
-                linkTo(methodOn(CarController.class).list()).withSelfRel());
+        PagedResources<Resource<Car>> result = new PagedResources<>(resources,
+                new PagedResources.PageMetadata(size, page, cars.getTotalElements(), cars.getTotalPages()),
+                linkTo(methodOn(CarController.class).search(q, page, size, fields)).withSelfRel());
+        if (cars.hasPrevious()) {
+            result.add(linkTo(methodOn(CarController.class).search(q, page - 1, size, fields)).withRel(Link.REL_PREVIOUS));
+        }
+        if (cars.hasNext()) {
+            result.add(linkTo(methodOn(CarController.class).search(q, page + 1, size, fields)).withRel(Link.REL_NEXT));
+        }
+        return result;
     }
 
     /**
      * Gets information of a specific car by ID.
      *
-     * @param id the id number of the given vehicle
+     * @param id     the id number of the given vehicle
+     * @param fields comma separated fields to include, all by default
      * @return all information for the requested vehicle
      */
     @GetMapping("/{id}")
-    Resource<Car> get(@PathVariable Long id) {
+    Resource<Car> get(@PathVariable Long id, @RequestParam(required = false) String fields) {
         logger.info("Received request to get car for id = " + id);
-        Car car = carService.findById(id);
-        return assembler.toResource(car);
+        CarFields carFields = carFields(fields);
+        Car car = carService.findById(id, carFields);
+        return assembler.toResource(car, carFields);
     }
 
     /**
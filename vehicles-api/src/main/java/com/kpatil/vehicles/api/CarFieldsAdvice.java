@@ -0,0 +1,25 @@
+package com.kpatil.vehicles.api;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJacksonValue;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.AbstractMappingJacksonResponseBodyAdvice;
+
+/**
+ * Hands the fields a request to CarController asked for to the Jackson
+ * write of its response, as the filters of CarFieldsModule. Listings apply
+ * their fields themselves and protobuf is not written by Jackson.
+ */
+@ControllerAdvice(assignableTypes = CarController.class)
+class CarFieldsAdvice extends AbstractMappingJacksonResponseBodyAdvice {
+
+    @Override
+    protected void beforeBodyWriteInternal(MappingJacksonValue bodyContainer, MediaType contentType,
+                                           MethodParameter returnType, ServerHttpRequest request,
+                                           ServerHttpResponse response) {
+        bodyContainer.setFilters(CarFieldsModule.filters(CarFieldsModule.selected()));
+    }
+}
@@ -0,0 +1,137 @@
+package com.kpatil.vehicles.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.AnnotatedClass;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.NopAnnotationIntrospector;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.FilterProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.kpatil.vehicles.domain.Location;
+import com.kpatil.vehicles.domain.Money;
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.domain.car.Details;
+import com.kpatil.vehicles.domain.manufacturer.Manufacturer;
+import com.kpatil.vehicles.service.CarFields;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Leaves out of a car the fields a request did not ask for. The classes of a
+ * car get a Jackson property filter id, and the fields are applied by a
+ * FilterProvider given to each write that selects some: CarListing writes
+ * them itself and CarFieldsAdvice hands them to the other responses of
+ * CarController. Without one, the filter id is not found and cars are
+ * written by the plain bean serializers. Being a bean, the module is
+ * registered with every ObjectMapper Spring Boot builds, and so with the
+ * HAL mappers of each format.
+ */
+@Component
+class CarFieldsModule extends SimpleModule {
+
+    static final String FILTER_ID = "carFields";
+
+    private static final String FIELDS_ATTRIBUTE = CarFieldsModule.class.getName() + ".fields";
+
+    // the path of the properties of each class within a car
+    private static final Map<Class<?>, String> PREFIXES = Map.of(
+            Car.class, "",
+            Details.class, "details.",
+            Manufacturer.class, "details.manufacturer.",
+            Location.class, "location.",
+            Money.class, "price.");
+
+    CarFieldsModule() {
+        super(CarFieldsModule.class.getSimpleName());
+    }
+
+    @Override
+    public void setupModule(SetupContext context) {
+        super.setupModule(context);
+        context.insertAnnotationIntrospector(new NopAnnotationIntrospector() {
+            @Override
+            public Object findFilterId(Annotated annotated) {
+                return annotated instanceof AnnotatedClass && prefix(annotated.getRawType()) != null
+                        ? FILTER_ID
+                        : null;
+            }
+        });
+        // writes that select no fields have no filter, and fall back to unfiltered serialization
+        ObjectMapper mapper = context.getOwner();
+        if (mapper.getSerializationConfig().getFilterProvider() == null) {
+            mapper.setFilterProvider(new SimpleFilterProvider().setFailOnUnknownId(false));
+        }
+    }
+
+    /**
+     * Writes only {@code fields} of the cars in the response to the current request.
+     */
+    static void select(CarFields fields) {
+        if (!fields.isAll()) {
+            RequestContextHolder.currentRequestAttributes()
+                    .setAttribute(FIELDS_ATTRIBUTE, fields, RequestAttributes.SCOPE_REQUEST);
+        }
+    }
+
+    /**
+     * Gets the fields the current request asked for, all outside of a request.
+     */
+    static CarFields selected() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        CarFields fields = request == null
+                ? null
+                : (CarFields) request.getAttribute(FIELDS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        return fields == null ? CarFields.all() : fields;
+    }
+
+    /**
+     * Gets the filters that write only {@code fields} of the cars.
+     *
+     * @return the filters, or null to write cars whole
+     */
+    static FilterProvider filters(CarFields fields) {
+        return fields.isAll() ? null : new SimpleFilterProvider().addFilter(FILTER_ID, new FieldsFilter(fields));
+    }
+
+    private static String prefix(Class<?> type) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            String prefix = PREFIXES.get(current);
+            if (prefix != null) {
+                return prefix;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Includes the properties within the fields, for the duration of a
+     * single write, remembering what it decided for each property.
+     */
+    private static final class FieldsFilter extends SimpleBeanPropertyFilter {
+
+        private final CarFields fields;
+        private final Map<PropertyWriter, Boolean> included = new HashMap<>();
+
+        private FieldsFilter(CarFields fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        protected boolean include(PropertyWriter writer) {
+            return included.computeIfAbsent(writer, this::isSelected);
+        }
+
+        private boolean isSelected(PropertyWriter writer) {
+            AnnotatedMember member = writer.getMember();
+            String prefix = member == null ? null : prefix(member.getDeclaringClass());
+            return prefix == null || fields.includes(prefix + writer.getName());
+        }
+    }
+}
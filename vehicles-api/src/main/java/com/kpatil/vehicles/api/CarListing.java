@@ -0,0 +1,48 @@
+package com.kpatil.vehicles.api;
+
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.service.CarFields;
+import com.kpatil.vehicles.service.CarService;
+import com.kpatil.vehicles.service.PriceQuery;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resource;
+
+import java.util.function.Consumer;
+
+/**
+ * A listing of cars that is only read when it is written to the response,
+ * by CarListingHttpMessageConverter, so that each car is serialized as soon
+ * as it has been enriched instead of after the whole listing. Not final, as
+ * the controller method returning it is also used to build links.
+ */
+class CarListing {
+
+    private final Link self;
+    private final PriceQuery query;
+    private final CarFields fields;
+    private final CarService carService;
+    private final CarResourceAssembler assembler;
+
+    CarListing(Link self, PriceQuery query, CarFields fields, CarService carService, CarResourceAssembler assembler) {
+        this.self = self;
+        this.query = query;
+        this.fields = fields;
+        this.carService = carService;
+        this.assembler = assembler;
+    }
+
+    Link getSelf() {
+        return self;
+    }
+
+    CarFields getFields() {
+        return fields;
+    }
+
+    /**
+     * Reads the listing, handing each car over as a resource with its links.
+     */
+    void forEach(Consumer<Resource<Car>> action) {
+        carService.forEach(query, fields, car -> action.accept(assembler.toResource(car, fields)));
+    }
+}
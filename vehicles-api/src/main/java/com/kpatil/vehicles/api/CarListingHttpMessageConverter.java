@@ -0,0 +1,143 @@
+package com.kpatil.vehicles.api;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.kpatil.vehicles.config.BinaryFormatsConfig;
+import com.kpatil.vehicles.domain.car.Car;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.core.DelegatingRelProvider;
+import org.springframework.hateoas.hal.Jackson2HalModule;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes a CarListing as HAL while it is being read, in the same shape as
+ * {@code Resources<Resource<Car>>}: the cars under {@code _embedded.carList},
+ * each serialized by the HAL ObjectMapper of the requested format, then the
+ * {@code _links} of the listing. Memory use no longer depends on the number of
+ * cars, and the first cars reach the client before the last ones are read.
+ * <p>
+ * Once the first bytes are sent, a failure can only cut the response short.
+ */
+@Component
+class CarListingHttpMessageConverter extends AbstractHttpMessageConverter<CarListing> {
+
+    private final ObjectProvider<RequestMappingHandlerAdapter> handlerAdapter;
+    private final String rel;
+
+    private final Map<MediaType, HalWriter> writers = new ConcurrentHashMap<>();
+
+    CarListingHttpMessageConverter(ObjectProvider<RequestMappingHandlerAdapter> handlerAdapter,
+                                   DelegatingRelProvider relProvider) {
+        super(StandardCharsets.UTF_8, MediaTypes.HAL_JSON, MediaType.APPLICATION_JSON,
+                BinaryFormatsConfig.SMILE, BinaryFormatsConfig.CBOR);
+        this.handlerAdapter = handlerAdapter;
+        this.rel = relProvider.getCollectionResourceRelFor(Car.class);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return CarListing.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected CarListing readInternal(Class<? extends CarListing> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("Car listings are not read", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(CarListing listing, HttpOutputMessage outputMessage) throws IOException {
+        MediaType contentType = outputMessage.getHeaders().getContentType();
+        HalWriter halWriter = writers.computeIfAbsent(
+                new MediaType(contentType.getType(), contentType.getSubtype()), this::halWriter);
+        ObjectMapper halObjectMapper = halWriter.mapper;
+        ObjectWriter writer = listing.getFields().isAll()
+                ? halWriter.writer
+                : halWriter.writer.with(CarFieldsModule.filters(listing.getFields()));
+        JsonGenerator generator = halObjectMapper.getFactory()
+                .createGenerator(outputMessage.getBody(), JsonEncoding.UTF8);
+        generator.writeStartObject();
+        boolean[] embedded = {false};
+        try {
+            listing.forEach(resource -> {
+                try {
+                    if (!embedded[0]) {
+                        generator.writeObjectFieldStart("_embedded");
+                        generator.writeArrayFieldStart(rel);
+                        embedded[0] = true;
+                    }
+                    writer.writeValue(generator, resource);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (embedded[0]) {
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+        // the links as the HAL module renders them for Resources
+        generator.writeFieldName("_links");
+        halObjectMapper.writeTree(generator,
+                halObjectMapper.valueToTree(new Resources<>(Collections.emptyList(), listing.getSelf())).get("_links"));
+        generator.writeEndObject();
+        generator.flush();
+    }
+
+    /**
+     * Finds the ObjectMapper set up for rendering resources as HAL in the
+     * given format. They are not beans, only the object mappers of their
+     * message converters: the JSON one registered by Spring HATEOAS and the
+     * binary ones of BinaryFormatsConfig.
+     */
+    private HalWriter halWriter(MediaType mediaType) {
+        for (HttpMessageConverter<?> converter : handlerAdapter.getObject().getMessageConverters()) {
+            if (converter instanceof AbstractJackson2HttpMessageConverter
+                    && converter.getSupportedMediaTypes().stream().anyMatch(type -> type.includes(mediaType))) {
+                ObjectMapper mapper = ((AbstractJackson2HttpMessageConverter) converter).getObjectMapper();
+                if (Jackson2HalModule.isAlreadyRegisteredIn(mapper)) {
+                    return new HalWriter(mapper);
+                }
+            }
+        }
+        throw new IllegalStateException("No HAL message converter is registered for " + mediaType);
+    }
+
+    private static final class HalWriter {
+
+        private final ObjectMapper mapper;
+        private final ObjectWriter writer;
+
+        private HalWriter(ObjectMapper mapper) {
+            this.mapper = mapper;
+            // leave flushing to the response buffer rather than flushing after each car
+            this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.kpatil.vehicles.api;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Int32Value;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.kpatil.vehicles.api.proto.CarProtos;
+import com.kpatil.vehicles.domain.Condition;
+import com.kpatil.vehicles.domain.Location;
+import com.kpatil.vehicles.domain.Money;
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.domain.car.Details;
+import com.kpatil.vehicles.domain.manufacturer.Manufacturer;
+import com.kpatil.vehicles.service.CarFields;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resource;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Reads and writes cars as application/x-protobuf, following the messages of
+ * car.proto: a car resource as a Car, a listing as a CarList written one car
+ * at a time, and the body of a new or updated car as a Car. The fields a
+ * request asked for are selected as in JSON, the fields of the messages
+ * being named as their JSON counterparts.
+ */
+@Component
+class CarProtobufHttpMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    static final MediaType PROTOBUF = new MediaType("application", "x-protobuf");
+
+    private static final Descriptors.FieldDescriptor LINKS =
+            CarProtos.Car.getDescriptor().findFieldByNumber(CarProtos.Car.LINKS_FIELD_NUMBER);
+
+    CarProtobufHttpMessageConverter() {
+        super(PROTOBUF);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Car.class.isAssignableFrom(clazz)
+                || Resource.class.isAssignableFrom(clazz)
+                || CarListing.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return Car.class.isAssignableFrom(clazz) && canRead(mediaType);
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        try {
+            return toCar(CarProtos.Car.parseFrom(inputMessage.getBody()));
+        } catch (InvalidProtocolBufferException | IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException("Invalid car: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object body, HttpOutputMessage outputMessage) throws IOException {
+        if (body instanceof CarListing) {
+            writeListing((CarListing) body, outputMessage);
+        } else if (body instanceof Resource && ((Resource<?>) body).getContent() instanceof Car) {
+            Resource<?> resource = (Resource<?>) body;
+            select(toMessage((Car) resource.getContent(), resource.getLinks()), CarFieldsModule.selected())
+                    .writeTo(outputMessage.getBody());
+        } else {
+            throw new HttpMessageNotWritableException("No protobuf message for " + body.getClass().getName());
+        }
+    }
+
+    private static void writeListing(CarListing listing, HttpOutputMessage outputMessage) throws IOException {
+        CodedOutputStream output = CodedOutputStream.newInstance(outputMessage.getBody());
+        CarFields fields = listing.getFields();
+        try {
+            listing.forEach(resource -> {
+                try {
+                    output.writeMessage(CarProtos.CarList.CARS_FIELD_NUMBER,
+                            select(toMessage(resource.getContent(), resource.getLinks()), fields));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        output.writeMessage(CarProtos.CarList.LINKS_FIELD_NUMBER, toMessage(listing.getSelf()));
+        output.flush();
+    }
+
+    private static CarProtos.Car select(CarProtos.Car car, CarFields fields) {
+        if (fields.isAll()) {
+            return car;
+        }
+        CarProtos.Car.Builder message = car.toBuilder();
+        select(message, "", fields);
+        return message.build();
+    }
+
+    /**
+     * Clears the fields of a message that are not among {@code fields}, and
+     * those of the messages of car.proto nested in it.
+     */
+    private static void select(Message.Builder message, String prefix, CarFields fields) {
+        for (Descriptors.FieldDescriptor field : message.getDescriptorForType().getFields()) {
+            String path = prefix + (field.equals(LINKS) ? CarFields.LINKS : field.getJsonName());
+            if (!fields.includes(path)) {
+                message.clearField(field);
+            } else if (field.getJavaType() == Descriptors.FieldDescriptor.JavaType.MESSAGE && !field.isRepeated()
+                    && field.getMessageType().getFile() == CarProtos.getDescriptor() && message.hasField(field)) {
+                select(message.getFieldBuilder(field), path + ".", fields);
+            }
+        }
+    }
+
+    static CarProtos.Car toMessage(Car car, List<Link> links) {
+        CarProtos.Car.Builder message = CarProtos.Car.newBuilder();
+        if (car.getId() != null) {
+            message.setId(car.getId());
+        }
+        if (car.getCreatedAt() != null) {
+            message.setCreatedAt(car.getCreatedAt().toString());
+        }
+        if (car.getModifiedAt() != null) {
+            message.setModifiedAt(car.getModifiedAt().toString());
+        }
+        if (car.getCondition() != null) {
+            message.setCondition(CarProtos.Condition.valueOf(car.getCondition().name()));
+        }
+        if (car.getDetails() != null) {
+            message.setDetails(toMessage(car.getDetails()));
+        }
+        if (car.getLocation() != null) {
+            message.setLocation(toMessage(car.getLocation()));
+        }
+        Money price = car.getPrice();
+        if (price != null) {
+            message.setPrice(CarProtos.Money.newBuilder()
+                    .setAmount(price.getAmount().toPlainString())
+                    .setCurrency(price.getCurrency()));
+        }
+        for (Link link : links) {
+            message.addLinks(toMessage(link));
+        }
+        return message.build();
+    }
+
+    private static CarProtos.Details toMessage(Details details) {
+        CarProtos.Details.Builder message = CarProtos.Details.newBuilder();
+        if (details.getBody() != null) {
+            message.setBody(details.getBody());
+        }
+        if (details.getModel() != null) {
+            message.setModel(details.getModel());
+        }
+        Manufacturer manufacturer = details.getManufacturer();
+        if (manufacturer != null) {
+            CarProtos.Manufacturer.Builder manufacturerMessage = CarProtos.Manufacturer.newBuilder();
+            if (manufacturer.getCode() != null) {
+                manufacturerMessage.setCode(manufacturer.getCode());
+            }
+            if (manufacturer.getName() != null) {
+                manufacturerMessage.setName(manufacturer.getName());
+            }
+            message.setManufacturer(manufacturerMessage);
+        }
+        if (details.getNumberOfDoors() != null) {
+            message.setNumberOfDoors(Int32Value.of(details.getNumberOfDoors()));
+        }
+        if (details.getFuelType() != null) {
+            message.setFuelType(details.getFuelType());
+        }
+        if (details.getEngine() != null) {
+            message.setEngine(details.getEngine());
+        }
+        if (details.getMileage() != null) {
+            message.setMileage(Int32Value.of(details.getMileage()));
+        }
+        if (details.getModelYear() != null) {
+            message.setModelYear(Int32Value.of(details.getModelYear()));
+        }
+        if (details.getProductionYear() != null) {
+            message.setProductionYear(Int32Value.of(details.getProductionYear()));
+        }
+        if (details.getExternalColor() != null) {
+            message.setExternalColor(details.getExternalColor());
+        }
+        return message.build();
+    }
+
+    private static CarProtos.Location toMessage(Location location) {
+        CarProtos.Location.Builder message = CarProtos.Location.newBuilder();
+        if (location.getLat() != null) {
+            message.setLat(location.getLat());
+        }
+        if (location.getLon() != null) {
+            message.setLon(location.getLon());
+        }
+        if (location.getAddress() != null) {
+            message.setAddress(location.getAddress());
+        }
+        if (location.getCity() != null) {
+            message.setCity(location.getCity());
+        }
+        if (location.getState() != null) {
+            message.setState(location.getState());
+        }
+        if (location.getZip() != null) {
+            message.setZip(location.getZip());
+        }
+        return message.build();
+    }
+
+    private static CarProtos.Link toMessage(Link link) {
+        return CarProtos.Link.newBuilder()
+                .setRel(link.getRel())
+                .setHref(link.getHref())
+                .setTemplated(link.isTemplated())
+                .build();
+    }
+
+    /**
+     * Reads a car as it would be posted in JSON: fields left out are null.
+     *
+     * @throws IllegalArgumentException if a date, price or condition is invalid
+     */
+    static Car toCar(CarProtos.Car message) {
+        Car car = new Car();
+        if (message.getId() != 0) {
+            car.setId(message.getId());
+        }
+        if (!message.getCreatedAt().isEmpty()) {
+            car.setCreatedAt(parseDateTime(message.getCreatedAt()));
+        }
+        if (!message.getModifiedAt().isEmpty()) {
+            car.setModifiedAt(parseDateTime(message.getModifiedAt()));
+        }
+        if (message.getCondition() != CarProtos.Condition.CONDITION_UNSPECIFIED) {
+            car.setCondition(Condition.valueOf(message.getCondition().name()));
+        }
+        if (message.hasDetails()) {
+            car.setDetails(toDetails(message.getDetails()));
+        }
+        if (message.hasLocation()) {
+            car.setLocation(toLocation(message.getLocation()));
+        }
+        if (message.hasPrice()) {
+            car.setPrice(new Money(new BigDecimal(message.getPrice().getAmount()),
+                    message.getPrice().getCurrency()));
+        }
+        return car;
+    }
+
+    private static Details toDetails(CarProtos.Details message) {
+        Details details = new Details();
+        details.setBody(emptyToNull(message.getBody()));
+        details.setModel(emptyToNull(message.getModel()));
+        if (message.hasManufacturer()) {
+            details.setManufacturer(new Manufacturer(message.getManufacturer().getCode(),
+                    emptyToNull(message.getManufacturer().getName())));
+        }
+        if (message.hasNumberOfDoors()) {
+            details.setNumberOfDoors(message.getNumberOfDoors().getValue());
+        }
+        details.setFuelType(emptyToNull(message.getFuelType()));
+        details.setEngine(emptyToNull(message.getEngine()));
+        if (message.hasMileage()) {
+            details.setMileage(message.getMileage().getValue());
+        }
+        if (message.hasModelYear()) {
+            details.setModelYear(message.getModelYear().getValue());
+        }
+        if (message.hasProductionYear()) {
+            details.setProductionYear(message.getProductionYear().getValue());
+        }
+        details.setExternalColor(emptyToNull(message.getExternalColor()));
+        return details;
+    }
+
+    private static Location toLocation(CarProtos.Location message) {
+        Location location = new Location(message.getLat(), message.getLon());
+        location.setAddress(emptyToNull(message.getAddress()));
+        location.setCity(emptyToNull(message.getCity()));
+        location.setState(emptyToNull(message.getState()));
+        location.setZip(emptyToNull(message.getZip()));
+        return location;
+    }
+
+    private static LocalDateTime parseDateTime(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+}
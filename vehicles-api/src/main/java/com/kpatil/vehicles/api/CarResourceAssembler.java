@@ -1,23 +1,70 @@
 package com.kpatil.vehicles.api;
 
 import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.service.CarFields;
+import org.springframework.hateoas.Link;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.ResourceAssembler;
 import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.*;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
 
 /**
- * Maps the CarController to the Car class using HATEOAS
+ * Maps the CarController to the Car class using HATEOAS.
+ * <p>
+ * The links are resolved once per request and kept as a request attribute:
+ * every car shares the same {@code cars} link, the untemplated base URI of
+ * the controller, and its self link is appended to that URI instead of being
+ * built by a proxied {@code methodOn} call.
  */
 @Component
 public class CarResourceAssembler implements ResourceAssembler<Car, Resource<Car>> {
 
+    private static final String LINKS_ATTRIBUTE = CarResourceAssembler.class.getName() + ".links";
+
     @Override
     public Resource<Car> toResource(Car car) {
-        return new Resource<>(car,
-                linkTo(methodOn(CarController.class).get(car.getId())).withSelfRel(),
-                linkTo(methodOn(CarController.class).list()).withRel("cars"));
+        CarLinks links = links();
+        return new Resource<>(car, links.self(car.getId()), links.cars);
+    }
+
+    /**
+     * Maps a car to a resource, without links unless {@code fields} include them.
+     */
+    public Resource<Car> toResource(Car car, CarFields fields) {
+        return fields.includes(CarFields.LINKS) ? toResource(car) : new Resource<>(car);
+    }
+
+    private static CarLinks links() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null) {
+            return new CarLinks();
+        }
+        CarLinks links = (CarLinks) request.getAttribute(LINKS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (links == null) {
+            links = new CarLinks();
+            request.setAttribute(LINKS_ATTRIBUTE, links, RequestAttributes.SCOPE_REQUEST);
+        }
+        return links;
+    }
+
+    /**
+     * Links relative to the base URI of the current request.
+     */
+    private static final class CarLinks {
+
+        private final String base;
+        private final Link cars;
+
+        private CarLinks() {
+            this.base = linkTo(CarController.class).toUri().toString();
+            this.cars = new Link(base, "cars");
+        }
 
+        private Link self(Long id) {
+            return new Link(base + "/" + id);
+        }
     }
 }
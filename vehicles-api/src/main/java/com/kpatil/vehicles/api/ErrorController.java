@@ -1,15 +1,19 @@
 package com.kpatil.vehicles.api;
 
+import com.fasterxml.jackson.databind.exc.InvalidDefinitionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageConversionException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -40,5 +44,23 @@ public class ErrorController extends ResponseEntityExceptionHandler {
         ApiError apiError = new ApiError(DEFAULT_VALIDATION_FAILED_MESSAGE, errors);
         return handleExceptionInternal(ex, apiError, headers, HttpStatus.BAD_REQUEST, request);
     }
-}
 
+    /**
+     * Answers a 400 when a value of the request body is rejected by its
+     * constructor, e.g. a Money amount with too many decimal places. Jackson
+     * reports these as type definition errors, which would otherwise be a 500.
+     */
+    @ExceptionHandler(HttpMessageConversionException.class)
+    protected ResponseEntity<Object> handleRejectedValue(HttpMessageConversionException ex, WebRequest request) {
+        Throwable cause = ex.getCause();
+        if (!(cause instanceof InvalidDefinitionException) || !(cause.getCause() instanceof IllegalArgumentException)) {
+            throw ex;
+        }
+
+        logger.warn("Handling rejected value ...");
+
+        ApiError apiError = new ApiError(DEFAULT_VALIDATION_FAILED_MESSAGE,
+                Collections.singletonList(cause.getCause().getMessage()));
+        return handleExceptionInternal(ex, apiError, new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+    }
+}
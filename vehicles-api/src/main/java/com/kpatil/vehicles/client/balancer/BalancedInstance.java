@@ -0,0 +1,87 @@
+package com.kpatil.vehicles.client.balancer;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks the load and health of one instance of a service: requests in
+ * flight, a moving average of response latency, and passive outlier ejection
+ * after consecutive failures.
+ */
+public class BalancedInstance {
+
+    // Weight of the latest sample in the latency moving average
+    private static final double LATENCY_WEIGHT = 0.2;
+
+    // A failure counts as at least this slow, so that an instance failing
+    // fast does not look like the quickest one
+    private static final long FAILURE_LATENCY_NANOS = 1_000_000_000L;
+
+    private final URI uri;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile double averageLatencyNanos;
+    private volatile long ejectedUntilNanos;
+    private volatile int ejections;
+
+    BalancedInstance(URI uri) {
+        this.uri = uri;
+    }
+
+    public URI getUri() {
+        return uri;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public double getAverageLatencyNanos() {
+        return averageLatencyNanos;
+    }
+
+    boolean isEjected(long nowNanos) {
+        return nowNanos - ejectedUntilNanos < 0;
+    }
+
+    void started() {
+        outstanding.incrementAndGet();
+    }
+
+    void finished() {
+        outstanding.decrementAndGet();
+    }
+
+    void succeeded(long latencyNanos) {
+        consecutiveFailures.set(0);
+        ejections = 0;
+        double average = averageLatencyNanos;
+        averageLatencyNanos = average == 0
+                ? latencyNanos
+                : average + LATENCY_WEIGHT * (latencyNanos - average);
+    }
+
+    /**
+     * Records a failure and ejects the instance once {@code threshold}
+     * failures happened in a row. Each ejection since the last success lasts
+     * twice as long as the previous one, up to {@code maxEjectionNanos}.
+     *
+     * @return true if this failure ejected the instance
+     */
+    boolean failed(long nowNanos, int threshold, long ejectionNanos, long maxEjectionNanos) {
+        averageLatencyNanos = Math.max(2 * averageLatencyNanos, FAILURE_LATENCY_NANOS);
+        if (consecutiveFailures.incrementAndGet() < threshold) {
+            return false;
+        }
+        consecutiveFailures.set(0);
+        long duration = Math.min(ejectionNanos << Math.min(ejections, 20), maxEjectionNanos);
+        ejections++;
+        ejectedUntilNanos = nowNanos + duration;
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return uri.toString();
+    }
+}
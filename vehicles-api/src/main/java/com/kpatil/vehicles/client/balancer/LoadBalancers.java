@@ -0,0 +1,132 @@
+package com.kpatil.vehicles.client.balancer;
+
+import com.kpatil.vehicles.config.LoadBalancerProperties;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * Creates WebClients for the downstream services. An endpoint of the form
+ * {@code lb://service-id} is resolved through service discovery and balanced
+ * by a ServiceLoadBalancer; any other endpoint is used as a fixed base URL.
+ */
+public class LoadBalancers {
+
+    public static final String SCHEME = "lb://";
+
+    /**
+     * Request attribute holding a {@code Set<URI>} shared by the attempts of
+     * one call, such as a request and its hedge. Each attempt adds the
+     * instance it was sent to, and later attempts go to other instances.
+     */
+    public static final String TRIED_INSTANCES = LoadBalancers.class.getName() + ".triedInstances";
+
+    private final DiscoveryClient discoveryClient;
+    private final LoadBalancerProperties properties;
+    private final LongSupplier nanoClock;
+    private final Map<String, ServiceLoadBalancer> balancers = new ConcurrentHashMap<>();
+
+    public LoadBalancers(DiscoveryClient discoveryClient, LoadBalancerProperties properties) {
+        this(discoveryClient, properties, System::nanoTime);
+    }
+
+    LoadBalancers(DiscoveryClient discoveryClient, LoadBalancerProperties properties, LongSupplier nanoClock) {
+        this.discoveryClient = discoveryClient;
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+    }
+
+    public static boolean isBalanced(String endpoint) {
+        return endpoint.startsWith(SCHEME);
+    }
+
+    /**
+     * Gets the balancer of a service.
+     */
+    public ServiceLoadBalancer forService(String serviceId) {
+        return balancers.computeIfAbsent(serviceId,
+                id -> new ServiceLoadBalancer(id, discoveryClient, properties, nanoClock));
+    }
+
+    /**
+     * Creates a WebClient for an endpoint.
+     *
+     * @param endpoint a base URL or lb://service-id
+     */
+    public WebClient webClient(String endpoint) {
+        if (!isBalanced(endpoint)) {
+            return WebClient.create(endpoint);
+        }
+        String serviceId = endpoint.substring(SCHEME.length());
+        return WebClient.builder()
+                .baseUrl("http://" + serviceId)
+                .filter(filter(forService(serviceId)))
+                .build();
+    }
+
+    /**
+     * Sends each request to the instance chosen by the balancer and reports
+     * its outcome back: connection errors and 5xx responses count as failures.
+     */
+    ExchangeFilterFunction filter(ServiceLoadBalancer balancer) {
+        return (request, next) -> Mono.defer(() -> {
+            Set<URI> tried = triedInstances(request);
+            BalancedInstance instance = balancer.choose(tried);
+            tried.add(instance.getUri());
+            ClientRequest routed = ClientRequest.from(request)
+                    .url(route(request.url(), instance.getUri()))
+                    .build();
+            long start = nanoClock.getAsLong();
+            instance.started();
+            // Released before the caller sees the outcome, so that its next
+            // request already counts this one as finished
+            AtomicBoolean inFlight = new AtomicBoolean(true);
+            Runnable release = () -> {
+                if (inFlight.compareAndSet(true, false)) {
+                    instance.finished();
+                }
+            };
+            return next.exchange(routed)
+                    .doOnSuccess(response -> {
+                        release.run();
+                        if (response != null && response.statusCode().is5xxServerError()) {
+                            balancer.recordFailure(instance);
+                        } else {
+                            balancer.recordSuccess(instance, nanoClock.getAsLong() - start);
+                        }
+                    })
+                    .doOnError(error -> {
+                        release.run();
+                        balancer.recordFailure(instance);
+                    })
+                    .doOnCancel(release);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<URI> triedInstances(ClientRequest request) {
+        return request.attribute(TRIED_INSTANCES)
+                .map(tried -> (Set<URI>) tried)
+                .orElseGet(HashSet::new);
+    }
+
+    private static URI route(URI requested, URI instance) {
+        return UriComponentsBuilder.fromUri(requested)
+                .scheme(instance.getScheme())
+                .host(instance.getHost())
+                .port(instance.getPort())
+                .build(true)
+                .toUri();
+    }
+}
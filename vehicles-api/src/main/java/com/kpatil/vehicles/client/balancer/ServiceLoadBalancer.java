@@ -0,0 +1,155 @@
+package com.kpatil.vehicles.client.balancer;
+
+import com.kpatil.vehicles.config.LoadBalancerProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.LongSupplier;
+
+/**
+ * Chooses among the discovered instances of one service with the power of two
+ * choices: two instances are drawn at random and the one with fewer requests
+ * in flight wins, ties going to the lower average latency. This steers load
+ * away from slow or overloaded instances without the herding of always
+ * picking the least loaded one.
+ * <p>
+ * Ejected instances are skipped until their ejection expires. If every
+ * instance is ejected, all of them are used again rather than failing.
+ */
+public class ServiceLoadBalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServiceLoadBalancer.class);
+
+    private final String serviceId;
+    private final DiscoveryClient discoveryClient;
+    private final LoadBalancerProperties properties;
+    private final LongSupplier nanoClock;
+
+    private volatile List<BalancedInstance> instances = Collections.emptyList();
+    private volatile long refreshedAtNanos;
+    private volatile boolean refreshed;
+
+    ServiceLoadBalancer(String serviceId, DiscoveryClient discoveryClient, LoadBalancerProperties properties,
+                        LongSupplier nanoClock) {
+        this.serviceId = serviceId;
+        this.discoveryClient = discoveryClient;
+        this.properties = properties;
+        this.nanoClock = nanoClock;
+    }
+
+    public String getServiceId() {
+        return serviceId;
+    }
+
+    /**
+     * Gets the currently known instances, re-reading discovery when due.
+     */
+    public List<BalancedInstance> getInstances() {
+        long now = nanoClock.getAsLong();
+        if (!refreshed || now - refreshedAtNanos >= properties.getRefreshInterval().toNanos()) {
+            refresh(now);
+        }
+        return instances;
+    }
+
+    /**
+     * Chooses the instance for the next request.
+     *
+     * @throws IllegalStateException if no instance of the service is known
+     */
+    public BalancedInstance choose() {
+        return choose(Collections.emptySet());
+    }
+
+    /**
+     * Chooses the instance for the next request, avoiding the given instances
+     * unless no other healthy one is left.
+     *
+     * @param avoid URIs of instances already tried for the same call
+     * @throws IllegalStateException if no instance of the service is known
+     */
+    public BalancedInstance choose(Collection<URI> avoid) {
+        List<BalancedInstance> all = getInstances();
+        long now = nanoClock.getAsLong();
+        List<BalancedInstance> healthy = new ArrayList<>(all.size());
+        List<BalancedInstance> candidates = new ArrayList<>(all.size());
+        for (BalancedInstance instance : all) {
+            if (!instance.isEjected(now)) {
+                healthy.add(instance);
+                if (!avoid.contains(instance.getUri())) {
+                    candidates.add(instance);
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            candidates = healthy.isEmpty() ? all : healthy;
+        }
+        if (candidates.isEmpty()) {
+            throw new IllegalStateException("No instances of " + serviceId + " are registered");
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        return lessLoaded(candidates.get(first), candidates.get(second));
+    }
+
+    private static BalancedInstance lessLoaded(BalancedInstance a, BalancedInstance b) {
+        int byOutstanding = Integer.compare(a.getOutstanding(), b.getOutstanding());
+        if (byOutstanding != 0) {
+            return byOutstanding < 0 ? a : b;
+        }
+        return a.getAverageLatencyNanos() <= b.getAverageLatencyNanos() ? a : b;
+    }
+
+    void recordSuccess(BalancedInstance instance, long latencyNanos) {
+        instance.succeeded(latencyNanos);
+    }
+
+    void recordFailure(BalancedInstance instance) {
+        boolean ejected = instance.failed(nanoClock.getAsLong(), properties.getFailureThreshold(),
+                properties.getEjectionTime().toNanos(), properties.getMaxEjectionTime().toNanos());
+        if (ejected) {
+            logger.warn("Ejecting {} instance {} after {} consecutive failures",
+                    serviceId, instance, properties.getFailureThreshold());
+        }
+    }
+
+    private synchronized void refresh(long now) {
+        if (refreshed && now - refreshedAtNanos < properties.getRefreshInterval().toNanos()) {
+            return;
+        }
+        try {
+            Map<URI, BalancedInstance> known = new HashMap<>();
+            for (BalancedInstance instance : instances) {
+                known.put(instance.getUri(), instance);
+            }
+            List<BalancedInstance> updated = new ArrayList<>();
+            for (ServiceInstance discovered : discoveryClient.getInstances(serviceId)) {
+                URI uri = URI.create(discovered.getUri().toString());
+                // Keep the statistics of instances that are still registered
+                updated.add(known.getOrDefault(uri, new BalancedInstance(uri)));
+            }
+            instances = Collections.unmodifiableList(updated);
+        } catch (RuntimeException e) {
+            logger.warn("Could not refresh instances of {}, keeping {}", serviceId, instances, e);
+        }
+        refreshedAtNanos = now;
+        refreshed = true;
+    }
+}
@@ -0,0 +1,42 @@
+package com.kpatil.vehicles.client.hedge;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caps hedges to a share of the calls: every call earns {@code ratio} of a
+ * token, up to {@code maxTokens}, and every hedge spends one. When a
+ * dependency slows down as a whole the budget runs dry instead of doubling
+ * its load.
+ */
+class HedgeBudget {
+
+    // Tokens are counted in thousandths to stay in integer arithmetic
+    private static final long SCALE = 1000;
+
+    private final long deposit;
+    private final long max;
+    private final AtomicLong balance = new AtomicLong();
+
+    HedgeBudget(double ratio, int maxTokens) {
+        if (ratio < 0 || ratio > 1) {
+            throw new IllegalArgumentException("Hedge budget ratio must be between 0 and 1: " + ratio);
+        }
+        this.deposit = Math.round(ratio * SCALE);
+        this.max = maxTokens * SCALE;
+    }
+
+    void deposit() {
+        balance.accumulateAndGet(deposit, (current, amount) -> Math.min(max, current + amount));
+    }
+
+    boolean withdraw() {
+        long current;
+        do {
+            current = balance.get();
+            if (current < SCALE) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - SCALE));
+        return true;
+    }
+}
@@ -0,0 +1,144 @@
+package com.kpatil.vehicles.client.hedge;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Sends hedged requests: when a call has not answered within the configured
+ * percentile of recent attempt latencies, a second attempt is started and
+ * whichever answers first is used, the other one being cancelled. Hedges are
+ * limited by a HedgeBudget so that they stay a small share of the traffic.
+ * <p>
+ * Metrics, tagged with the client name: {@code hedge.attempts} (latency of
+ * single attempts, with the hedging percentile), {@code hedge.sent},
+ * {@code hedge.won} (the hedge answered first) and {@code hedge.denied}
+ * (a hedge was due but the budget was spent).
+ */
+public class Hedger {
+
+    // Attempts to observe before the percentile is trusted
+    private static final long MIN_SAMPLES = 50;
+
+    private static final long DELAY_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long minDelayNanos;
+    private final HedgeBudget budget;
+    private final Timer attempts;
+    private final Counter sent;
+    private final Counter won;
+    private final Counter denied;
+
+    private volatile long delayNanos = -1;
+    private volatile long delayComputedAtNanos;
+
+    /**
+     * @param name client name used as the metrics tag
+     * @param enabled false to only measure attempt latency
+     * @param percentile attempt latency percentile after which to hedge, e.g. 0.95
+     * @param minDelay shortest wait before hedging
+     * @param budgetRatio largest share of calls that may be hedged, e.g. 0.05
+     * @param maxBurst most hedges that may be sent back to back after a quiet spell
+     */
+    public Hedger(String name, MeterRegistry registry, boolean enabled, double percentile, Duration minDelay,
+                  double budgetRatio, int maxBurst) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.minDelayNanos = minDelay.toNanos();
+        this.budget = new HedgeBudget(budgetRatio, maxBurst);
+        this.attempts = Timer.builder("hedge.attempts")
+                .tag("client", name)
+                .publishPercentiles(percentile)
+                .distributionStatisticExpiry(Duration.ofMinutes(1))
+                .distributionStatisticBufferLength(3)
+                .register(registry);
+        this.sent = registry.counter("hedge.sent", "client", name);
+        this.won = registry.counter("hedge.won", "client", name);
+        this.denied = registry.counter("hedge.denied", "client", name);
+    }
+
+    /**
+     * Runs a call, hedging it if it is slow.
+     *
+     * @param attempt creates one attempt of the call; invoked once, or twice
+     *                when hedged, possibly concurrently
+     */
+    public <T> Mono<T> hedge(Supplier<Mono<T>> attempt) {
+        Mono<Outcome<T>> primary = timed(Mono.defer(attempt), false);
+        long delay = enabled ? delayNanos() : -1;
+        if (delay < 0) {
+            return primary.map(outcome -> outcome.value);
+        }
+        budget.deposit();
+        Mono<Outcome<T>> backup = Mono.delay(Duration.ofNanos(delay))
+                .then(Mono.defer(() -> {
+                    if (!budget.withdraw()) {
+                        denied.increment();
+                        return Mono.never();
+                    }
+                    sent.increment();
+                    // A failed hedge leaves the call to the first attempt
+                    return timed(Mono.defer(attempt), true).onErrorResume(e -> Mono.never());
+                }));
+        return Mono.first(primary, backup)
+                .doOnNext(outcome -> {
+                    if (outcome.hedge) {
+                        won.increment();
+                    }
+                })
+                .map(outcome -> outcome.value);
+    }
+
+    /**
+     * Gets the current wait before hedging, or -1 while too few attempts
+     * have been observed.
+     */
+    long delayNanos() {
+        long now = System.nanoTime();
+        if (delayNanos < 0 || now - delayComputedAtNanos >= DELAY_REFRESH_NANOS) {
+            delayComputedAtNanos = now;
+            delayNanos = computeDelayNanos();
+        }
+        return delayNanos;
+    }
+
+    private long computeDelayNanos() {
+        if (attempts.count() < MIN_SAMPLES) {
+            return -1;
+        }
+        ValueAtPercentile[] values = attempts.takeSnapshot().percentileValues();
+        long observed = values.length == 0 ? 0 : (long) values[0].value(TimeUnit.NANOSECONDS);
+        return Math.max(minDelayNanos, observed);
+    }
+
+    private <T> Mono<Outcome<T>> timed(Mono<T> attempt, boolean hedge) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            // An attempt cancelled because the other one won took at least
+            // this long, which keeps slow attempts in the percentile
+            return attempt
+                    .doOnSuccess(value -> attempts.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnCancel(() -> attempts.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .map(value -> new Outcome<>(value, hedge));
+        });
+    }
+
+    private static final class Outcome<T> {
+
+        private final T value;
+        private final boolean hedge;
+
+        private Outcome(T value, boolean hedge) {
+            this.value = value;
+            this.hedge = hedge;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.kpatil.vehicles.client.maps;
+
+import java.util.Objects;
+
+/**
+ * Declares a latitude and longitude sent to the Maps batch endpoint, and the
+ * key of its address in the {@value MapsClient#CACHE} cache.
+ */
+class Coordinate {
+
+    private final Double lat;
+    private final Double lon;
+
+    Coordinate(Double lat, Double lon) {
+        this.lat = lat;
+        this.lon = lon;
+    }
+
+    public Double getLat() {
+        return lat;
+    }
+
+    public Double getLon() {
+        return lon;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Coordinate)) {
+            return false;
+        }
+        Coordinate that = (Coordinate) o;
+        return Objects.equals(lat, that.lat) && Objects.equals(lon, that.lon);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(lat, lon);
+    }
+}
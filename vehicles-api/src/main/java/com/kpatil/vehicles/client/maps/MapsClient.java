@@ -2,54 +2,243 @@ package com.kpatil.vehicles.client.maps;
 
 import com.kpatil.vehicles.domain.Location;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
 /**
  * Implements a class to interface with the Maps Client for location data.
+ * <p>
+ * Lookups use the Maps batch endpoint. Single lookups made concurrently by
+ * different requests are collapsed: while another lookup is in flight, the
+ * first one opens a window of {@code maps.batch.window}, and every lookup
+ * arriving within it is sent in the same batch, which is sent early once it
+ * holds {@code maps.batch.max-size} coordinates. A lookup with no other in
+ * flight, or any lookup with a window of zero, is sent on its own at once.
+ * Every call to the Maps service gives up after {@code maps.timeout}.
+ * <p>
+ * Addresses are cached by coordinate in the {@value #CACHE} cache, so only
+ * the first lookup of a location reaches the Maps service. Failed lookups are
+ * not cached.
  */
 @Component
-public class MapsClient {
+public class MapsClient implements DisposableBean {
+
+    public static final String CACHE = "addresses";
 
     private static final Logger log = LoggerFactory.getLogger(MapsClient.class);
 
+    private static final ParameterizedTypeReference<List<Address>> ADDRESS_LIST =
+            new ParameterizedTypeReference<List<Address>>() {
+            };
+
     private final WebClient client;
     private final ModelMapper mapper;
+    private final Cache cache;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final Duration timeout;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Object lock = new Object();
+    private List<PendingLookup> pending = new ArrayList<>();
 
-    public MapsClient(WebClient maps,
-            ModelMapper mapper) {
+    public MapsClient(@Qualifier("maps") WebClient maps,
+            ModelMapper mapper,
+            CacheManager cacheManager,
+            @Value("${maps.batch.window:2ms}") Duration window,
+            @Value("${maps.batch.max-size:64}") int maxBatchSize,
+            @Value("${maps.timeout:2s}") Duration timeout) {
         this.client = maps;
         this.mapper = mapper;
+        this.cache = cacheManager.getCache(CACHE);
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.timeout = timeout;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "maps-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
      * Gets an address from the Maps client, given latitude and longitude.
      * @param location An object containing "lat" and "lon" of location
      * @return An updated location including street, city, state and zip,
-     *   or an exception message noting the Maps service is down
+     *   or the location unchanged if the Maps service is down
      */
     public Location getAddress(Location location) {
-        try {
-            Address address = client
-                    .get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/maps/")
-                            .queryParam("lat", location.getLat())
-                            .queryParam("lon", location.getLon())
-                            .build()
-                    )
-                    .retrieve().bodyToMono(Address.class).block();
-
-            mapper.map(Objects.requireNonNull(address), location);
-
+        if (fromCache(location)) {
             return location;
+        }
+        inFlight.incrementAndGet();
+        try {
+            Address address = windowNanos > 0
+                    ? collapse(location).get(windowNanos + timeout.toNanos(), TimeUnit.NANOSECONDS)
+                    : fetch(List.of(location)).get(0);
+            located(location, address);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while looking up an address");
         } catch (Exception e) {
-            log.warn("Map service is down");
-            return location;
+            log.warn("Map service is down: {}", e.toString());
+        } finally {
+            inFlight.decrementAndGet();
+        }
+        return location;
+    }
+
+    /**
+     * Gets the addresses of many locations in as few requests as the batch
+     * size allows.
+     * @param locations Objects containing "lat" and "lon"
+     * @return The same locations, updated with street, city, state and zip,
+     *   or unchanged if the Maps service is down
+     */
+    public List<Location> getAddresses(List<Location> locations) {
+        List<Location> missing = new ArrayList<>();
+        for (Location location : locations) {
+            if (!fromCache(location)) {
+                missing.add(location);
+            }
+        }
+        for (int from = 0; from < missing.size(); from += maxBatchSize) {
+            List<Location> batch = missing.subList(from, Math.min(from + maxBatchSize, missing.size()));
+            try {
+                List<Address> addresses = fetch(batch);
+                for (int i = 0; i < batch.size(); i++) {
+                    located(batch.get(i), addresses.get(i));
+                }
+            } catch (Exception e) {
+                log.warn("Map service is down: {}", e.toString());
+                break;
+            }
+        }
+        return locations;
+    }
+
+    private boolean fromCache(Location location) {
+        Address address = cache.get(coordinate(location), Address.class);
+        if (address == null) {
+            return false;
+        }
+        mapper.map(address, location);
+        return true;
+    }
+
+    private void located(Location location, Address address) {
+        mapper.map(Objects.requireNonNull(address), location);
+        cache.put(coordinate(location), address);
+    }
+
+    private static Coordinate coordinate(Location location) {
+        return new Coordinate(location.getLat(), location.getLon());
+    }
+
+    private CompletableFuture<Address> collapse(Location location) {
+        PendingLookup lookup = new PendingLookup(location);
+        List<PendingLookup> full = null;
+        synchronized (lock) {
+            List<PendingLookup> batch = pending;
+            batch.add(lookup);
+            if (batch.size() == 1 && inFlight.get() <= 1) {
+                // nothing to collapse with, so the window would only add latency
+                pending = new ArrayList<>();
+                full = batch;
+            } else if (batch.size() >= maxBatchSize) {
+                pending = new ArrayList<>();
+                full = batch;
+            } else if (batch.size() == 1) {
+                scheduler.schedule(() -> flush(batch), windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            send(full);
+        }
+        return lookup.address;
+    }
+
+    private void flush(List<PendingLookup> batch) {
+        synchronized (lock) {
+            // The batch may already have been sent when it filled up
+            if (pending != batch) {
+                return;
+            }
+            pending = new ArrayList<>();
+        }
+        send(batch);
+    }
+
+    private void send(List<PendingLookup> batch) {
+        List<Coordinate> coordinates = new ArrayList<>(batch.size());
+        for (PendingLookup lookup : batch) {
+            coordinates.add(coordinate(lookup.location));
+        }
+        request(coordinates).subscribe(addresses -> {
+            if (addresses.size() != batch.size()) {
+                IllegalStateException error = new IllegalStateException(
+                        "Expected " + batch.size() + " addresses but got " + addresses.size());
+                batch.forEach(lookup -> lookup.address.completeExceptionally(error));
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).address.complete(addresses.get(i));
+            }
+        }, error -> batch.forEach(lookup -> lookup.address.completeExceptionally(error)));
+    }
+
+    private List<Address> fetch(List<Location> locations) {
+        List<Coordinate> coordinates = new ArrayList<>(locations.size());
+        for (Location location : locations) {
+            coordinates.add(coordinate(location));
+        }
+        return request(coordinates).block();
+    }
+
+    private Mono<List<Address>> request(List<Coordinate> coordinates) {
+        return client
+                .post()
+                .uri("/maps/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .syncBody(coordinates)
+                .retrieve()
+                .bodyToMono(ADDRESS_LIST)
+                .timeout(timeout);
+    }
+
+    @Override
+    public void destroy() {
+        scheduler.shutdownNow();
+    }
+
+    private static final class PendingLookup {
+
+        private final Location location;
+        private final CompletableFuture<Address> address = new CompletableFuture<>();
+
+        private PendingLookup(Location location) {
+            this.location = location;
         }
     }
 }
@@ -0,0 +1,150 @@
+package com.kpatil.vehicles.client.prices;
+
+import com.kpatil.vehicles.client.balancer.BalancedInstance;
+import com.kpatil.vehicles.client.balancer.LoadBalancers;
+import com.kpatil.vehicles.config.LoadBalancerProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Subscribes to the price change events of the pricing service and evicts the
+ * changed vehicles from the {@value PriceClient#CACHE} cache, so that cached
+ * prices can be kept for a long time without going stale.
+ * <p>
+ * Every pricing instance only publishes the changes it made, so with an
+ * lb://service-id endpoint one stream is kept open per discovered instance.
+ * Changes made while a stream is down are lost, so the whole cache is
+ * cleared when a stream fails and again when an instance confirms a new
+ * subscription.
+ */
+@Component
+@ConditionalOnProperty(name = "pricing.events.enabled", havingValue = "true")
+public class PriceChangeListener implements SmartLifecycle {
+
+    private static final Logger logger = LoggerFactory.getLogger(PriceChangeListener.class);
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> EVENT_TYPE =
+            new ParameterizedTypeReference<ServerSentEvent<String>>() {
+            };
+
+    private final String endpoint;
+    private final LoadBalancers loadBalancers;
+    private final Duration refreshInterval;
+    private final Cache cache;
+    private final Duration reconnectDelay;
+    private final Duration maxReconnectDelay;
+    private final Map<URI, Disposable> streams = new ConcurrentHashMap<>();
+
+    private volatile Disposable discovery;
+    private volatile boolean running;
+
+    public PriceChangeListener(@Value("${pricing.endpoint}") String endpoint,
+                               LoadBalancers loadBalancers,
+                               LoadBalancerProperties loadBalancerProperties,
+                               CacheManager cacheManager,
+                               @Value("${pricing.events.reconnect-delay:1s}") Duration reconnectDelay,
+                               @Value("${pricing.events.max-reconnect-delay:30s}") Duration maxReconnectDelay) {
+        this.endpoint = endpoint;
+        this.loadBalancers = loadBalancers;
+        this.refreshInterval = loadBalancerProperties.getRefreshInterval();
+        this.cache = cacheManager.getCache(PriceClient.CACHE);
+        this.reconnectDelay = reconnectDelay;
+        this.maxReconnectDelay = maxReconnectDelay;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (LoadBalancers.isBalanced(endpoint)) {
+            String serviceId = endpoint.substring(LoadBalancers.SCHEME.length());
+            discovery = Flux.interval(Duration.ZERO, refreshInterval)
+                    .map(tick -> loadBalancers.forService(serviceId).getInstances().stream()
+                            .map(BalancedInstance::getUri)
+                            .collect(Collectors.toList()))
+                    .subscribe(this::follow);
+        } else {
+            follow(List.of(URI.create(endpoint)));
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        Disposable current = discovery;
+        if (current != null) {
+            current.dispose();
+            discovery = null;
+        }
+        streams.values().forEach(Disposable::dispose);
+        streams.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private synchronized void follow(Collection<URI> instances) {
+        if (!running) {
+            return;
+        }
+        Set<URI> gone = new HashSet<>(streams.keySet());
+        gone.removeAll(instances);
+        for (URI instance : gone) {
+            streams.remove(instance).dispose();
+        }
+        for (URI instance : instances) {
+            streams.computeIfAbsent(instance, this::subscribe);
+        }
+    }
+
+    private Disposable subscribe(URI instance) {
+        return WebClient.create(instance.toString())
+                .get()
+                .uri("/prices/events")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .retrieve()
+                .bodyToFlux(EVENT_TYPE)
+                .doOnNext(event -> apply(instance, event))
+                .doOnError(error -> disconnected(instance, error))
+                .repeatWhen(completed -> completed.delayElements(reconnectDelay))
+                .retryBackoff(Long.MAX_VALUE, reconnectDelay, maxReconnectDelay)
+                .subscribe();
+    }
+
+    private void apply(URI instance, ServerSentEvent<String> event) {
+        if ("ready".equals(event.event())) {
+            logger.info("Subscribed to price changes of {}, clearing cached prices", instance);
+            cache.clear();
+        } else if ("price".equals(event.event()) && event.id() != null) {
+            cache.evict(Long.valueOf(event.id()));
+        }
+    }
+
+    private void disconnected(URI instance, Throwable error) {
+        logger.warn("Price change stream of {} failed, clearing cached prices: {}", instance, error.toString());
+        cache.clear();
+    }
+}
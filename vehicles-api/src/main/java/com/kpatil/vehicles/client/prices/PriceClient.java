@@ -1,57 +1,74 @@
 package com.kpatil.vehicles.client.prices;
 
+import com.kpatil.vehicles.client.balancer.LoadBalancers;
+import com.kpatil.vehicles.client.hedge.Hedger;
+import com.kpatil.vehicles.domain.Money;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Implements a class to interface with the Pricing Client for price data.
+ * Prices are cached in the {@value #CACHE} cache and evicted by the
+ * PriceChangeListener when the pricing service reports a change.
+ * Slow calls are hedged with a second request to another instance.
  */
 @Component
 public class PriceClient {
 
+    public static final String CACHE = "prices";
+
     private static final Logger logger =
             LoggerFactory.getLogger(PriceClient.class);
 
     private final WebClient client;
+    private final Hedger hedger;
 
-    public PriceClient(WebClient pricing) {
+    public PriceClient(WebClient pricing, Hedger pricingHedger) {
         this.client = pricing;
+        this.hedger = pricingHedger;
     }
 
     // In a real-world application we'll want to add some resilience
     // to this method with retries/CB/failover capabilities
-    // We may also want to cache the results so we don't need to
-    // do a request every time
 
     /**
      * Gets a vehicle price from the pricing client, given vehicle ID.
      *
      * @param vehicleId ID number of the vehicle for which to get the price
-     * @return Currency and price of the requested vehicle,
-     * error message that the vehicle ID is invalid, or note that the
-     * service is down.
+     * @return Amount and currency of the requested vehicle, or null if the
+     * vehicle has no price or the service is down. Null is not cached.
      */
-    public String getPrice(Long vehicleId) {
+    @Cacheable(cacheNames = CACHE, unless = "#result == null")
+    public Money getPrice(Long vehicleId) {
         logger.info("Looking for price for vehicleId = " + vehicleId);
         try {
-            Price price = client
+            Set<URI> tried = ConcurrentHashMap.newKeySet();
+            Price price = hedger.hedge(() -> client
                     .get()
                     .uri(uriBuilder -> uriBuilder
-                            .path("/prices")
+                            .path("/prices/vehicle")
                             .pathSegment(vehicleId.toString())
                             .build()
                     )
-                    .retrieve().bodyToMono(Price.class).block();
+                    .attribute(LoadBalancers.TRIED_INSTANCES, tried)
+                    .retrieve().bodyToMono(Price.class)
+            ).block();
 
-            assert price != null;
-            return String.format("%s %s", price.getCurrency(), price.getPrice());
+            if (price != null) {
+                return new Money(price.getPrice(), price.getCurrency());
+            }
 
         } catch (Exception e) {
             logger.error("Unexpected error retrieving price for vehicle {}",
                     vehicleId, e);
         }
-        return "(consult price)";
+        return null;
     }
 }
@@ -0,0 +1,84 @@
+package com.kpatil.vehicles.config;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.hateoas.RelProvider;
+import org.springframework.hateoas.core.DelegatingRelProvider;
+import org.springframework.hateoas.hal.CurieProvider;
+import org.springframework.hateoas.hal.HalConfiguration;
+import org.springframework.hateoas.hal.Jackson2HalModule;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Registers Smile and CBOR message converters that render resources as HAL,
+ * like the JSON one Spring HATEOAS registers, so that a client asking for a
+ * binary format gets the same document as in JSON. They replace the default
+ * Smile and CBOR converters, which know nothing about HAL.
+ */
+@Configuration
+public class BinaryFormatsConfig {
+
+    public static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+    public static final MediaType CBOR = new MediaType("application", "cbor");
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter halSmileHttpMessageConverter(
+            ApplicationContext context, ObjectProvider<Jackson2ObjectMapperBuilderCustomizer> customizers,
+            DelegatingRelProvider relProvider,
+            ObjectProvider<CurieProvider> curieProvider,
+            @Qualifier("linkRelationMessageSource") MessageSourceAccessor linkRelations,
+            ObjectProvider<HalConfiguration> halConfiguration) {
+        ObjectMapper mapper = customize(Jackson2ObjectMapperBuilder.smile(), context, customizers).build();
+        return new MappingJackson2SmileHttpMessageConverter(halObjectMapper(mapper, relProvider,
+                curieProvider.getIfAvailable(), linkRelations, halConfiguration.getIfAvailable(HalConfiguration::new)));
+    }
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter halCborHttpMessageConverter(
+            ApplicationContext context, ObjectProvider<Jackson2ObjectMapperBuilderCustomizer> customizers,
+            DelegatingRelProvider relProvider,
+            ObjectProvider<CurieProvider> curieProvider,
+            @Qualifier("linkRelationMessageSource") MessageSourceAccessor linkRelations,
+            ObjectProvider<HalConfiguration> halConfiguration) {
+        ObjectMapper mapper = customize(Jackson2ObjectMapperBuilder.cbor(), context, customizers).build();
+        return new MappingJackson2CborHttpMessageConverter(halObjectMapper(mapper, relProvider,
+                curieProvider.getIfAvailable(), linkRelations, halConfiguration.getIfAvailable(HalConfiguration::new)));
+    }
+
+    /**
+     * Applies the spring.jackson properties and other customizations of the
+     * JSON ObjectMapper to the builder of a binary one.
+     */
+    private static Jackson2ObjectMapperBuilder customize(Jackson2ObjectMapperBuilder builder, ApplicationContext context,
+                                                         ObjectProvider<Jackson2ObjectMapperBuilderCustomizer> customizers) {
+        builder.applicationContext(context);
+        customizers.orderedStream().forEach(customizer -> customizer.customize(builder));
+        return builder;
+    }
+
+    /**
+     * Sets up a mapper to render resources as HAL, as Spring HATEOAS does for
+     * its JSON message converter.
+     *
+     * @return the given mapper
+     */
+    public static ObjectMapper halObjectMapper(ObjectMapper mapper, RelProvider relProvider,
+                                               CurieProvider curieProvider, MessageSourceAccessor linkRelations,
+                                               HalConfiguration halConfiguration) {
+        mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        mapper.registerModule(new Jackson2HalModule());
+        mapper.setHandlerInstantiator(new Jackson2HalModule.HalHandlerInstantiator(
+                relProvider, curieProvider, linkRelations, halConfiguration));
+        return mapper;
+    }
+}
@@ -0,0 +1,161 @@
+package com.kpatil.vehicles.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+/**
+ * Lets Tomcat honour server.compression.min-response-size. Tomcat decides on
+ * compression when the response is committed and only knows its size if the
+ * whole body is still in the response buffer by then, but the message
+ * converters flush after writing, which commits every response without a
+ * size and so compresses even the smallest ones. This filter holds back the
+ * flushes of a response until it has reached the minimum size or has been
+ * committed by a full buffer: a smaller body is sent with its length when
+ * the request completes, and a larger one, such as a streamed listing, is
+ * flushed as its writer asks.
+ */
+@Component
+@ConditionalOnProperty(prefix = "server.compression", name = "enabled")
+public class CompressionThresholdFilter extends OncePerRequestFilter {
+
+    private final long minResponseSize;
+
+    public CompressionThresholdFilter(
+            @Value("${server.compression.min-response-size:2KB}") DataSize minResponseSize) {
+        this.minResponseSize = minResponseSize.toBytes();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        DeferredFlushResponse deferred = new DeferredFlushResponse(response, minResponseSize);
+        chain.doFilter(request, deferred);
+        deferred.finish();
+    }
+
+    private static final class DeferredFlushResponse extends HttpServletResponseWrapper {
+
+        private final long minResponseSize;
+
+        private DeferredFlushOutputStream outputStream;
+        private PrintWriter writer;
+
+        private DeferredFlushResponse(HttpServletResponse response, long minResponseSize) {
+            super(response);
+            this.minResponseSize = minResponseSize;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException("getWriter() has already been called for this response");
+            }
+            return outputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (outputStream != null) {
+                    throw new IllegalStateException("getOutputStream() has already been called for this response");
+                }
+                writer = new PrintWriter(new OutputStreamWriter(outputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                // hands the characters still held by the writer to the stream
+                writer.flush();
+            }
+            if (outputStream == null || outputStream.mayFlush()) {
+                super.flushBuffer();
+            }
+        }
+
+        /**
+         * Writes out what the writer still holds, the container sending the
+         * rest when the request completes.
+         */
+        private void finish() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+
+        private DeferredFlushOutputStream outputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new DeferredFlushOutputStream(super.getOutputStream(), this);
+            }
+            return outputStream;
+        }
+    }
+
+    private static final class DeferredFlushOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private final DeferredFlushResponse response;
+
+        private long written;
+
+        private DeferredFlushOutputStream(ServletOutputStream delegate, DeferredFlushResponse response) {
+            this.delegate = delegate;
+            this.response = response;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            written++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            written += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (mayFlush()) {
+                delegate.flush();
+            }
+        }
+
+        // below the minimum size, Tomcat still has to learn the length of the body
+        private boolean mayFlush() {
+            return written >= response.minResponseSize || response.isCommitted();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.kpatil.vehicles.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks at startup that every connection pool is sized consistently with the
+ * Tomcat request thread pool. A pool larger than the thread count only holds
+ * idle connections, while a much smaller one makes request threads queue for
+ * connections and hit the connection timeout under load.
+ */
+@Component
+public class ConnectionPoolValidator implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPoolValidator.class);
+
+    static final int MAX_THREADS_PER_CONNECTION = 10;
+
+    private final ServerProperties serverProperties;
+    private final ObjectProvider<DataSource> dataSources;
+
+    public ConnectionPoolValidator(ServerProperties serverProperties, ObjectProvider<DataSource> dataSources) {
+        this.serverProperties = serverProperties;
+        this.dataSources = dataSources;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        int maxThreads = serverProperties.getTomcat().getMaxThreads();
+        dataSources.forEach(dataSource -> pools(dataSource).forEach(pool -> validate(pool, maxThreads)));
+    }
+
+    void validate(HikariDataSource pool, int maxThreads) {
+        int poolSize = pool.getMaximumPoolSize();
+        if (poolSize > maxThreads) {
+            throw new IllegalStateException(String.format(
+                    "Connection pool '%s' allows %d connections but Tomcat only runs %d request threads; "
+                            + "lower spring.datasource.hikari.maximum-pool-size or raise server.tomcat.max-threads",
+                    pool.getPoolName(), poolSize, maxThreads));
+        }
+        if (maxThreads > poolSize * MAX_THREADS_PER_CONNECTION) {
+            logger.warn("Connection pool '{}' has {} connections for {} request threads; "
+                    + "requests may queue for connections under load", pool.getPoolName(), poolSize, maxThreads);
+        }
+        logger.info("Connection pool '{}': max {} connections, {} ms connection timeout, {} request threads",
+                pool.getPoolName(), poolSize, pool.getConnectionTimeout(), maxThreads);
+    }
+
+    private static List<HikariDataSource> pools(DataSource dataSource) {
+        List<HikariDataSource> pools = new ArrayList<>();
+        if (dataSource instanceof HikariDataSource) {
+            pools.add((HikariDataSource) dataSource);
+        } else if (dataSource instanceof DelegatingDataSource) {
+            pools.addAll(pools(((DelegatingDataSource) dataSource).getTargetDataSource()));
+        } else if (dataSource instanceof ReplicaRoutingDataSource) {
+            ((ReplicaRoutingDataSource) dataSource).getPools().forEach(pool -> pools.addAll(pools(pool)));
+        }
+        return pools;
+    }
+}
@@ -0,0 +1,96 @@
+package com.kpatil.vehicles.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured datasource with one that sends read-only
+ * transactions to the configured replicas. The reads routed are the
+ * CarRepository finders, each of which runs in a read-only transaction of
+ * its own; CarService does not wrap its reads in a transaction, so that no
+ * connection is held while cars are priced and located. Writes pin their
+ * client's reads to the primary through ReadYourWritesFilter.
+ * Every pool gets the spring.datasource.hikari.* settings and pool metrics.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "vehicles.datasource.routing", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(DataSourceRoutingProperties.class)
+public class DataSourceRoutingConfig {
+
+    private final Binder binder;
+    private final MeterRegistry meterRegistry;
+
+    public DataSourceRoutingConfig(Environment environment, ObjectProvider<MeterRegistry> meterRegistry) {
+        this.binder = Binder.get(environment);
+        this.meterRegistry = meterRegistry.getIfAvailable();
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(DataSourceProperties properties, DataSourceRoutingProperties routing) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        configurePool(primary, "primary");
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (int i = 0; i < routing.getReplicas().size(); i++) {
+            HikariDataSource replica = replicaDataSource(routing.getReplicas().get(i));
+            configurePool(replica, "replica-" + i);
+            replicas.add(replica);
+        }
+
+        ReplicaRoutingDataSource router = new ReplicaRoutingDataSource(primary, replicas,
+                routing.getReplicaLagTolerance(), ReadYourWritesFilter::remember);
+        router.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(router);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(DataSource dataSource, DataSourceRoutingProperties routing) {
+        ReplicaRoutingDataSource router =
+                (ReplicaRoutingDataSource) ((DelegatingDataSource) dataSource).getTargetDataSource();
+        return new ReadYourWritesFilter(router, routing.getReplicaLagTolerance());
+    }
+
+    private HikariDataSource replicaDataSource(DataSourceRoutingProperties.Replica replica) {
+        DataSourceBuilder<HikariDataSource> builder = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(replica.getUrl());
+        if (replica.getUsername() != null) {
+            builder.username(replica.getUsername());
+        }
+        if (replica.getPassword() != null) {
+            builder.password(replica.getPassword());
+        }
+        if (replica.getDriverClassName() != null) {
+            builder.driverClassName(replica.getDriverClassName());
+        }
+        return builder.build();
+    }
+
+    private void configurePool(HikariDataSource pool, String role) {
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName((pool.getPoolName() != null ? pool.getPoolName() : "vehicles") + "-" + role);
+        if (meterRegistry != null) {
+            pool.setMetricRegistry(meterRegistry);
+        }
+    }
+}
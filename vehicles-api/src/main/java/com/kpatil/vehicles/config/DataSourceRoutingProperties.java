@@ -0,0 +1,93 @@
+package com.kpatil.vehicles.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds the read-replica settings used when routing is enabled.
+ * The primary datasource keeps using the standard spring.datasource.* properties.
+ */
+@ConfigurationProperties(prefix = "vehicles.datasource.routing")
+public class DataSourceRoutingProperties {
+
+    private boolean enabled;
+
+    /**
+     * How far replicas may trail the primary. Read-only transactions that
+     * start within this window after a write, on the thread or for the client
+     * (by cookie) that made it, are served by the primary.
+     */
+    private Duration replicaLagTolerance = Duration.ofSeconds(1);
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getReplicaLagTolerance() {
+        return replicaLagTolerance;
+    }
+
+    public void setReplicaLagTolerance(Duration replicaLagTolerance) {
+        this.replicaLagTolerance = replicaLagTolerance;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    public void setReplicas(List<Replica> replicas) {
+        this.replicas = replicas;
+    }
+
+    /**
+     * Connection settings of a single read replica.
+     */
+    public static class Replica {
+
+        private String url;
+        private String username;
+        private String password;
+        private String driverClassName;
+
+        public String getUrl() {
+            return url;
+        }
+
+        public void setUrl(String url) {
+            this.url = url;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public void setUsername(String username) {
+            this.username = username;
+        }
+
+        public String getPassword() {
+            return password;
+        }
+
+        public void setPassword(String password) {
+            this.password = password;
+        }
+
+        public String getDriverClassName() {
+            return driverClassName;
+        }
+
+        public void setDriverClassName(String driverClassName) {
+            this.driverClassName = driverClassName;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.kpatil.vehicles.config;
+
+import com.kpatil.vehicles.client.hedge.Hedger;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Provides the Hedger of the pricing client. Hedging is off unless
+ * pricing.hedge.enabled=true; its attempt latencies are measured either way.
+ */
+@Configuration
+public class HedgeConfig {
+
+    @Bean
+    public Hedger pricingHedger(MeterRegistry registry,
+                                @Value("${pricing.hedge.enabled:false}") boolean enabled,
+                                @Value("${pricing.hedge.percentile:0.95}") double percentile,
+                                @Value("${pricing.hedge.min-delay:5ms}") Duration minDelay,
+                                @Value("${pricing.hedge.budget:0.05}") double budget,
+                                @Value("${pricing.hedge.max-burst:10}") int maxBurst) {
+        return new Hedger("pricing", registry, enabled, percentile, minDelay, budget, maxBurst);
+    }
+}
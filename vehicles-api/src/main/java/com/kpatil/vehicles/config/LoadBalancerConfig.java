@@ -0,0 +1,22 @@
+package com.kpatil.vehicles.config;
+
+import com.kpatil.vehicles.client.balancer.LoadBalancers;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Provides the LoadBalancers that resolve lb://service-id endpoints through
+ * the DiscoveryClient: Eureka when eureka.client.enabled=true, otherwise the
+ * instances listed under spring.cloud.discovery.client.simple.instances.
+ */
+@Configuration
+@EnableConfigurationProperties(LoadBalancerProperties.class)
+public class LoadBalancerConfig {
+
+    @Bean
+    public LoadBalancers loadBalancers(DiscoveryClient discoveryClient, LoadBalancerProperties properties) {
+        return new LoadBalancers(discoveryClient, properties);
+    }
+}
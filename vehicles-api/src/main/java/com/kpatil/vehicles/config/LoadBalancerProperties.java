@@ -0,0 +1,61 @@
+package com.kpatil.vehicles.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Holds the client-side load balancing settings used for lb://service-id endpoints.
+ */
+@ConfigurationProperties(prefix = "vehicles.loadbalancer")
+public class LoadBalancerProperties {
+
+    /**
+     * How often the instances of a service are re-read from discovery.
+     */
+    private Duration refreshInterval = Duration.ofSeconds(5);
+
+    /**
+     * Consecutive failures (connection errors or 5xx) after which an instance is ejected.
+     */
+    private int failureThreshold = 3;
+
+    /**
+     * How long an instance is ejected the first time; doubled on each further ejection.
+     */
+    private Duration ejectionTime = Duration.ofSeconds(10);
+
+    private Duration maxEjectionTime = Duration.ofMinutes(2);
+
+    public Duration getRefreshInterval() {
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(Duration refreshInterval) {
+        this.refreshInterval = refreshInterval;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public Duration getEjectionTime() {
+        return ejectionTime;
+    }
+
+    public void setEjectionTime(Duration ejectionTime) {
+        this.ejectionTime = ejectionTime;
+    }
+
+    public Duration getMaxEjectionTime() {
+        return maxEjectionTime;
+    }
+
+    public void setMaxEjectionTime(Duration maxEjectionTime) {
+        this.maxEjectionTime = maxEjectionTime;
+    }
+}
@@ -0,0 +1,88 @@
+package com.kpatil.vehicles.config;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Lets a client read its own writes while reads are routed to replicas. A
+ * request that writes answers with a cookie holding the time until which the
+ * replicas may not have the write yet, and the reads of the requests that
+ * bring the cookie back are served by the primary until then. Clients that
+ * drop cookies, and every other client, may read from a replica that has not
+ * caught up with the write for up to the replica lag tolerance.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE = "vehicles-primary-until";
+
+    private final ReplicaRoutingDataSource router;
+    private final long lagToleranceMillis;
+
+    public ReadYourWritesFilter(ReplicaRoutingDataSource router, Duration replicaLagTolerance) {
+        this.router = router;
+        this.lagToleranceMillis = replicaLagTolerance.toMillis();
+    }
+
+    /**
+     * Hands the end of a pin to the client of the current request, if any, so
+     * that it brings the pin along to its next requests.
+     *
+     * @param epochMillis the time until which reads go to the primary
+     */
+    static void remember(long epochMillis) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return;
+        }
+        HttpServletResponse response = ((ServletRequestAttributes) attributes).getResponse();
+        if (response == null || response.isCommitted()) {
+            return;
+        }
+        Cookie cookie = new Cookie(COOKIE, Long.toString(epochMillis));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, (epochMillis - System.currentTimeMillis() + 999) / 1000));
+        response.addCookie(cookie);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Long until = primaryUntil(request);
+        if (until != null) {
+            // a cookie cannot pin a client for longer than a write would
+            router.pinToPrimaryUntil(Math.min(until, System.currentTimeMillis() + lagToleranceMillis));
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            router.unpin();
+        }
+    }
+
+    private static Long primaryUntil(HttpServletRequest request) {
+        if (request.getCookies() == null) {
+            return null;
+        }
+        for (Cookie cookie : request.getCookies()) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,123 @@
+package com.kpatil.vehicles.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * Routes read-only transactions to the replicas (round robin) and everything
+ * else to the primary. Must be wrapped in a LazyConnectionDataSourceProxy so the
+ * routing decision is taken once the transaction's read-only flag is known.
+ * <p>
+ * A write pins the reads of the thread that made it to the primary for the
+ * replica lag tolerance, so that a writer reads its own writes while the
+ * reads of everyone else keep going to the replicas. ReadYourWritesFilter
+ * carries the pin from one request of a client to the next.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final List<DataSource> pools = new ArrayList<>();
+    private final List<String> replicaKeys = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final long lagToleranceMillis;
+    private final LongConsumer onWrite;
+
+    // the reads of each thread go to the primary until the epoch millis held here
+    private final ThreadLocal<Long> primaryUntil = new ThreadLocal<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                    Duration replicaLagTolerance) {
+        this(primary, replicas, replicaLagTolerance, until -> {
+        });
+    }
+
+    /**
+     * @param onWrite receives the epoch millis until which the reads of the
+     *                writing thread go to the primary, on every write
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas,
+                                    Duration replicaLagTolerance, LongConsumer onWrite) {
+        this.lagToleranceMillis = replicaLagTolerance.toMillis();
+        this.onWrite = onWrite;
+
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        pools.add(primary);
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + i;
+            replicaKeys.add(key);
+            targets.put(key, replicas.get(i));
+        }
+        pools.addAll(replicas);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    /**
+     * Gets the primary followed by every replica.
+     *
+     * @return all datasources this router may hand connections out from
+     */
+    public List<DataSource> getPools() {
+        return Collections.unmodifiableList(pools);
+    }
+
+    /**
+     * Sends the reads of the current thread to the primary until the given
+     * time, as if the thread had written just before it.
+     *
+     * @param epochMillis the end of the pin, in milliseconds since the epoch
+     */
+    public void pinToPrimaryUntil(long epochMillis) {
+        primaryUntil.set(epochMillis);
+    }
+
+    /**
+     * Lets the reads of the current thread go to the replicas again.
+     */
+    public void unpin() {
+        primaryUntil.remove();
+    }
+
+    /**
+     * Tells whether the reads of the current thread go to the primary, as
+     * they do while it is pinned or when there are no replicas.
+     *
+     * @return true if a read made now would be served by the primary
+     */
+    public boolean readsFromPrimary() {
+        return replicaKeys.isEmpty() || pinnedToPrimary();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                long until = System.currentTimeMillis() + lagToleranceMillis;
+                primaryUntil.set(until);
+                onWrite.accept(until);
+            }
+            return PRIMARY;
+        }
+        if (readsFromPrimary()) {
+            return PRIMARY;
+        }
+        return replicaKeys.get(Math.floorMod(nextReplica.getAndIncrement(), replicaKeys.size()));
+    }
+
+    private boolean pinnedToPrimary() {
+        Long until = primaryUntil.get();
+        return until != null && System.currentTimeMillis() < until;
+    }
+}
@@ -0,0 +1,78 @@
+package com.kpatil.vehicles.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * An amount of money in an ISO 4217 currency. The amount is fixed-point and
+ * carries the number of decimal places the currency uses, so that 20000 and
+ * 20000.00 USD are the same price. Amounts with more significant decimal
+ * places than the currency uses are rejected rather than rounded.
+ */
+public final class Money implements Comparable<Money> {
+
+    private final BigDecimal amount;
+    private final String currency;
+
+    /**
+     * @throws IllegalArgumentException if the amount has more significant
+     *                                  decimal places than the currency uses
+     */
+    @JsonCreator
+    public Money(@JsonProperty("amount") BigDecimal amount, @JsonProperty("currency") String currency) {
+        Currency isoCurrency = Currency.getInstance(Objects.requireNonNull(currency, "currency"));
+        int scale = Math.max(isoCurrency.getDefaultFractionDigits(), 0);
+        try {
+            this.amount = Objects.requireNonNull(amount, "amount").setScale(scale, RoundingMode.UNNECESSARY);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException(
+                    "Amount " + amount.toPlainString() + " has more than " + scale + " decimal places", e);
+        }
+        this.currency = isoCurrency.getCurrencyCode();
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    /**
+     * Orders by amount, then by currency. Amounts in different currencies are
+     * compared as numbers, without conversion.
+     */
+    @Override
+    public int compareTo(Money other) {
+        int byAmount = amount.compareTo(other.amount);
+        return byAmount != 0 ? byAmount : currency.compareTo(other.currency);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Money)) {
+            return false;
+        }
+        Money money = (Money) o;
+        return amount.equals(money.amount) && currency.equals(money.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(amount, currency);
+    }
+
+    @Override
+    public String toString() {
+        return currency + " " + amount.toPlainString();
+    }
+}
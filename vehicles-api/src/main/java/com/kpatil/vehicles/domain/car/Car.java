@@ -2,6 +2,7 @@ package com.kpatil.vehicles.domain.car;
 
 import com.kpatil.vehicles.domain.Location;
 import com.kpatil.vehicles.domain.Condition;
+import com.kpatil.vehicles.domain.Money;
 
 import java.time.LocalDateTime;
 import javax.persistence.Embedded;
@@ -48,7 +49,7 @@ public class Car {
     private Location location = new Location(0d, 0d);
 
     @Transient
-    private String price;
+    private Money price;
 
     public Long getId() {
         return id;
@@ -98,11 +99,11 @@ public class Car {
         this.location = location;
     }
 
-    public String getPrice() {
+    public Money getPrice() {
         return price;
     }
 
-    public void setPrice(String price) {
+    public void setPrice(Money price) {
         this.price = price;
     }
 }
@@ -1,9 +1,35 @@
 package com.kpatil.vehicles.domain.car;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Repository
 public interface CarRepository extends JpaRepository<Car, Long> {
 
+    /**
+     * Gets the cars following the given id, in id order, so that a listing can
+     * be read page by page without an offset to skip over.
+     *
+     * @param id       id of the last car already read
+     * @param pageable size of the page; its page number should be 0
+     * @return up to a page of cars with a greater id
+     */
+    @Transactional(readOnly = true)
+    List<Car> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Counts the cars per combination of the values that are faceted on.
+     *
+     * @return manufacturer code, condition, body, fuel type, model year and count of each combination
+     */
+    @Transactional(readOnly = true)
+    @Query("select c.details.manufacturer.code, c.condition, c.details.body, c.details.fuelType,"
+            + " c.details.modelYear, count(c) from Car c group by c.details.manufacturer.code, c.condition,"
+            + " c.details.body, c.details.fuelType, c.details.modelYear")
+    List<Object[]> countByFacets();
 }
@@ -0,0 +1,197 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.domain.Condition;
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.domain.car.CarRepository;
+import com.kpatil.vehicles.domain.car.Details;
+import com.kpatil.vehicles.domain.manufacturer.Manufacturer;
+import com.kpatil.vehicles.domain.manufacturer.ManufacturerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Counts the cars per combination of manufacturer, condition, body, fuel type
+ * and model year. There are far fewer combinations than cars, so the facets
+ * for any filter on these values are summed from the combinations alone, in
+ * time independent of the number of cars.
+ * <p>
+ * The counts are read with one grouped query at startup, before requests are
+ * served, and kept current by CarService, whose changes are applied once their
+ * transaction commits.
+ */
+@Component
+class CarFacets implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(CarFacets.class);
+
+    private final CarRepository carRepository;
+    private final ManufacturerRepository manufacturerRepository;
+
+    private final Map<Key, Long> counts = new ConcurrentHashMap<>();
+    private volatile Map<Integer, String> manufacturers = Map.of();
+
+    CarFacets(CarRepository carRepository, ManufacturerRepository manufacturerRepository) {
+        this.carRepository = carRepository;
+        this.manufacturerRepository = manufacturerRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        load();
+    }
+
+    /**
+     * Counts the cars in the repository. Must not run while cars are written.
+     */
+    synchronized void load() {
+        long start = System.nanoTime();
+        Map<Integer, String> names = new HashMap<>();
+        for (Manufacturer manufacturer : manufacturerRepository.findAll()) {
+            names.put(manufacturer.getCode(), manufacturer.getName());
+        }
+        manufacturers = names;
+        counts.clear();
+        for (Object[] group : carRepository.countByFacets()) {
+            counts.put(new Key((Integer) group[0], (Condition) group[1], (String) group[2], (String) group[3],
+                    (Integer) group[4]), (Long) group[5]);
+        }
+        logger.info("Counted cars in {} facet combinations in {} ms",
+                counts.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Counts {@code car} as written, and no longer as it was before, if it
+     * was, once the current transaction commits.
+     *
+     * @param before the key of the car before it was written, or null if it is new
+     */
+    void written(Key before, Car car) {
+        Key after = Key.of(car);
+        if (after.equals(before)) {
+            return;
+        }
+        Transactions.afterCommit(() -> {
+            if (before != null) {
+                add(before, -1);
+            }
+            add(after, 1);
+        });
+    }
+
+    /**
+     * No longer counts a car with {@code key} once the current transaction commits.
+     */
+    void deleted(Key key) {
+        Transactions.afterCommit(() -> add(key, -1));
+    }
+
+    private synchronized void add(Key key, long delta) {
+        // removed when its count reaches zero
+        counts.merge(key, delta, (count, change) -> count + change == 0 ? null : count + change);
+    }
+
+    Facets count(FacetFilter filter) {
+        long total = 0;
+        Map<Integer, Long> manufacturer = new HashMap<>();
+        Map<Condition, Long> condition = new HashMap<>();
+        Map<String, Long> body = new HashMap<>();
+        Map<String, Long> fuelType = new HashMap<>();
+        Map<Integer, Long> modelYear = new HashMap<>();
+        for (Map.Entry<Key, Long> entry : counts.entrySet()) {
+            Key key = entry.getKey();
+            if (!filter.matches(key)) {
+                continue;
+            }
+            long count = entry.getValue();
+            total += count;
+            add(manufacturer, key.manufacturer, count);
+            add(condition, key.condition, count);
+            add(body, key.body, count);
+            add(fuelType, key.fuelType, count);
+            add(modelYear, key.modelYear, count);
+        }
+        Map<Integer, String> names = manufacturers;
+        Map<String, List<Facets.Count>> facets = new LinkedHashMap<>();
+        facets.put("manufacturer", counts(manufacturer, names::get));
+        facets.put("condition", counts(condition, value -> null));
+        facets.put("body", counts(body, value -> null));
+        facets.put("fuelType", counts(fuelType, value -> null));
+        facets.put("modelYear", counts(modelYear, value -> null));
+        return new Facets(total, facets);
+    }
+
+    private static <T> void add(Map<T, Long> counts, T value, long count) {
+        if (value != null) {
+            counts.merge(value, count, Long::sum);
+        }
+    }
+
+    private static <T> List<Facets.Count> counts(Map<T, Long> counts, Function<T, String> label) {
+        List<Facets.Count> result = new ArrayList<>(counts.size());
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<T, Long>comparingByValue().reversed()
+                        .thenComparing(entry -> entry.getKey().toString()))
+                .forEach(entry -> result.add(new Facets.Count(entry.getKey().toString(),
+                        label.apply(entry.getKey()), entry.getValue())));
+        return result;
+    }
+
+    /**
+     * The values of a car that are counted.
+     */
+    static final class Key {
+
+        final Integer manufacturer;
+        final Condition condition;
+        final String body;
+        final String fuelType;
+        final Integer modelYear;
+
+        private Key(Integer manufacturer, Condition condition, String body, String fuelType, Integer modelYear) {
+            this.manufacturer = manufacturer;
+            this.condition = condition;
+            this.body = body;
+            this.fuelType = fuelType;
+            this.modelYear = modelYear;
+        }
+
+        static Key of(Car car) {
+            Details details = car.getDetails();
+            Manufacturer manufacturer = details.getManufacturer();
+            return new Key(manufacturer == null ? null : manufacturer.getCode(), car.getCondition(),
+                    details.getBody(), details.getFuelType(), details.getModelYear());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return Objects.equals(manufacturer, key.manufacturer)
+                    && condition == key.condition
+                    && Objects.equals(body, key.body)
+                    && Objects.equals(fuelType, key.fuelType)
+                    && Objects.equals(modelYear, key.modelYear);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(manufacturer, condition, body, fuelType, modelYear);
+        }
+    }
+}
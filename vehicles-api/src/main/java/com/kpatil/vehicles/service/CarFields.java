@@ -0,0 +1,125 @@
+package com.kpatil.vehicles.service;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The fields of a car a client asked for, as a sparse fieldset such as
+ * {@code id,details.model,price,location.city}. A field includes all of its
+ * nested fields, and the objects around a requested field are kept so that
+ * it stays at the same path. {@code _links} stands for the links of the car.
+ * <p>
+ * Besides trimming what is written, the fields decide which enrichments are
+ * needed: a car is only priced if its price is asked for or used to filter
+ * or order, and only located if part of its address is asked for.
+ */
+public final class CarFields {
+
+    public static final String LINKS = "_links";
+
+    private static final Set<String> PATHS = Set.of(
+            "id", "createdAt", "modifiedAt", "condition",
+            "details", "details.body", "details.model",
+            "details.manufacturer", "details.manufacturer.code", "details.manufacturer.name",
+            "details.numberOfDoors", "details.fuelType", "details.engine", "details.mileage",
+            "details.modelYear", "details.productionYear", "details.externalColor",
+            "location", "location.lat", "location.lon",
+            "location.address", "location.city", "location.state", "location.zip",
+            "price", "price.amount", "price.currency",
+            LINKS);
+
+    private static final Set<String> ADDRESS = Set.of(
+            "location.address", "location.city", "location.state", "location.zip");
+
+    private static final CarFields ALL = new CarFields(null, null);
+
+    // null for all fields
+    private final Set<String> requested;
+    // the requested fields and the objects around them
+    private final Set<String> enclosing;
+
+    private CarFields(Set<String> requested, Set<String> enclosing) {
+        this.requested = requested;
+        this.enclosing = enclosing;
+    }
+
+    public static CarFields all() {
+        return ALL;
+    }
+
+    /**
+     * @param fields comma separated field paths, or null or blank for all fields
+     * @throws IllegalArgumentException if a field is unknown
+     */
+    public static CarFields parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        Set<String> requested = new HashSet<>();
+        Set<String> enclosing = new HashSet<>();
+        for (String field : fields.split(",")) {
+            String path = field.trim();
+            if (!PATHS.contains(path)) {
+                throw new IllegalArgumentException("Unknown field: " + path);
+            }
+            requested.add(path);
+            for (int dot = path.indexOf('.'); dot >= 0; dot = path.indexOf('.', dot + 1)) {
+                enclosing.add(path.substring(0, dot));
+            }
+            enclosing.add(path);
+        }
+        return new CarFields(Collections.unmodifiableSet(requested), Collections.unmodifiableSet(enclosing));
+    }
+
+    public boolean isAll() {
+        return requested == null;
+    }
+
+    /**
+     * Tells whether the field at {@code path} is written, being requested,
+     * nested in a requested field or around one.
+     */
+    public boolean includes(String path) {
+        if (requested == null || enclosing.contains(path)) {
+            return true;
+        }
+        for (int dot = path.lastIndexOf('.'); dot >= 0; dot = path.lastIndexOf('.', dot - 1)) {
+            if (requested.contains(path.substring(0, dot))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean needsPrice() {
+        return includes("price");
+    }
+
+    boolean needsAddress() {
+        return requested == null || ADDRESS.stream().anyMatch(this::includes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CarFields)) {
+            return false;
+        }
+        return Objects.equals(requested, ((CarFields) o).requested);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(requested);
+    }
+
+    @Override
+    public String toString() {
+        return requested == null ? "all" : String.join(",", new TreeSet<>(requested));
+    }
+}
@@ -0,0 +1,339 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.domain.Condition;
+import com.kpatil.vehicles.domain.Location;
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.domain.car.CarRepository;
+import com.kpatil.vehicles.domain.car.Details;
+import com.kpatil.vehicles.domain.manufacturer.Manufacturer;
+import com.kpatil.vehicles.domain.manufacturer.ManufacturerRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Holds every car in memory, so that listings and lookups are served without
+ * JPA, entity hydration or the manufacturer join. Enabled with
+ * vehicles.read-model.enabled=true.
+ * <p>
+ * Each car is kept as an immutable row of primitive fields, with the strings
+ * interned across cars and one Manufacturer per code. Reads see a snapshot of
+ * the rows sorted by id without taking a lock; writes copy the snapshot and
+ * replace it. The model is loaded from the CarRepository at startup and kept
+ * current by CarService, whose changes are applied once their transaction
+ * commits. Until it is loaded CarService reads from the repository.
+ * <p>
+ * Rows are materialized into new Cars on every read, which callers may modify.
+ */
+@Component
+@ConditionalOnProperty(prefix = "vehicles.read-model", name = "enabled")
+class CarReadModel implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(CarReadModel.class);
+
+    // Estimated sizes on a 64 bit JVM with compressed references
+    private static final int ROW_BYTES = 96;
+    private static final int SLOT_BYTES = 8 + 4;
+    private static final int STRING_BYTES = 24 + 16;
+
+    private static final Snapshot EMPTY = new Snapshot(new long[0], new CarRow[0]);
+
+    private final CarRepository carRepository;
+    private final ManufacturerRepository manufacturerRepository;
+
+    private volatile Snapshot snapshot = EMPTY;
+    private volatile boolean loaded;
+
+    // guarded by this
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<Integer, Manufacturer> manufacturers = new HashMap<>();
+    private volatile long stringBytes;
+
+    CarReadModel(CarRepository carRepository, ManufacturerRepository manufacturerRepository,
+                 MeterRegistry meterRegistry) {
+        this.carRepository = carRepository;
+        this.manufacturerRepository = manufacturerRepository;
+        Gauge.builder("car.readmodel.size", this, model -> model.snapshot.ids.length)
+                .description("Cars held by the read model")
+                .register(meterRegistry);
+        Gauge.builder("car.readmodel.bytes", this, CarReadModel::estimatedBytes)
+                .description("Estimated heap held by the read model")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        load();
+    }
+
+    /**
+     * Reads every car from the repository. Changes committed meanwhile wait
+     * for the load and are applied after it.
+     */
+    synchronized void load() {
+        long start = System.nanoTime();
+        manufacturers.clear();
+        for (Manufacturer manufacturer : manufacturerRepository.findAll()) {
+            manufacturers.put(manufacturer.getCode(),
+                    new Manufacturer(manufacturer.getCode(), intern(manufacturer.getName())));
+        }
+        List<CarRow> rows = new ArrayList<>();
+        long after = Long.MIN_VALUE;
+        List<Car> batch;
+        do {
+            batch = carRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, CarService.LIST_BATCH_SIZE));
+            for (Car car : batch) {
+                rows.add(row(car));
+                after = car.getId();
+            }
+        } while (batch.size() == CarService.LIST_BATCH_SIZE);
+
+        long[] ids = new long[rows.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = rows.get(i).id;
+        }
+        snapshot = new Snapshot(ids, rows.toArray(new CarRow[0]));
+        loaded = true;
+        logger.info("Loaded {} cars into the read model in {} ms, about {} bytes",
+                ids.length, (System.nanoTime() - start) / 1_000_000, estimatedBytes());
+    }
+
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    Optional<Car> findById(long id) {
+        Snapshot current = snapshot;
+        int index = Arrays.binarySearch(current.ids, id);
+        return index < 0 ? Optional.empty() : Optional.of(current.rows[index].toCar());
+    }
+
+    /**
+     * @return up to {@code limit} cars with an id greater than {@code after}, in id order
+     */
+    List<Car> findAfter(long after, int limit) {
+        Snapshot current = snapshot;
+        int from = Arrays.binarySearch(current.ids, after);
+        from = from < 0 ? -from - 1 : from + 1;
+        int to = (int) Math.min(current.ids.length, (long) from + limit);
+        List<Car> cars = new ArrayList<>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            cars.add(current.rows[i].toCar());
+        }
+        return cars;
+    }
+
+    /**
+     * @return every car, in id order
+     */
+    List<Car> findAll() {
+        return findAfter(Long.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Adds or replaces the car, once the current transaction, if any, commits.
+     */
+    void put(Car car) {
+        Transactions.afterCommit(() -> apply(row(car)));
+    }
+
+    /**
+     * Removes the car, once the current transaction, if any, commits.
+     */
+    void remove(long id) {
+        Transactions.afterCommit(() -> apply(id, null));
+    }
+
+    long estimatedBytes() {
+        return (long) snapshot.ids.length * (ROW_BYTES + SLOT_BYTES) + stringBytes;
+    }
+
+    private void apply(CarRow row) {
+        apply(row.id, row);
+    }
+
+    private synchronized void apply(long id, CarRow row) {
+        Snapshot current = snapshot;
+        int index = Arrays.binarySearch(current.ids, id);
+        long[] ids;
+        CarRow[] rows;
+        if (index >= 0 && row != null) {
+            ids = current.ids;
+            rows = current.rows.clone();
+            rows[index] = row;
+        } else if (index >= 0) {
+            ids = new long[current.ids.length - 1];
+            rows = new CarRow[ids.length];
+            System.arraycopy(current.ids, 0, ids, 0, index);
+            System.arraycopy(current.ids, index + 1, ids, index, ids.length - index);
+            System.arraycopy(current.rows, 0, rows, 0, index);
+            System.arraycopy(current.rows, index + 1, rows, index, rows.length - index);
+        } else if (row != null) {
+            int at = -index - 1;
+            ids = new long[current.ids.length + 1];
+            rows = new CarRow[ids.length];
+            System.arraycopy(current.ids, 0, ids, 0, at);
+            System.arraycopy(current.ids, at, ids, at + 1, current.ids.length - at);
+            System.arraycopy(current.rows, 0, rows, 0, at);
+            System.arraycopy(current.rows, at, rows, at + 1, current.rows.length - at);
+            ids[at] = id;
+            rows[at] = row;
+        } else {
+            return;
+        }
+        snapshot = new Snapshot(ids, rows);
+    }
+
+    private synchronized CarRow row(Car car) {
+        Details details = car.getDetails();
+        Location location = car.getLocation();
+        return new CarRow(car.getId(),
+                timestamp(car.getCreatedAt()), timestamp(car.getModifiedAt()),
+                car.getCondition(),
+                intern(details.getBody()), intern(details.getModel()), manufacturer(details.getManufacturer()),
+                number(details.getNumberOfDoors()), intern(details.getFuelType()), intern(details.getEngine()),
+                number(details.getMileage()), number(details.getModelYear()), number(details.getProductionYear()),
+                intern(details.getExternalColor()),
+                location.getLat(), location.getLon());
+    }
+
+    private String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String interned = strings.putIfAbsent(value, value);
+        if (interned != null) {
+            return interned;
+        }
+        stringBytes += STRING_BYTES + (value.length() + 7) / 8 * 8;
+        return value;
+    }
+
+    /**
+     * A written car may only carry the code of its manufacturer, so the name
+     * is the one stored in the database.
+     */
+    private Manufacturer manufacturer(Manufacturer manufacturer) {
+        if (manufacturer == null) {
+            return null;
+        }
+        return manufacturers.computeIfAbsent(manufacturer.getCode(), code -> manufacturerRepository.findById(code)
+                .map(stored -> new Manufacturer(code, intern(stored.getName())))
+                .orElse(null));
+    }
+
+    private static long timestamp(LocalDateTime time) {
+        // rounded to the microsecond, as the database keeps it
+        return time == null ? CarRow.NONE : time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + (time.getNano() + 500) / 1_000;
+    }
+
+    private static int number(Integer value) {
+        return value == null ? CarRow.NO_NUMBER : value;
+    }
+
+    private static final class Snapshot {
+
+        // sorted, ids[i] is the id of rows[i]
+        private final long[] ids;
+        private final CarRow[] rows;
+
+        private Snapshot(long[] ids, CarRow[] rows) {
+            this.ids = ids;
+            this.rows = rows;
+        }
+    }
+
+    private static final class CarRow {
+
+        static final long NONE = Long.MIN_VALUE;
+        static final int NO_NUMBER = Integer.MIN_VALUE;
+
+        private final long id;
+        // microseconds since the epoch, in UTC
+        private final long createdAt;
+        private final long modifiedAt;
+        private final Condition condition;
+        private final String body;
+        private final String model;
+        private final Manufacturer manufacturer;
+        private final int numberOfDoors;
+        private final String fuelType;
+        private final String engine;
+        private final int mileage;
+        private final int modelYear;
+        private final int productionYear;
+        private final String externalColor;
+        private final double lat;
+        private final double lon;
+
+        private CarRow(long id, long createdAt, long modifiedAt, Condition condition,
+                       String body, String model, Manufacturer manufacturer, int numberOfDoors,
+                       String fuelType, String engine, int mileage, int modelYear, int productionYear,
+                       String externalColor, double lat, double lon) {
+            this.id = id;
+            this.createdAt = createdAt;
+            this.modifiedAt = modifiedAt;
+            this.condition = condition;
+            this.body = body;
+            this.model = model;
+            this.manufacturer = manufacturer;
+            this.numberOfDoors = numberOfDoors;
+            this.fuelType = fuelType;
+            this.engine = engine;
+            this.mileage = mileage;
+            this.modelYear = modelYear;
+            this.productionYear = productionYear;
+            this.externalColor = externalColor;
+            this.lat = lat;
+            this.lon = lon;
+        }
+
+        private Car toCar() {
+            Car car = new Car();
+            car.setId(id);
+            car.setCreatedAt(time(createdAt));
+            car.setModifiedAt(time(modifiedAt));
+            car.setCondition(condition);
+            Details details = car.getDetails();
+            details.setBody(body);
+            details.setModel(model);
+            details.setManufacturer(manufacturer);
+            details.setNumberOfDoors(number(numberOfDoors));
+            details.setFuelType(fuelType);
+            details.setEngine(engine);
+            details.setMileage(number(mileage));
+            details.setModelYear(number(modelYear));
+            details.setProductionYear(number(productionYear));
+            details.setExternalColor(externalColor);
+            car.setLocation(new Location(lat, lon));
+            return car;
+        }
+
+        private static LocalDateTime time(long micros) {
+            if (micros == NONE) {
+                return null;
+            }
+            return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                    (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+        }
+
+        private static Integer number(int value) {
+            return value == NO_NUMBER ? null : value;
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.domain.car.CarRepository;
+import com.kpatil.vehicles.domain.car.Details;
+import com.kpatil.vehicles.domain.manufacturer.Manufacturer;
+import com.kpatil.vehicles.domain.manufacturer.ManufacturerRepository;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ControlledRealTimeReopenThread;
+import org.apache.lucene.search.DisjunctionMaxQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A Lucene index of the text of every car: its model, manufacturer, body,
+ * engine, fuel type and color. Free text such as {@code red diesel sedan}
+ * finds the cars matching any of its words, ranked by BM25 with the model and
+ * manufacturer weighing double, so that cars matching all words come first.
+ * <p>
+ * The index is held in memory and built from the CarRepository by
+ * StartupWarmup once the application has started, or else by the first
+ * search, so that it does not delay startup. It is kept current by
+ * CarService, whose changes are applied once their transaction commits,
+ * concurrently with each other. A background thread reopens the searcher
+ * every {@code vehicles.search.refresh-interval}, so searches see a change
+ * within that time rather than each write waiting for a reopen.
+ */
+@Component
+class CarSearchIndex implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CarSearchIndex.class);
+
+    /**
+     * Matches counted and returned at most. Past this count, ranking skips
+     * the matches that cannot make it into the page.
+     */
+    static final int MAX_HITS = 10_000;
+
+    private static final String ID = "id";
+    // text fields and the weight of a word found in them
+    private static final Map<String, Float> FIELDS = Map.of(
+            "model", 2f, "manufacturer", 2f, "body", 1f, "engine", 1f, "fuelType", 1f, "externalColor", 1f);
+
+    private final CarRepository carRepository;
+    private final ManufacturerRepository manufacturerRepository;
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final IndexWriter writer;
+    private final SearcherManager searchers;
+    private final ControlledRealTimeReopenThread<IndexSearcher> reopener;
+
+    // changes share the read lock, a build takes the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean built;
+    // sequence number of the latest change applied
+    private final AtomicLong latest = new AtomicLong();
+
+    // guarded by this
+    private final Map<Integer, String> manufacturers = new HashMap<>();
+
+    CarSearchIndex(CarRepository carRepository, ManufacturerRepository manufacturerRepository,
+                   @Value("${vehicles.search.refresh-interval:1s}") Duration refreshInterval) throws IOException {
+        this.carRepository = carRepository;
+        this.manufacturerRepository = manufacturerRepository;
+        this.writer = new IndexWriter(new ByteBuffersDirectory(),
+                new IndexWriterConfig(analyzer).setRAMBufferSizeMB(64));
+        this.searchers = new SearcherManager(writer, null);
+        double maxStaleSec = refreshInterval.toMillis() / 1000.0;
+        this.reopener = new ControlledRealTimeReopenThread<>(writer, searchers, maxStaleSec,
+                Math.min(maxStaleSec, 0.025));
+        reopener.setName("search-index-refresh");
+        reopener.setDaemon(true);
+        reopener.start();
+    }
+
+    /**
+     * Indexes every car in the repository, unless that is done already.
+     */
+    void build() {
+        if (!built) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Indexes every car in the repository anew. Changes committed meanwhile
+     * wait for it, and are applied after it.
+     */
+    void rebuild() {
+        lock.writeLock().lock();
+        try {
+            index();
+            built = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index() {
+        long start = System.nanoTime();
+        synchronized (this) {
+            manufacturers.clear();
+            for (Manufacturer manufacturer : manufacturerRepository.findAll()) {
+                manufacturers.put(manufacturer.getCode(), manufacturer.getName());
+            }
+        }
+        int count = 0;
+        try {
+            writer.deleteAll();
+            long after = Long.MIN_VALUE;
+            List<Car> batch;
+            do {
+                batch = carRepository.findByIdGreaterThanOrderByIdAsc(after,
+                        PageRequest.of(0, CarService.LIST_BATCH_SIZE));
+                for (Car car : batch) {
+                    writer.addDocument(document(car));
+                    after = car.getId();
+                }
+                count += batch.size();
+            } while (batch.size() == CarService.LIST_BATCH_SIZE);
+            writer.commit();
+            searchers.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        logger.info("Indexed {} cars in {} ms", count, millis);
+    }
+
+    /**
+     * Indexes the car anew once the current transaction, if any, commits.
+     */
+    void put(Car car) {
+        Transactions.afterCommit(() -> change(writer -> writer.updateDocument(new Term(ID, id(car.getId())),
+                document(car))));
+    }
+
+    /**
+     * Removes the car from the index once the current transaction, if any, commits.
+     */
+    void remove(long id) {
+        Transactions.afterCommit(() -> change(writer -> writer.deleteDocuments(new Term(ID, id(id)))));
+    }
+
+    /**
+     * Finds the cars matching any word of {@code text}, best matches first.
+     *
+     * @param text     free text
+     * @param pageable the page of matches to return, starting within the first
+     *                 {@value #MAX_HITS}; sorting is ignored
+     * @return the ids of the cars on that page, and the number of matching
+     * cars up to {@value #MAX_HITS}
+     */
+    Page<Long> search(String text, Pageable pageable) {
+        build();
+        Query query = query(text);
+        if (query == null) {
+            return new PageImpl<>(List.of(), pageable, 0);
+        }
+        int end = (int) Math.min(pageable.getOffset() + pageable.getPageSize(), MAX_HITS);
+        try {
+            IndexSearcher searcher = searchers.acquire();
+            try {
+                TopScoreDocCollector collector = TopScoreDocCollector.create(end, MAX_HITS);
+                searcher.search(query, collector);
+                TopDocs top = collector.topDocs();
+                List<Long> ids = new ArrayList<>(pageable.getPageSize());
+                for (int i = (int) pageable.getOffset(); i < top.scoreDocs.length; i++) {
+                    ScoreDoc hit = top.scoreDocs[i];
+                    ids.add(searcher.doc(hit.doc, Set.of(ID)).getField(ID).numericValue().longValue());
+                }
+                return new PageImpl<>(ids, pageable, Math.min(top.totalHits.value, MAX_HITS));
+            } finally {
+                searchers.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Waits until searches see every change applied so far.
+     */
+    void awaitChanges() throws InterruptedException {
+        reopener.waitForGeneration(latest.get());
+    }
+
+    @Override
+    public void destroy() throws IOException {
+        reopener.close();
+        searchers.close();
+        writer.close();
+    }
+
+    private Query query(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        try (TokenStream tokens = analyzer.tokenStream("", text)) {
+            CharTermAttribute term = tokens.addAttribute(CharTermAttribute.class);
+            tokens.reset();
+            while (tokens.incrementToken()) {
+                words.add(term.toString());
+            }
+            tokens.end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (words.isEmpty()) {
+            return null;
+        }
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        for (String word : words) {
+            List<Query> fields = new ArrayList<>(FIELDS.size());
+            FIELDS.forEach((field, weight) -> fields.add(new BoostQuery(new TermQuery(new Term(field, word)), weight)));
+            query.add(new DisjunctionMaxQuery(fields, 0.1f), BooleanClause.Occur.SHOULD);
+        }
+        return query.build();
+    }
+
+    private void change(Change change) {
+        lock.readLock().lock();
+        try {
+            // cars written before the index is built are read by the build
+            if (built) {
+                latest.accumulateAndGet(change.apply(writer), Math::max);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Document document(Car car) throws IOException {
+        Details details = car.getDetails();
+        Document document = new Document();
+        document.add(new StringField(ID, id(car.getId()), Field.Store.NO));
+        document.add(new StoredField(ID, car.getId()));
+        text(document, "model", details.getModel());
+        text(document, "manufacturer", manufacturer(details.getManufacturer()));
+        text(document, "body", details.getBody());
+        text(document, "engine", details.getEngine());
+        text(document, "fuelType", details.getFuelType());
+        text(document, "externalColor", details.getExternalColor());
+        return document;
+    }
+
+    private static void text(Document document, String field, String value) {
+        if (value != null) {
+            document.add(new TextField(field, value, Field.Store.NO));
+        }
+    }
+
+    /**
+     * A written car may only carry the code of its manufacturer, so the name
+     * is the one stored in the database.
+     */
+    private String manufacturer(Manufacturer manufacturer) {
+        if (manufacturer == null) {
+            return null;
+        }
+        synchronized (this) {
+            return manufacturers.computeIfAbsent(manufacturer.getCode(), code ->
+                    manufacturerRepository.findById(code).map(Manufacturer::getName).orElse(null));
+        }
+    }
+
+    private static String id(long id) {
+        return Long.toString(id);
+    }
+
+    private interface Change {
+
+        /**
+         * @return the sequence number of the change
+         */
+        long apply(IndexWriter writer) throws IOException;
+    }
+}
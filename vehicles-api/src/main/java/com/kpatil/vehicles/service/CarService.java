@@ -2,15 +2,34 @@ package com.kpatil.vehicles.service;
 
 import com.kpatil.vehicles.client.maps.MapsClient;
 import com.kpatil.vehicles.client.prices.PriceClient;
+import com.kpatil.vehicles.config.ReplicaRoutingDataSource;
 import com.kpatil.vehicles.domain.Location;
 import com.kpatil.vehicles.domain.car.Car;
 import com.kpatil.vehicles.domain.car.CarRepository;
+import com.kpatil.vehicles.domain.car.Details;
+import com.kpatil.vehicles.domain.manufacturer.Manufacturer;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -24,31 +43,195 @@ public class CarService {
     private static final Logger logger =
             LoggerFactory.getLogger(CarService.class);
 
+    // Cars read, priced and located at a time by an ID ordered listing
+    static final int LIST_BATCH_SIZE = 256;
+
+    // Matches a search counts and returns at most
+    public static final int MAX_SEARCH_HITS = CarSearchIndex.MAX_HITS;
+
     private final CarRepository carRepository;
     private final PriceClient priceClient;
     private final MapsClient mapsClient;
+    private final SingleFlight<Lookup, Car> lookups;
+    private final ReplicaRoutingDataSource router;
+    private final CarReadModel readModel;
+    private final CarFacets facets;
+    private final CarSearchIndex searchIndex;
+    private final CarWarmup warmup;
 
-    public CarService(CarRepository carRepository, PriceClient priceClient, MapsClient mapsClient) {
+    /**
+     * @param readModel     serves the reads once it is loaded, if present
+     * @param warmup        caches the price and address of written cars, if present
+     * @param dataSource    routes the reads to the primary or a replica, if it wraps a ReplicaRoutingDataSource
+     * @param lookupMaxWait how long a lookup waits for the same lookup of another caller
+     */
+    public CarService(CarRepository carRepository, PriceClient priceClient, MapsClient mapsClient,
+                      MeterRegistry meterRegistry, Optional<CarReadModel> readModel, CarFacets facets,
+                      CarSearchIndex searchIndex, Optional<CarWarmup> warmup,
+                      DataSource dataSource,
+                      @Value("${vehicles.lookup.max-wait:3s}") Duration lookupMaxWait) {
         this.carRepository = carRepository;
         this.priceClient = priceClient;
         this.mapsClient = mapsClient;
+        this.lookups = new SingleFlight<>("car.lookup", meterRegistry, lookupMaxWait, CarService::copyOf);
+        this.router = router(dataSource);
+        this.readModel = readModel.orElse(null);
+        this.facets = facets;
+        this.searchIndex = searchIndex;
+        this.warmup = warmup.orElse(null);
     }
 
     /**
      * Gathers a list of all vehicles
      *
-     * @return a list of all vehicles in the CarRepository
+     * @return a list of all vehicles in the CarRepository, ordered by ID
      */
     public List<Car> list() {
-        logger.info("Getting list of all cars ...");
-        return carRepository.findAll().stream()
-                .map(this::getPriceAndLocation)
+        return list(PriceQuery.all());
+    }
+
+    /**
+     * Gathers the vehicles within a price range, ordered by ID or by price.
+     *
+     * @param query the price range and order
+     * @return the matching vehicles with their price and location
+     * @see #forEach(PriceQuery, Consumer)
+     */
+    public List<Car> list(PriceQuery query) {
+        List<Car> result = new ArrayList<>();
+        forEach(query, result::add);
+        return result;
+    }
+
+    /**
+     * Hands the vehicles within a price range to {@code action}, ordered by ID
+     * or by price, with their price and location.
+     *
+     * @see #forEach(PriceQuery, CarFields, Consumer)
+     */
+    public void forEach(PriceQuery query, Consumer<Car> action) {
+        forEach(query, CarFields.all(), action);
+    }
+
+    /**
+     * Hands the vehicles within a price range to {@code action}, ordered by ID
+     * or by price. Prices are read through the PriceClient cache before any
+     * address is looked up, so filtered out cars cost no call to the maps API,
+     * and the remaining addresses are looked up in batches. Cars are only
+     * priced and located as far as {@code fields} and the query need it.
+     * <p>
+     * Ordered by ID, cars are read, priced and located {@value #LIST_BATCH_SIZE}
+     * at a time, and each batch is handed over before the next one is read, so
+     * memory use does not grow with the number of cars. Ordered by price, all
+     * matching cars have to be gathered and sorted first.
+     *
+     * @param query  the price range and order
+     * @param fields the fields that will be read from each vehicle
+     * @param action receives each matching vehicle
+     */
+    public void forEach(PriceQuery query, CarFields fields, Consumer<Car> action) {
+        logger.info("Getting list of cars with fields {} ...", fields);
+        boolean priced = fields.needsPrice() || query.isRestricted() || query.getOrder() != null;
+        boolean located = fields.needsAddress();
+        if (query.getOrder() != null) {
+            List<Car> cars = readAll().stream()
+                    .map(this::withPrice)
+                    .filter(query::matches)
+                    .sorted(query.comparator())
+                    .collect(Collectors.toList());
+            if (located) {
+                mapsClient.getAddresses(locations(cars));
+            }
+            cars.forEach(action);
+            return;
+        }
+        long after = Long.MIN_VALUE;
+        List<Car> batch;
+        do {
+            batch = readAfter(after);
+            if (batch.isEmpty()) {
+                break;
+            }
+            after = batch.get(batch.size() - 1).getId();
+            List<Car> cars = batch;
+            if (priced) {
+                cars = batch.stream()
+                        .map(this::withPrice)
+                        .filter(query::matches)
+                        .collect(Collectors.toList());
+            }
+            if (located) {
+                mapsClient.getAddresses(locations(cars));
+            }
+            cars.forEach(action);
+        } while (batch.size() == LIST_BATCH_SIZE);
+    }
+
+    /**
+     * Finds the vehicles matching any word of {@code text} in their model,
+     * manufacturer, body, engine, fuel type or color, best matches first.
+     *
+     * @param text     free text, such as {@code red diesel sedan}
+     * @param pageable the page of matches to return, starting within the first {@value #MAX_SEARCH_HITS}
+     * @param fields   the fields that will be read from each vehicle
+     * @return the vehicles on that page, priced and located as far as
+     * {@code fields} need it, and the number of matching vehicles up to
+     * {@value #MAX_SEARCH_HITS}
+     */
+    public Page<Car> search(String text, Pageable pageable, CarFields fields) {
+        logger.info("Searching cars for '{}' ...", text);
+        Page<Long> ids = searchIndex.search(text, pageable);
+        Map<Long, Car> found = new HashMap<>();
+        for (Car car : read(ids.getContent())) {
+            found.put(car.getId(), car);
+        }
+        // ranked, and without cars deleted since they were found
+        List<Car> cars = ids.getContent().stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
+        if (fields.needsPrice()) {
+            cars.forEach(this::withPrice);
+        }
+        if (fields.needsAddress()) {
+            mapsClient.getAddresses(locations(cars));
+        }
+        return new PageImpl<>(cars, pageable, ids.getTotalElements());
+    }
+
+    private List<Car> read(List<Long> ids) {
+        if (!readsFromModel()) {
+            return carRepository.findAllById(ids);
+        }
+        List<Car> cars = new ArrayList<>(ids.size());
+        ids.forEach(id -> readModel.findById(id).ifPresent(cars::add));
+        return cars;
+    }
+
+    private List<Car> readAll() {
+        return readsFromModel() ? readModel.findAll() : carRepository.findAll(Sort.by("id"));
+    }
+
+    private List<Car> readAfter(long after) {
+        return readsFromModel()
+                ? readModel.findAfter(after, LIST_BATCH_SIZE)
+                : carRepository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, LIST_BATCH_SIZE));
+    }
+
+    private Optional<Car> read(Long id) {
+        return readsFromModel() ? readModel.findById(id) : carRepository.findById(id);
+    }
+
+    private boolean readsFromModel() {
+        return readModel != null && readModel.isLoaded();
+    }
+
+    private static List<Location> locations(List<Car> cars) {
+        return cars.stream().map(Car::getLocation).collect(Collectors.toList());
     }
 
-    private Car getPriceAndLocation(Car car) {
+    private Car withPrice(Car car) {
         car.setPrice(priceClient.getPrice(car.getId()));
-        car.setLocation(mapsClient.getAddress(car.getLocation()));
         return car;
     }
 
@@ -59,42 +242,133 @@ public class CarService {
      * @return the requested car's information, including location and price
      */
     public Car findById(Long id) {
+        return findById(id, CarFields.all());
+    }
+
+    /**
+     * Gets car information by ID (or throws exception if non-existent),
+     * only priced and located as far as {@code fields} need it.
+     * <p>
+     * Concurrent lookups of the same car and fields, whose reads go to the
+     * same database, share a single read and enrichment, and each receive a
+     * Car of their own.
+     *
+     * @param id     the ID number of the car to gather information on
+     * @param fields the fields that will be read from the vehicle
+     * @return the requested car's information
+     */
+    public Car findById(Long id, CarFields fields) {
+        // a lookup pinned to the primary must not be answered by a read of a replica
+        boolean primary = router == null || router.readsFromPrimary();
+        return lookups.load(new Lookup(id, fields, primary), () -> load(id, fields));
+    }
+
+    private static ReplicaRoutingDataSource router(DataSource dataSource) {
+        try {
+            return dataSource.isWrapperFor(ReplicaRoutingDataSource.class)
+                    ? dataSource.unwrap(ReplicaRoutingDataSource.class)
+                    : null;
+        } catch (SQLException e) {
+            throw new IllegalStateException("Cannot tell how reads are routed", e);
+        }
+    }
+
+    private static Car copyOf(Car car) {
+        Car copy = new Car();
+        copy.setId(car.getId());
+        copy.setCreatedAt(car.getCreatedAt());
+        copy.setModifiedAt(car.getModifiedAt());
+        copy.setCondition(car.getCondition());
+        copy.setDetails(car.getDetails() == null ? null : copyOf(car.getDetails()));
+        copy.setLocation(car.getLocation() == null ? null : copyOf(car.getLocation()));
+        copy.setPrice(car.getPrice());
+        return copy;
+    }
+
+    private static Details copyOf(Details details) {
+        Details copy = new Details();
+        copy.setBody(details.getBody());
+        copy.setModel(details.getModel());
+        Manufacturer manufacturer = details.getManufacturer();
+        copy.setManufacturer(manufacturer == null
+                ? null
+                : new Manufacturer(manufacturer.getCode(), manufacturer.getName()));
+        copy.setNumberOfDoors(details.getNumberOfDoors());
+        copy.setFuelType(details.getFuelType());
+        copy.setEngine(details.getEngine());
+        copy.setMileage(details.getMileage());
+        copy.setModelYear(details.getModelYear());
+        copy.setProductionYear(details.getProductionYear());
+        copy.setExternalColor(details.getExternalColor());
+        return copy;
+    }
+
+    private static Location copyOf(Location location) {
+        Location copy = new Location(location.getLat(), location.getLon());
+        copy.setAddress(location.getAddress());
+        copy.setCity(location.getCity());
+        copy.setState(location.getState());
+        copy.setZip(location.getZip());
+        return copy;
+    }
+
+    private Car load(Long id, CarFields fields) {
         logger.info("Looking for car with id " + id);
 
-        Optional<Car> carOptional = carRepository.findById(id);
+        Optional<Car> carOptional = read(id);
         if (carOptional.isEmpty()) {
             throw new CarNotFoundException("Car not found for id = " + id);
         }
 
         Car car = carOptional.get();
-        String price = priceClient.getPrice(id);
-        car.setPrice(price);
+        if (fields.needsPrice()) {
+            car.setPrice(priceClient.getPrice(id));
+        }
 
-        Location location = mapsClient.getAddress(car.getLocation());
-        car.setLocation(location);
+        if (fields.needsAddress()) {
+            Location location = mapsClient.getAddress(car.getLocation());
+            car.setLocation(location);
+        }
         return car;
     }
 
     /**
-     * Either creates or updates a vehicle, based on prior existence of car
+     * Counts the vehicles matching {@code filter}, in total and per value of
+     * each facet, without reading them.
+     *
+     * @param filter the values the vehicles must have
+     * @return the counts of the matching vehicles
+     */
+    public Facets facets(FacetFilter filter) {
+        logger.info("Counting cars with {}", filter);
+        return facets.count(filter);
+    }
+
+    /**
+     * Either creates or updates a vehicle, based on prior existence of car.
+     * The read model, if any, sees the change once it is committed, and the
+     * price and address of the car are then fetched in the background, so
+     * that its first read finds them cached.
      *
      * @param car A car object, which can be either new or existing
      * @return the new/updated car is stored in the repository
      */
+    @Transactional
     public Car save(Car car) {
         if (car.getId() != null) {
             logger.info("Updating info for car : " + car.getId());
             return carRepository.findById(car.getId())
                     .map(carToBeUpdated -> {
+                        CarFacets.Key before = CarFacets.Key.of(carToBeUpdated);
                         carToBeUpdated.setCondition(car.getCondition());
                         carToBeUpdated.setDetails(car.getDetails());
                         carToBeUpdated.setLocation(car.getLocation());
-                        return carRepository.save(carToBeUpdated);
+                        return written(before, carRepository.save(carToBeUpdated));
                     }).orElseThrow(CarNotFoundException::new);
         }
 
         logger.info("Creating new car record ...");
-        return carRepository.save(car);
+        return written(null, carRepository.save(car));
     }
 
     /**
@@ -102,6 +376,7 @@ public class CarService {
      *
      * @param id the ID number of the car to delete
      */
+    @Transactional
     public void delete(Long id) {
         logger.info("Trying to delete car with id " + id);
         Optional<Car> carOptional = carRepository.findById(id);
@@ -109,5 +384,53 @@ public class CarService {
             throw new CarNotFoundException("Car not found for id : " + id);
         }
         carRepository.delete(carOptional.get());
+        facets.deleted(CarFacets.Key.of(carOptional.get()));
+        searchIndex.remove(id);
+        if (readModel != null) {
+            readModel.remove(id);
+        }
+    }
+
+    private Car written(CarFacets.Key before, Car car) {
+        facets.written(before, car);
+        searchIndex.put(car);
+        if (readModel != null) {
+            readModel.put(car);
+        }
+        if (warmup != null) {
+            warmup.warm(car);
+        }
+        return car;
+    }
+
+    // what concurrent lookups must have in common to share a load
+    private static final class Lookup {
+
+        private final Long id;
+        private final CarFields fields;
+        private final boolean primary;
+
+        private Lookup(Long id, CarFields fields, boolean primary) {
+            this.id = id;
+            this.fields = fields;
+            this.primary = primary;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Lookup)) {
+                return false;
+            }
+            Lookup other = (Lookup) o;
+            return primary == other.primary && id.equals(other.id) && fields.equals(other.fields);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, fields, primary);
+        }
     }
 }
@@ -0,0 +1,103 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.client.maps.MapsClient;
+import com.kpatil.vehicles.client.prices.PriceClient;
+import com.kpatil.vehicles.domain.Location;
+import com.kpatil.vehicles.domain.car.Car;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches the price and address of written cars in the background, once
+ * their transaction commits, so that they are cached by the PriceClient and
+ * the MapsClient before the first read asks for them. The write does not
+ * wait for it.
+ * <p>
+ * Warmups run on {@code vehicles.warmup.threads} threads and wait in a queue
+ * of at most {@code vehicles.warmup.queue-capacity}. Warmups arriving at a
+ * full queue are dropped, and the first read of those cars fetches as before.
+ * <p>
+ * Metrics: {@code car.warmup.queue} (warmups waiting), {@code car.warmup}
+ * (time from commit until the car is cached) and {@code car.warmup.shed}
+ * (warmups dropped).
+ */
+@Component
+@ConditionalOnProperty(prefix = "vehicles.warmup", name = "enabled", matchIfMissing = true)
+class CarWarmup implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(CarWarmup.class);
+
+    private final PriceClient priceClient;
+    private final MapsClient mapsClient;
+    private final ThreadPoolExecutor executor;
+    private final Timer latency;
+    private final Counter shed;
+
+    CarWarmup(PriceClient priceClient, MapsClient mapsClient, MeterRegistry meterRegistry,
+              @Value("${vehicles.warmup.threads:2}") int threads,
+              @Value("${vehicles.warmup.queue-capacity:1000}") int queueCapacity) {
+        this.priceClient = priceClient;
+        this.mapsClient = mapsClient;
+        AtomicInteger count = new AtomicInteger();
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue, runnable -> {
+            Thread thread = new Thread(runnable, "car-warmup-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.latency = meterRegistry.timer("car.warmup");
+        this.shed = meterRegistry.counter("car.warmup.shed");
+        meterRegistry.gauge("car.warmup.queue", queue, BlockingQueue::size);
+    }
+
+    /**
+     * Caches the price and address of the car once the current transaction,
+     * if any, commits.
+     */
+    void warm(Car car) {
+        Long id = car.getId();
+        Location location = car.getLocation();
+        // a copy, as the saved car is handed back to the caller meanwhile
+        Location copy = location == null ? null : new Location(location.getLat(), location.getLon());
+        Transactions.afterCommit(() -> submit(id, copy));
+    }
+
+    private void submit(Long id, Location location) {
+        long start = System.nanoTime();
+        try {
+            executor.execute(() -> {
+                try {
+                    priceClient.getPrice(id);
+                    if (location != null) {
+                        mapsClient.getAddress(location);
+                    }
+                } catch (RuntimeException e) {
+                    logger.warn("Could not warm up car {}", id, e);
+                } finally {
+                    latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            shed.increment();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,51 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.domain.Condition;
+
+/**
+ * Restricts facet counts to the cars with the given values. Each value is
+ * optional; a filter without any counts every car.
+ */
+public class FacetFilter {
+
+    private static final FacetFilter ALL = new FacetFilter(null, null, null, null, null);
+
+    private final Integer manufacturer;
+    private final Condition condition;
+    private final String body;
+    private final String fuelType;
+    private final Integer modelYear;
+
+    /**
+     * @param manufacturer code of the manufacturer, or null
+     * @param condition    condition, or null
+     * @param body         body, or null
+     * @param fuelType     fuel type, or null
+     * @param modelYear    model year, or null
+     */
+    public FacetFilter(Integer manufacturer, Condition condition, String body, String fuelType, Integer modelYear) {
+        this.manufacturer = manufacturer;
+        this.condition = condition;
+        this.body = body;
+        this.fuelType = fuelType;
+        this.modelYear = modelYear;
+    }
+
+    public static FacetFilter all() {
+        return ALL;
+    }
+
+    boolean matches(CarFacets.Key key) {
+        return (manufacturer == null || manufacturer.equals(key.manufacturer))
+                && (condition == null || condition == key.condition)
+                && (body == null || body.equals(key.body))
+                && (fuelType == null || fuelType.equals(key.fuelType))
+                && (modelYear == null || modelYear.equals(key.modelYear));
+    }
+
+    @Override
+    public String toString() {
+        return "manufacturer=" + manufacturer + ", condition=" + condition + ", body=" + body
+                + ", fuelType=" + fuelType + ", modelYear=" + modelYear;
+    }
+}
@@ -0,0 +1,63 @@
+package com.kpatil.vehicles.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The number of cars matching a FacetFilter, in total and per value of each
+ * facet, most frequent values first. Cars without a value for a facet only
+ * count in the total.
+ */
+public final class Facets {
+
+    private final long total;
+    private final Map<String, List<Count>> facets;
+
+    public Facets(long total, Map<String, List<Count>> facets) {
+        this.total = total;
+        this.facets = facets;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return the counts of manufacturer, condition, body, fuelType and modelYear, in that order
+     */
+    public Map<String, List<Count>> getFacets() {
+        return facets;
+    }
+
+    /**
+     * The number of cars with a value of a facet. The value is the one to
+     * filter by; the label names it where it is a code.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static final class Count {
+
+        private final String value;
+        private final String label;
+        private final long count;
+
+        public Count(String value, String label, long count) {
+            this.value = value;
+            this.label = label;
+            this.count = count;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.domain.Money;
+import com.kpatil.vehicles.domain.car.Car;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+
+/**
+ * Restricts a listing of cars to a price range and optionally orders it by
+ * price. Cars without a known price are excluded by any restriction and
+ * listed last when ordering by price.
+ */
+public class PriceQuery {
+
+    private static final PriceQuery ALL = new PriceQuery(null, null, null, null);
+
+    private final BigDecimal minPrice;
+    private final BigDecimal maxPrice;
+    private final String currency;
+    private final Sort.Direction order;
+
+    /**
+     * @param minPrice lowest price to include, or null
+     * @param maxPrice highest price to include, or null
+     * @param currency only include prices in this ISO currency, or null
+     * @param order    direction to order by price, or null to keep ID order
+     */
+    public PriceQuery(BigDecimal minPrice, BigDecimal maxPrice, String currency, Sort.Direction order) {
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.currency = currency;
+        this.order = order;
+    }
+
+    public static PriceQuery all() {
+        return ALL;
+    }
+
+    public BigDecimal getMinPrice() {
+        return minPrice;
+    }
+
+    public BigDecimal getMaxPrice() {
+        return maxPrice;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public Sort.Direction getOrder() {
+        return order;
+    }
+
+    boolean isRestricted() {
+        return minPrice != null || maxPrice != null || currency != null;
+    }
+
+    boolean matches(Car car) {
+        if (!isRestricted()) {
+            return true;
+        }
+        Money price = car.getPrice();
+        if (price == null) {
+            return false;
+        }
+        return (currency == null || currency.equalsIgnoreCase(price.getCurrency()))
+                && (minPrice == null || price.getAmount().compareTo(minPrice) >= 0)
+                && (maxPrice == null || price.getAmount().compareTo(maxPrice) <= 0);
+    }
+
+    Comparator<Car> comparator() {
+        Comparator<Money> prices = order == Sort.Direction.DESC
+                ? Comparator.reverseOrder()
+                : Comparator.naturalOrder();
+        return Comparator.comparing(Car::getPrice, Comparator.nullsLast(prices))
+                .thenComparing(Car::getId);
+    }
+}
@@ -0,0 +1,94 @@
+package com.kpatil.vehicles.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Coalesces concurrent loads of the same key: the first caller loads, and
+ * callers arriving while that load is in flight wait for it and receive a
+ * copy of its value, or the same exception. A caller that has waited for
+ * longer than the maximum wait loads on its own instead. Nothing is kept
+ * once the load is done, so a later call loads again.
+ * <p>
+ * Metrics, tagged with the name: {@code coalesce.calls} (every call),
+ * {@code coalesce.shared} (calls that waited for another caller's load) and
+ * {@code coalesce.timeouts} (those of them that stopped waiting and loaded);
+ * the ratio of shared less timeouts to calls is the share of loads saved.
+ */
+final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final long maxWaitNanos;
+    private final UnaryOperator<V> copy;
+    private final Counter calls;
+    private final Counter shared;
+    private final Counter timeouts;
+
+    /**
+     * @param maxWait how long a caller waits for the load of another
+     * @param copy    copies the loaded value for each caller that waited for it
+     */
+    SingleFlight(String name, MeterRegistry registry, Duration maxWait, UnaryOperator<V> copy) {
+        this.maxWaitNanos = maxWait.toNanos();
+        this.copy = copy;
+        this.calls = registry.counter("coalesce.calls", "name", name);
+        this.shared = registry.counter("coalesce.shared", "name", name);
+        this.timeouts = registry.counter("coalesce.timeouts", "name", name);
+    }
+
+    /**
+     * Loads the value of {@code key}, or waits for the load already in flight.
+     */
+    V load(K key, Supplier<V> loader) {
+        calls.increment();
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            shared.increment();
+            try {
+                return copy.apply(await(existing));
+            } catch (TimeoutException e) {
+                timeouts.increment();
+                return loader.get();
+            }
+        }
+        try {
+            V value = loader.get();
+            flight.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private V await(CompletableFuture<V> flight) throws TimeoutException {
+        try {
+            return flight.get(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a load", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.client.maps.MapsClient;
+import com.kpatil.vehicles.client.prices.PriceClient;
+import com.kpatil.vehicles.domain.Location;
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.domain.car.CarRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the search index and caches the prices and addresses of the most
+ * recently listed cars once the application has started, so that the first
+ * searches and reads after a deploy do not wait for the index, nor all wait
+ * for the pricing and maps services. Until it is done the {@code
+ * startupWarmup} health is OUT_OF_SERVICE, and so is the overall health, which
+ * keeps load balancers checking it from sending traffic to a cold instance.
+ * <p>
+ * The newest {@code vehicles.startup-warmup.cars} cars are split in chunks of
+ * {@value #CHUNK_SIZE}, warmed on {@code vehicles.startup-warmup.parallelism}
+ * threads: each car is priced, and the addresses of a chunk are looked up
+ * through the Maps batch endpoint. After {@code vehicles.startup-warmup.timeout}
+ * the health is UP regardless, and the rest is warmed by the first reads.
+ * <p>
+ * Metrics: {@code startup.warmup.time} (how long the warmup took) and {@code
+ * startup.ready.time} (JVM start until warm).
+ */
+@Component
+@ConditionalOnProperty(prefix = "vehicles.startup-warmup", name = "enabled", matchIfMissing = true)
+class StartupWarmup implements ApplicationListener<ApplicationReadyEvent>, HealthIndicator {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmup.class);
+
+    // Cars priced and located by a single task; the addresses of a chunk are looked up together
+    static final int CHUNK_SIZE = 64;
+
+    private final CarRepository carRepository;
+    private final CarSearchIndex searchIndex;
+    private final PriceClient priceClient;
+    private final MapsClient mapsClient;
+    private final int cars;
+    private final int parallelism;
+    private final Duration timeout;
+
+    private final AtomicInteger warmed = new AtomicInteger();
+    private volatile int total = -1;
+    private volatile boolean done;
+    private volatile long warmupMillis;
+    private volatile long readyMillis;
+
+    StartupWarmup(CarRepository carRepository, CarSearchIndex searchIndex, PriceClient priceClient,
+                  MapsClient mapsClient, MeterRegistry meterRegistry,
+                  @Value("${vehicles.startup-warmup.cars:1000}") int cars,
+                  @Value("${vehicles.startup-warmup.parallelism:4}") int parallelism,
+                  @Value("${vehicles.startup-warmup.timeout:2m}") Duration timeout) {
+        this.carRepository = carRepository;
+        this.searchIndex = searchIndex;
+        this.priceClient = priceClient;
+        this.mapsClient = mapsClient;
+        this.cars = cars;
+        this.parallelism = parallelism;
+        this.timeout = timeout;
+        TimeGauge.builder("startup.warmup.time", this, TimeUnit.MILLISECONDS, warmup -> warmup.warmupMillis)
+                .register(meterRegistry);
+        TimeGauge.builder("startup.ready.time", this, TimeUnit.MILLISECONDS, warmup -> warmup.readyMillis)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        Thread thread = new Thread(this::warm, "startup-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Builds the search index, warms the caches and reports UP once done or timed out.
+     */
+    void warm() {
+        long start = System.nanoTime();
+        try {
+            searchIndex.build();
+        } catch (RuntimeException e) {
+            logger.warn("Building the search index failed, the first search will build it", e);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "startup-warmup-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Car> newest = carRepository.findAll(
+                    PageRequest.of(0, Math.max(cars, 1), Sort.by(Sort.Direction.DESC, "id"))).getContent();
+            total = newest.size();
+            for (int from = 0; from < newest.size(); from += CHUNK_SIZE) {
+                List<Car> chunk = newest.subList(from, Math.min(from + CHUNK_SIZE, newest.size()));
+                executor.execute(() -> warm(chunk));
+            }
+            executor.shutdown();
+            if (!executor.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("Startup warmup timed out after {} of {} cars, serving anyway", warmed.get(), total);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.warn("Startup warmup failed, serving anyway", e);
+        } finally {
+            executor.shutdownNow();
+            warmupMillis = (System.nanoTime() - start) / 1_000_000;
+            readyMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+            done = true;
+        }
+        logger.info("Warmed up the prices and addresses of {} cars in {} ms, ready {} ms after JVM start",
+                warmed.get(), warmupMillis, readyMillis);
+    }
+
+    private void warm(List<Car> chunk) {
+        for (Car car : chunk) {
+            priceClient.getPrice(car.getId());
+        }
+        List<Location> locations = chunk.stream().map(Car::getLocation).collect(Collectors.toList());
+        mapsClient.getAddresses(locations);
+        warmed.addAndGet(chunk.size());
+    }
+
+    @Override
+    public Health health() {
+        if (!done) {
+            return Health.outOfService()
+                    .withDetail("warmed", warmed.get())
+                    .withDetail("cars", Math.max(total, 0))
+                    .build();
+        }
+        return Health.up()
+                .withDetail("warmed", warmed.get())
+                .withDetail("warmupMillis", warmupMillis)
+                .withDetail("readyMillis", readyMillis)
+                .build();
+    }
+}
@@ -0,0 +1,30 @@
+package com.kpatil.vehicles.service;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Helpers for in-memory state that follows what is written to the database.
+ */
+final class Transactions {
+
+    private Transactions() {
+    }
+
+    /**
+     * Runs {@code change} once the current transaction commits, and not at all
+     * if it rolls back. Without a transaction it runs right away.
+     */
+    static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,34 @@
+CREATE SEQUENCE hibernate_sequence START WITH 1 INCREMENT BY 1;
+
+CREATE TABLE manufacturer (
+    code INTEGER NOT NULL,
+    name VARCHAR(255),
+    PRIMARY KEY (code)
+);
+
+CREATE TABLE car (
+    id BIGINT NOT NULL,
+    created_at TIMESTAMP,
+    modified_at TIMESTAMP,
+    condition VARCHAR(255) NOT NULL,
+    body VARCHAR(255),
+    model VARCHAR(255),
+    manufacturer_code INTEGER,
+    number_of_doors INTEGER,
+    fuel_type VARCHAR(255),
+    engine VARCHAR(255),
+    mileage INTEGER,
+    model_year INTEGER,
+    production_year INTEGER,
+    external_color VARCHAR(255),
+    lat DOUBLE,
+    lon DOUBLE,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_car_manufacturer FOREIGN KEY (manufacturer_code) REFERENCES manufacturer (code)
+);
+
+INSERT INTO manufacturer (code, name) VALUES (100, 'Audi');
+INSERT INTO manufacturer (code, name) VALUES (101, 'Chevrolet');
+INSERT INTO manufacturer (code, name) VALUES (102, 'Ford');
+INSERT INTO manufacturer (code, name) VALUES (103, 'BMW');
+INSERT INTO manufacturer (code, name) VALUES (104, 'Dodge');
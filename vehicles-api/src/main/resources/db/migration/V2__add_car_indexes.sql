@@ -0,0 +1,8 @@
+-- Filters used by the listing and search endpoints.
+CREATE INDEX idx_car_condition ON car (condition);
+CREATE INDEX idx_car_manufacturer_code ON car (manufacturer_code);
+CREATE INDEX idx_car_model_year ON car (model_year);
+CREATE INDEX idx_car_location ON car (lat, lon);
+
+-- The default listing is ordered by id. H2 stores the table clustered on its
+-- BIGINT primary key, so that scan is already covered and needs no extra index.
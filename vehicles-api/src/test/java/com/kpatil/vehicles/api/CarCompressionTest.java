@@ -0,0 +1,121 @@
+package com.kpatil.vehicles.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kpatil.vehicles.client.maps.MapsClient;
+import com.kpatil.vehicles.client.prices.PriceClient;
+import com.kpatil.vehicles.domain.Money;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Implements testing of response compression over HTTP, together with
+ * sparse fieldsets.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class CarCompressionTest {
+
+    private static final int CARS = 200;
+    // well above the ids handed out by the sequence to other tests
+    private static final long FIRST_ID = 2_000_000;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private PriceClient priceClient;
+
+    @MockBean
+    private MapsClient mapsClient;
+
+    @Before
+    public void insertCars() {
+        given(priceClient.getPrice(anyLong())).willReturn(new Money(new BigDecimal("19999.99"), "USD"));
+        given(mapsClient.getAddresses(any())).willAnswer(invocation -> invocation.getArgument(0));
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(CARS);
+        for (long id = FIRST_ID; id < FIRST_ID + CARS; id++) {
+            rows.add(new Object[]{id, now, now, "USED", "sedan", "Impala", 101, 4, "Gasoline", "3.6L V6",
+                    32280, 2018, 2018, "white", 40.730610, -73.935242});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO car (id, created_at, modified_at, condition, body, model,"
+                + " manufacturer_code, number_of_doors, fuel_type, engine, mileage, model_year, production_year,"
+                + " external_color, lat, lon) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    @After
+    public void deleteCars() {
+        jdbcTemplate.update("DELETE FROM car WHERE id >= ?", FIRST_ID);
+    }
+
+    @Test
+    public void compressesListings() throws Exception {
+        String fields = "/cars?fields=id,details.model,price,location.city";
+        HttpResponse<byte[]> plain = get("/cars", false);
+        HttpResponse<byte[]> gzipped = get("/cars", true);
+        HttpResponse<byte[]> sparseGzipped = get(fields, true);
+
+        assertThat(plain.headers().firstValue("Content-Encoding")).isEmpty();
+        assertThat(gzipped.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        assertThat(sparseGzipped.headers().firstValue("Content-Encoding")).hasValue("gzip");
+        assertThat(objectMapper.readTree(gunzip(gzipped.body()))).isEqualTo(objectMapper.readTree(plain.body()));
+        JsonNode car = objectMapper.readTree(gunzip(sparseGzipped.body())).at("/_embedded/carList/0");
+        assertThat(car.fieldNames()).containsExactly("id", "details", "location", "price");
+        assertThat(gzipped.body().length * 5).isLessThan(plain.body().length);
+    }
+
+    @Test
+    public void leavesSmallResponsesUncompressed() throws Exception {
+        HttpResponse<byte[]> response = get("/cars/" + FIRST_ID + "?fields=id,details.model", true);
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Encoding")).isEmpty();
+        assertThat(objectMapper.readTree(response.body()).path("details").path("model").asText()).isEqualTo("Impala");
+    }
+
+    private HttpResponse<byte[]> get(String path, boolean gzip) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path));
+        if (gzip) {
+            request.header("Accept-Encoding", "gzip");
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+
+    private static byte[] gunzip(byte[] body) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+}
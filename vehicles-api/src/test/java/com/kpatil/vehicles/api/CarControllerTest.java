@@ -1,13 +1,24 @@
 package com.kpatil.vehicles.api;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.kpatil.vehicles.api.proto.CarProtos;
 import com.kpatil.vehicles.client.maps.MapsClient;
 import com.kpatil.vehicles.client.prices.PriceClient;
+import com.kpatil.vehicles.config.BinaryFormatsConfig;
 import com.kpatil.vehicles.domain.Condition;
 import com.kpatil.vehicles.domain.Location;
+import com.kpatil.vehicles.domain.Money;
 import com.kpatil.vehicles.domain.car.Car;
 import com.kpatil.vehicles.domain.car.Details;
 import com.kpatil.vehicles.domain.manufacturer.Manufacturer;
+import com.kpatil.vehicles.service.CarFields;
 import com.kpatil.vehicles.service.CarService;
+import com.kpatil.vehicles.service.FacetFilter;
+import com.kpatil.vehicles.service.Facets;
+import com.kpatil.vehicles.service.PriceQuery;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -18,20 +29,37 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.json.JacksonTester;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.MediaTypes;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.hal.Jackson2HalModule;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.math.BigDecimal;
 import java.net.URI;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -67,8 +95,11 @@ public class CarControllerTest {
         Car car = getCar();
         car.setId(1L);
         given(carService.save(any())).willReturn(car);
-        given(carService.findById(any())).willReturn(car);
-        given(carService.list()).willReturn(Collections.singletonList(car));
+        given(carService.findById(any(), any())).willReturn(car);
+        willAnswer(invocation -> {
+            invocation.<Consumer<Car>>getArgument(2).accept(car);
+            return null;
+        }).given(carService).forEach(any(), any(), any());
     }
 
     /**
@@ -92,6 +123,25 @@ public class CarControllerTest {
         assertThat(carCaptor.getValue().getDetails().getManufacturer().getName()).isEqualTo(car.getDetails().getManufacturer().getName());
     }
 
+    /**
+     * Tests that a price with more decimal places than its currency uses is
+     * rejected instead of rounded.
+     *
+     * @throws Exception if the request cannot be performed
+     */
+    @Test
+    public void rejectsPricesWithMoreDecimalPlacesThanTheCurrency() throws Exception {
+        String car = json.write(getCar()).getJson()
+                .replaceFirst("\"price\":\\{[^}]*}", "\"price\":{\"amount\":19999.995,\"currency\":\"USD\"}");
+        mvc.perform(
+                post(new URI("/cars"))
+                        .content(car)
+                        .contentType(MediaType.APPLICATION_JSON_UTF8)
+                        .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+        verify(carService, never()).save(any());
+    }
+
     /**
      * Tests for successful update of a car in the system
      *
@@ -138,7 +188,65 @@ public class CarControllerTest {
                 .andExpect(jsonPath("_embedded.carList[0].details.fuelType", is(car.getDetails().getFuelType())))
                 .andExpect(jsonPath("_embedded.carList[0].details.numberOfDoors", is(car.getDetails().getNumberOfDoors())))
                 .andExpect(jsonPath("_embedded.carList[0].condition", is(car.getCondition().name())));
-        verify(carService, times(1)).list();
+        verify(carService, times(1)).forEach(any(), any(), any());
+    }
+
+    /**
+     * Tests that the streamed listing reads back as the HAL resources it used
+     * to be rendered from.
+     *
+     * @throws Exception if the listing cannot be read as resources
+     */
+    @Test
+    public void listCarsAsResources() throws Exception {
+        byte[] body = mvc.perform(get(new URI("/cars")).accept(MediaTypes.HAL_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        ObjectMapper hal = new ObjectMapper().registerModule(new Jackson2HalModule()).findAndRegisterModules();
+        Resources<Resource<Car>> listing = hal.readValue(body, new TypeReference<Resources<Resource<Car>>>() { });
+        assertThat(listing.getLink(Link.REL_SELF).getHref()).isEqualTo("http://localhost/cars");
+        assertThat(listing.getContent()).hasSize(1);
+        Resource<Car> resource = listing.getContent().iterator().next();
+        assertThat(resource.getContent().getDetails().getModel()).isEqualTo("Impala");
+        assertThat(resource.getContent().getPrice().getAmount()).isEqualByComparingTo("19999.99");
+        assertThat(resource.getLink(Link.REL_SELF).getHref()).endsWith("/cars/1");
+        assertThat(resource.getLink("cars").getHref()).isEqualTo("http://localhost/cars");
+        assertThat(resource.getLink("cars").isTemplated()).isFalse();
+    }
+
+    /**
+     * Tests that the price range and order of a listing are passed to the service
+     * and that prices are returned as amount and currency.
+     *
+     * @throws Exception if the read operation of the vehicle list fails
+     */
+    @Test
+    public void listCarsByPrice() throws Exception {
+        mvc.perform(get(new URI("/cars?minPrice=10000&maxPrice=25000.50&currency=USD&sort=price,desc"))
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("_embedded.carList[0].price.amount", is(19999.99)))
+                .andExpect(jsonPath("_embedded.carList[0].price.currency", is("USD")));
+
+        ArgumentCaptor<PriceQuery> queryCaptor = ArgumentCaptor.forClass(PriceQuery.class);
+        verify(carService, times(1)).forEach(queryCaptor.capture(), any(), any());
+        PriceQuery query = queryCaptor.getValue();
+        assertThat(query.getMinPrice()).isEqualByComparingTo("10000");
+        assertThat(query.getMaxPrice()).isEqualByComparingTo("25000.50");
+        assertThat(query.getCurrency()).isEqualTo("USD");
+        assertThat(query.getOrder()).isEqualTo(Sort.Direction.DESC);
+    }
+
+    /**
+     * Tests that an unknown sort order is rejected.
+     *
+     * @throws Exception if the read operation of the vehicle list fails
+     */
+    @Test
+    public void listCarsWithUnsupportedSort() throws Exception {
+        mvc.perform(get(new URI("/cars?sort=mileage")).accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
     }
 
     /**
@@ -157,7 +265,244 @@ public class CarControllerTest {
                 .andExpect(jsonPath("details.externalColor", is(car.getDetails().getExternalColor())))
                 .andExpect(jsonPath("details.productionYear", is(car.getDetails().getProductionYear())))
                 .andExpect(jsonPath("condition", is(car.getCondition().name())));
-        verify(carService, times(1)).findById(1L);
+        verify(carService, times(1)).findById(eq(1L), any());
+    }
+
+    /**
+     * Tests that a sparse fieldset trims the listed cars, drops their links
+     * and is passed to the service, which only enriches what is asked for.
+     *
+     * @throws Exception if the read operation of the vehicle list fails
+     */
+    @Test
+    public void listCarsWithFields() throws Exception {
+        mvc.perform(get(new URI("/cars?fields=id,details.model,price.amount,location.city"))
+                .accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("_embedded.carList[0].id", is(1)))
+                .andExpect(jsonPath("_embedded.carList[0].details.model", is("Impala")))
+                .andExpect(jsonPath("_embedded.carList[0].price.amount", is(19999.99)))
+                .andExpect(jsonPath("_embedded.carList[0].price.currency").doesNotExist())
+                .andExpect(jsonPath("_embedded.carList[0].details.body").doesNotExist())
+                .andExpect(jsonPath("_embedded.carList[0].details.manufacturer").doesNotExist())
+                .andExpect(jsonPath("_embedded.carList[0].location.lat").doesNotExist())
+                .andExpect(jsonPath("_embedded.carList[0].condition").doesNotExist())
+                .andExpect(jsonPath("_embedded.carList[0]._links").doesNotExist())
+                .andExpect(jsonPath("_links.self.href",
+                        startsWith("http://localhost/cars?fields=id,details.model,price.amount,location.city")));
+
+        ArgumentCaptor<CarFields> fieldsCaptor = ArgumentCaptor.forClass(CarFields.class);
+        verify(carService, times(1)).forEach(any(), fieldsCaptor.capture(), any());
+        assertThat(fieldsCaptor.getValue().includes("location.city")).isTrue();
+        assertThat(fieldsCaptor.getValue().includes("location.zip")).isFalse();
+    }
+
+    /**
+     * Tests that a single car is trimmed to the fields asked for, in every format.
+     *
+     * @throws Exception if the read operation for a single car fails
+     */
+    @Test
+    public void findCarWithFields() throws Exception {
+        mvc.perform(get(new URI("/cars/1?fields=id,_links")).accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("id", is(1)))
+                .andExpect(jsonPath("details").doesNotExist())
+                .andExpect(jsonPath("_links.self.href", is("http://localhost/cars/1")));
+        assertThat(read(new ObjectMapper(new SmileFactory()), "/cars/1?fields=id,details.manufacturer",
+                BinaryFormatsConfig.SMILE)).isEqualTo("{\"id\":1,\"details\":{\"manufacturer\":{\"code\":101,\"name\":\"Chevrolet\"}}}");
+        verify(carService, times(2)).findById(eq(1L), any());
+    }
+
+    /**
+     * Tests counting the cars with a filter.
+     *
+     * @throws Exception if the counts cannot be read
+     */
+    @Test
+    public void countCars() throws Exception {
+        given(carService.facets(any())).willReturn(new Facets(3, Map.of(
+                "manufacturer", List.of(new Facets.Count("101", "Chevrolet", 3)),
+                "condition", List.of(new Facets.Count("USED", null, 2), new Facets.Count("NEW", null, 1)))));
+        mvc.perform(get(new URI("/cars/facets?manufacturer=101&modelYear=2018")).accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("total", is(3)))
+                .andExpect(jsonPath("facets.manufacturer[0].value", is("101")))
+                .andExpect(jsonPath("facets.manufacturer[0].label", is("Chevrolet")))
+                .andExpect(jsonPath("facets.condition[1].count", is(1)))
+                .andExpect(jsonPath("facets.condition[1].label").doesNotExist());
+        ArgumentCaptor<FacetFilter> filter = ArgumentCaptor.forClass(FacetFilter.class);
+        verify(carService).facets(filter.capture());
+        assertThat(filter.getValue()).hasToString(
+                "manufacturer=101, condition=null, body=null, fuelType=null, modelYear=2018");
+    }
+
+    /**
+     * Tests a page of search results and its links.
+     *
+     * @throws Exception if the results cannot be read
+     */
+    @Test
+    public void searchCars() throws Exception {
+        Car car = getCar();
+        car.setId(1L);
+        given(carService.search(any(), any(), any())).willAnswer(invocation ->
+                new PageImpl<>(List.of(car), invocation.getArgument(1), 45));
+        mvc.perform(get(new URI("/cars/search?q=white%20sedan&page=1&size=20")).accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("_embedded.carList[0].id", is(1)))
+                .andExpect(jsonPath("_embedded.carList[0].details.model", is("Impala")))
+                .andExpect(jsonPath("page.number", is(1)))
+                .andExpect(jsonPath("page.totalElements", is(45)))
+                .andExpect(jsonPath("page.totalPages", is(3)))
+                .andExpect(jsonPath("_links.prev.href", startsWith("http://localhost/cars/search?q=white%20sedan&page=0&size=20")))
+                .andExpect(jsonPath("_links.next.href", startsWith("http://localhost/cars/search?q=white%20sedan&page=2&size=20")));
+        verify(carService).search(eq("white sedan"), eq(PageRequest.of(1, 20)), eq(CarFields.all()));
+
+        mvc.perform(get(new URI("/cars/search?q=sedan&size=500")).accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get(new URI("/cars/search?q=sedan&page=500")).accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests that an unknown field is rejected.
+     *
+     * @throws Exception if the read operation fails
+     */
+    @Test
+    public void findCarWithUnknownField() throws Exception {
+        mvc.perform(get(new URI("/cars/1?fields=id,vin")).accept(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Tests that listings and single cars are the same HAL documents in the
+     * binary Jackson formats as in JSON.
+     *
+     * @throws Exception if a car cannot be read in one of the formats
+     */
+    @Test
+    public void readCarsAsSmileAndCbor() throws Exception {
+        ObjectMapper json = new ObjectMapper();
+        String listing = json.readTree(mvc.perform(get(new URI("/cars")).accept(MediaTypes.HAL_JSON))
+                .andReturn().getResponse().getContentAsByteArray()).toString();
+        String single = json.readTree(mvc.perform(get(new URI("/cars/1")).accept(MediaTypes.HAL_JSON))
+                .andReturn().getResponse().getContentAsByteArray()).toString();
+
+        ObjectMapper smile = new ObjectMapper(new SmileFactory());
+        ObjectMapper cbor = new ObjectMapper(new CBORFactory());
+        assertThat(read(smile, "/cars", BinaryFormatsConfig.SMILE)).isEqualTo(listing);
+        assertThat(read(smile, "/cars/1", BinaryFormatsConfig.SMILE)).isEqualTo(single);
+        assertThat(read(cbor, "/cars", BinaryFormatsConfig.CBOR)).isEqualTo(listing);
+        assertThat(read(cbor, "/cars/1", BinaryFormatsConfig.CBOR)).isEqualTo(single);
+    }
+
+    private String read(ObjectMapper mapper, String uri, MediaType mediaType) throws Exception {
+        byte[] body = mvc.perform(get(new URI(uri)).accept(mediaType))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(mediaType))
+                .andReturn().getResponse().getContentAsByteArray();
+        return mapper.readTree(body).toString();
+    }
+
+    /**
+     * Tests reading a listing and a single car as protobuf messages.
+     *
+     * @throws Exception if a car cannot be read as protobuf
+     */
+    @Test
+    public void readCarsAsProtobuf() throws Exception {
+        CarProtos.CarList listing = CarProtos.CarList.parseFrom(
+                mvc.perform(get(new URI("/cars?currency=USD")).accept(CarProtobufHttpMessageConverter.PROTOBUF))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsByteArray());
+        assertThat(listing.getCarsCount()).isEqualTo(1);
+        assertThat(listing.getLinks(0).getRel()).isEqualTo("self");
+        assertThat(listing.getLinks(0).getHref()).isEqualTo("http://localhost/cars?currency=USD");
+
+        CarProtos.Car car = CarProtos.Car.parseFrom(
+                mvc.perform(get(new URI("/cars/1")).accept(CarProtobufHttpMessageConverter.PROTOBUF))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsByteArray());
+        assertThat(car).isEqualTo(listing.getCars(0));
+        assertThat(car.getId()).isEqualTo(1L);
+        assertThat(car.getCondition()).isEqualTo(CarProtos.Condition.USED);
+        assertThat(car.getDetails().getManufacturer().getName()).isEqualTo("Chevrolet");
+        assertThat(car.getDetails().getMileage().getValue()).isEqualTo(32280);
+        assertThat(car.getLocation().getLat()).isEqualTo(40.730610);
+        assertThat(car.getPrice().getAmount()).isEqualTo("19999.99");
+        assertThat(car.getLinksList()).extracting(CarProtos.Link::getRel).containsExactly("self", "cars");
+        assertThat(car.getLinks(1).getHref()).isEqualTo("http://localhost/cars");
+        assertThat(car.getLinks(1).getTemplated()).isFalse();
+    }
+
+    /**
+     * Tests creating a car posted as a protobuf message.
+     *
+     * @throws Exception when car creation fails in the system
+     */
+    @Test
+    public void createCarFromProtobuf() throws Exception {
+        Car car = getCar();
+        mvc.perform(
+                post(new URI("/cars"))
+                        .content(CarProtobufHttpMessageConverter.toMessage(car, Collections.emptyList()).toByteArray())
+                        .contentType(CarProtobufHttpMessageConverter.PROTOBUF)
+                        .accept(CarProtobufHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isCreated());
+        ArgumentCaptor<Car> carCaptor = ArgumentCaptor.forClass(Car.class);
+        verify(carService, times(1)).save(carCaptor.capture());
+        assertThat(carCaptor.getValue().getLocation().getLon()).isEqualTo(car.getLocation().getLon());
+        assertThat(carCaptor.getValue().getCondition()).isEqualTo(car.getCondition());
+        assertThat(carCaptor.getValue().getDetails().getModelYear()).isEqualTo(2018);
+        assertThat(carCaptor.getValue().getDetails().getManufacturer().getCode()).isEqualTo(101);
+    }
+
+    /**
+     * Tests that a body that is not a protobuf message is a bad request.
+     *
+     * @throws Exception if the request cannot be performed
+     */
+    @Test
+    public void rejectsMalformedProtobuf() throws Exception {
+        mvc.perform(
+                post(new URI("/cars"))
+                        .content(new byte[]{0x0A, 0x05, 0x01})
+                        .contentType(CarProtobufHttpMessageConverter.PROTOBUF)
+                        .accept(CarProtobufHttpMessageConverter.PROTOBUF))
+                .andExpect(status().isBadRequest());
+        verify(carService, never()).save(any());
+    }
+
+    /**
+     * Tests that protobuf messages only hold the fields that were asked for.
+     *
+     * @throws Exception if a car cannot be read as protobuf
+     */
+    @Test
+    public void readCarsAsProtobufWithFields() throws Exception {
+        CarProtos.Car car = CarProtos.Car.parseFrom(
+                mvc.perform(get(new URI("/cars/1?fields=id,details.model,price.amount"))
+                        .accept(CarProtobufHttpMessageConverter.PROTOBUF))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsByteArray());
+        CarProtos.CarList listing = CarProtos.CarList.parseFrom(
+                mvc.perform(get(new URI("/cars?fields=id,details.model,price.amount"))
+                        .accept(CarProtobufHttpMessageConverter.PROTOBUF))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsByteArray());
+
+        assertThat(listing.getCars(0)).isEqualTo(car);
+        assertThat(car.getId()).isEqualTo(1L);
+        assertThat(car.getDetails().getModel()).isEqualTo("Impala");
+        assertThat(car.getDetails().hasManufacturer()).isFalse();
+        assertThat(car.getDetails().hasMileage()).isFalse();
+        assertThat(car.getPrice().getAmount()).isEqualTo("19999.99");
+        assertThat(car.getPrice().getCurrency()).isEmpty();
+        assertThat(car.hasLocation()).isFalse();
+        assertThat(car.getCondition()).isEqualTo(CarProtos.Condition.CONDITION_UNSPECIFIED);
+        assertThat(car.getLinksCount()).isZero();
     }
 
     /**
@@ -195,6 +540,7 @@ public class CarControllerTest {
         details.setNumberOfDoors(4);
         car.setDetails(details);
         car.setCondition(Condition.USED);
+        car.setPrice(new Money(new BigDecimal("19999.99"), "USD"));
         return car;
     }
 }
\ No newline at end of file
@@ -0,0 +1,173 @@
+package com.kpatil.vehicles.api;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.protobuf.CodedOutputStream;
+import com.kpatil.vehicles.api.proto.CarProtos;
+import com.kpatil.vehicles.config.BinaryFormatsConfig;
+import com.kpatil.vehicles.domain.Condition;
+import com.kpatil.vehicles.domain.Location;
+import com.kpatil.vehicles.domain.Money;
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.domain.car.Details;
+import com.kpatil.vehicles.domain.manufacturer.Manufacturer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.MessageSourceAccessor;
+import org.springframework.context.support.StaticMessageSource;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resource;
+import org.springframework.hateoas.Resources;
+import org.springframework.hateoas.core.DefaultRelProvider;
+import org.springframework.hateoas.hal.HalConfiguration;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing and reading a listing of enriched cars in each format
+ * /cars can be asked for. The Jackson formats render the listing as HAL with
+ * mappers set up as for the message converters, and are read back into
+ * resources; protobuf is written one car at a time as the converter does,
+ * and read back into cars. The size of the listing is printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CarFormatsBenchmark {
+
+    private static final TypeReference<Resources<Resource<Car>>> LISTING =
+            new TypeReference<Resources<Resource<Car>>>() { };
+
+    @Param({"json", "smile", "cbor", "protobuf"})
+    private String format;
+
+    @Param({"1000"})
+    private int cars;
+
+    private ObjectMapper mapper;
+    private Resources<Resource<Car>> listing;
+    private byte[] payload;
+
+    @Setup
+    public void setup() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServerName("vehicles.example.com");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        CarResourceAssembler assembler = new CarResourceAssembler();
+        List<Resource<Car>> resources = new ArrayList<>(cars);
+        for (long id = 1; id <= cars; id++) {
+            resources.add(assembler.toResource(car(id)));
+        }
+        listing = new Resources<>(resources, new Link("http://vehicles.example.com/cars"));
+        RequestContextHolder.resetRequestAttributes();
+
+        Jackson2ObjectMapperBuilder builder;
+        switch (format) {
+            case "json":
+                builder = Jackson2ObjectMapperBuilder.json();
+                break;
+            case "smile":
+                builder = Jackson2ObjectMapperBuilder.smile();
+                break;
+            case "cbor":
+                builder = Jackson2ObjectMapperBuilder.cbor();
+                break;
+            default:
+                builder = null;
+        }
+        if (builder != null) {
+            // as spring.jackson defaults to
+            builder.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+            mapper = BinaryFormatsConfig.halObjectMapper(builder.build(), new DefaultRelProvider(), null,
+                    new MessageSourceAccessor(new StaticMessageSource()), new HalConfiguration());
+        }
+        payload = write();
+        System.out.printf("%n%s: %d bytes for %d cars%n", format, payload.length, cars);
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        if (mapper != null) {
+            return mapper.writeValueAsBytes(listing);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+        for (Resource<Car> resource : listing.getContent()) {
+            output.writeMessage(CarProtos.CarList.CARS_FIELD_NUMBER,
+                    CarProtobufHttpMessageConverter.toMessage(resource.getContent(), resource.getLinks()));
+        }
+        for (Link link : listing.getLinks()) {
+            output.writeMessage(CarProtos.CarList.LINKS_FIELD_NUMBER, CarProtos.Link.newBuilder()
+                    .setRel(link.getRel()).setHref(link.getHref()).build());
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public List<Car> read() throws IOException {
+        List<Car> read = new ArrayList<>(cars);
+        if (mapper != null) {
+            Resources<Resource<Car>> resources = mapper.readValue(payload, LISTING);
+            for (Resource<Car> resource : resources.getContent()) {
+                read.add(resource.getContent());
+            }
+        } else {
+            for (CarProtos.Car message : CarProtos.CarList.parseFrom(payload).getCarsList()) {
+                read.add(CarProtobufHttpMessageConverter.toCar(message));
+            }
+        }
+        return read;
+    }
+
+    private static Car car(long id) {
+        Car car = new Car();
+        car.setId(id);
+        car.setCreatedAt(LocalDateTime.of(2019, 6, 1, 12, 0).plusMinutes(id));
+        car.setModifiedAt(car.getCreatedAt().plusDays(3));
+        car.setCondition(id % 3 == 0 ? Condition.NEW : Condition.USED);
+        Details details = new Details();
+        details.setManufacturer(new Manufacturer(101, "Chevrolet"));
+        details.setModel("Impala");
+        details.setBody("sedan");
+        details.setMileage((int) (id * 37 % 150_000));
+        details.setExternalColor("white");
+        details.setEngine("3.6L V6");
+        details.setFuelType("Gasoline");
+        details.setModelYear(2018);
+        details.setProductionYear(2018);
+        details.setNumberOfDoors(4);
+        car.setDetails(details);
+        Location location = new Location(40.730610 + id / 1e4, -73.935242 - id / 1e4);
+        location.setAddress(id + " Jackson Avenue");
+        location.setCity("Long Island City");
+        location.setState("NY");
+        location.setZip("11101");
+        car.setLocation(location);
+        car.setPrice(new Money(BigDecimal.valueOf(1_500_000 + id * 7919 % 1_000_000, 2), "USD"));
+        return car;
+    }
+}
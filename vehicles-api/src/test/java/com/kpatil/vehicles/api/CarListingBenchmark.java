@@ -0,0 +1,175 @@
+package com.kpatil.vehicles.api;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.kpatil.vehicles.VehiclesApiApplication;
+import com.kpatil.vehicles.client.maps.MapsClient;
+import com.kpatil.vehicles.client.prices.PriceClient;
+import com.kpatil.vehicles.domain.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Measures listing every car over HTTP, both until the first car has been
+ * read and until the whole listing has. The heap held by a request while it
+ * is being written is printed at setup: the client stops reading half way, so
+ * that the server blocks in the middle of the listing, and the heap is
+ * measured after a full collection at that point. Prices and addresses come
+ * from stubs that, unlike @MockBean, do not keep every invocation, which
+ * would be counted as heap held by the request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {
+        "--add-opens=java.base/java.lang=ALL-UNNAMED",
+        "--add-opens=java.base/java.util=ALL-UNNAMED"})
+@State(Scope.Benchmark)
+public class CarListingBenchmark {
+
+    @Param({"50000"})
+    private int cars;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup
+    public void setup() throws Exception {
+        PriceClient priceClient = mock(PriceClient.class, withSettings().stubOnly());
+        given(priceClient.getPrice(anyLong())).willReturn(new Money(new BigDecimal("19999.99"), "USD"));
+        MapsClient mapsClient = mock(MapsClient.class, withSettings().stubOnly());
+        given(mapsClient.getAddresses(any())).willAnswer(invocation -> invocation.getArgument(0));
+
+        SpringApplication application = new SpringApplication(VehiclesApiApplication.class);
+        application.addInitializers(applicationContext -> {
+            GenericApplicationContext generic = (GenericApplicationContext) applicationContext;
+            generic.registerBean("stubPriceClient", PriceClient.class, () -> priceClient,
+                    definition -> definition.setPrimary(true));
+            generic.registerBean("stubMapsClient", MapsClient.class, () -> mapsClient,
+                    definition -> definition.setPrimary(true));
+        });
+        context = application.run(
+                "--server.port=0",
+                "--pricing.events.enabled=false",
+                "--vehicles.warmup.enabled=false",
+                "--vehicles.startup-warmup.enabled=false",
+                "--logging.level.root=warn");
+
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(cars);
+        for (long id = 1; id <= cars; id++) {
+            rows.add(new Object[]{id, now, now, "USED", "sedan", "Impala", 101, 4, "Gasoline", "3.6L V6",
+                    32280, 2018, 2018, "white", 40.730610, -73.935242});
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate("INSERT INTO car (id, created_at, modified_at, condition,"
+                + " body, model, manufacturer_code, number_of_doors, fuel_type, engine, mileage, model_year,"
+                + " production_year, external_color, lat, lon) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                rows);
+
+        client = HttpClient.newHttpClient();
+        request = HttpRequest.newBuilder(URI.create(
+                "http://localhost:" + context.getEnvironment().getProperty("local.server.port") + "/cars")).build();
+        wholeListing();
+
+        long baseline = usedHeapAfterGc();
+        long[] held = new long[1];
+        int listed = read(cars / 2, () -> {
+            // let the socket buffers fill up and the server block
+            Thread.sleep(1000);
+            held[0] = usedHeapAfterGc() - baseline;
+        });
+        // no more than the noise of a collection when nothing is held
+        System.out.printf("%n%d cars listed, %d KB held by the request half way%n", listed,
+                Math.max(held[0], 0) / 1024);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int firstCar() throws Exception {
+        return read(1, null);
+    }
+
+    @Benchmark
+    public int wholeListing() throws Exception {
+        return read(Integer.MAX_VALUE, null);
+    }
+
+    /**
+     * Reads the listing up to the given car, calling back once it has been
+     * read if there is a callback, and on to the end of the listing.
+     * Without a callback the response is closed after that car instead.
+     *
+     * @return the number of cars read
+     */
+    private int read(int until, Callback callback) throws Exception {
+        HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        int read = 0;
+        try (JsonParser parser = new JsonFactory().createParser(response.body())) {
+            for (JsonToken token = parser.nextToken(); token != null; token = parser.nextToken()) {
+                if (token == JsonToken.FIELD_NAME && parser.getCurrentName().equals("carList")) {
+                    parser.nextToken();
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        if (++read == until) {
+                            if (callback == null) {
+                                return read;
+                            }
+                            callback.run();
+                        }
+                    }
+                }
+            }
+        }
+        return read;
+    }
+
+    private interface Callback {
+        void run() throws InterruptedException;
+    }
+
+    private static long usedHeapAfterGc() {
+        System.gc();
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,91 @@
+package com.kpatil.vehicles.api;
+
+import com.kpatil.vehicles.domain.car.Car;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.hateoas.Resource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+
+/**
+ * Measures assembling the resources of one car listing, each benchmark
+ * invocation being a new request. The {@code legacy} benchmark repeats how
+ * links were built before, with two {@code methodOn} calls per car. It lives
+ * next to CarController because it calls the package-private controller.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CarResourceAssemblerBenchmark {
+
+    @Param({"1000"})
+    private int cars;
+
+    private final CarResourceAssembler assembler = new CarResourceAssembler();
+
+    private List<Car> listing;
+
+    @Setup
+    public void setup() {
+        listing = new ArrayList<>(cars);
+        for (long id = 1; id <= cars; id++) {
+            Car car = new Car();
+            car.setId(id);
+            listing.add(car);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Benchmark
+    public List<Resource<Car>> cached() {
+        startRequest();
+        List<Resource<Car>> resources = new ArrayList<>(listing.size());
+        for (Car car : listing) {
+            resources.add(assembler.toResource(car));
+        }
+        return resources;
+    }
+
+    @Benchmark
+    public List<Resource<Car>> legacy() {
+        startRequest();
+        List<Resource<Car>> resources = new ArrayList<>(listing.size());
+        for (Car car : listing) {
+            resources.add(new Resource<>(car,
+                    linkTo(methodOn(CarController.class).get(car.getId(), null)).withSelfRel(),
+                    linkTo(methodOn(CarController.class).list(null, null, null, null, null)).withRel("cars")));
+        }
+        return resources;
+    }
+
+    private static void startRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServerName("vehicles.example.com");
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+}
@@ -0,0 +1,72 @@
+package com.kpatil.vehicles.api;
+
+import com.kpatil.vehicles.domain.car.Car;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.Resource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
+import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+
+public class CarResourceAssemblerTest {
+
+    private final CarResourceAssembler assembler = new CarResourceAssembler();
+
+    @After
+    public void resetRequest() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void linksMatchThoseBuiltFromTheController() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setServerName("vehicles.example.com");
+        request.setServerPort(8443);
+        request.setScheme("https");
+        request.addHeader("X-Forwarded-Prefix", "/api");
+        startRequest(request);
+
+        for (long id : new long[]{1, 42, 1234567890123L}) {
+            Resource<Car> resource = assembler.toResource(car(id));
+            assertThat(resource.getLinks()).containsExactly(
+                    linkTo(methodOn(CarController.class).get(id, null)).withSelfRel().expand(),
+                    linkTo(CarController.class).withRel("cars"));
+        }
+    }
+
+    @Test
+    public void resolvesTheBaseUriOfEachRequest() {
+        MockHttpServletRequest first = new MockHttpServletRequest();
+        first.setServerName("first.example.com");
+        startRequest(first);
+        assertThat(assembler.toResource(car(1)).getId().getHref()).isEqualTo("http://first.example.com/cars/1");
+
+        MockHttpServletRequest second = new MockHttpServletRequest();
+        second.setServerName("second.example.com");
+        startRequest(second);
+        assertThat(assembler.toResource(car(1)).getLink("cars").getHref())
+                .isEqualTo("http://second.example.com/cars");
+    }
+
+    @Test
+    public void buildsRelativeLinksOutsideOfARequest() {
+        assertThat(assembler.toResource(car(7)).getLinks())
+                .extracting(Link::getHref)
+                .containsExactly("/cars/7", "/cars");
+    }
+
+    private static void startRequest(MockHttpServletRequest request) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private static Car car(long id) {
+        Car car = new Car();
+        car.setId(id);
+        return car;
+    }
+}
@@ -0,0 +1,217 @@
+package com.kpatil.vehicles.client.balancer;
+
+import com.kpatil.vehicles.config.LoadBalancerProperties;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs balanced WebClients against several local instances of a stand-in
+ * service, and the choice of instance against their recorded load, latency
+ * and failures on a clock of the test's own.
+ */
+public class LoadBalancersTest {
+
+    private static final String SERVICE = "pricing-service";
+
+    private final List<Instance> instances = new ArrayList<>();
+
+    @After
+    public void stopInstances() {
+        instances.forEach(Instance::stop);
+    }
+
+    @Test
+    public void spreadsRequestsOverIdleInstances() {
+        start(3, 200);
+        ServiceLoadBalancer balancer = balancer(() -> 0);
+
+        Map<BalancedInstance, Integer> chosen = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            chosen.merge(balancer.choose(), 1, Integer::sum);
+        }
+
+        assertThat(chosen).hasSize(3);
+    }
+
+    @Test
+    public void prefersInstancesWithFewerRequestsInFlight() {
+        start(3, 200);
+        ServiceLoadBalancer balancer = balancer(() -> 0);
+        List<BalancedInstance> all = balancer.getInstances();
+        all.get(0).started();
+        all.get(0).started();
+        all.get(1).started();
+
+        // of any two instances drawn, the busiest one loses
+        for (int i = 0; i < 100; i++) {
+            assertThat(balancer.choose()).isNotSameAs(all.get(0));
+        }
+    }
+
+    @Test
+    public void breaksTiesByAverageLatency() {
+        start(2, 200);
+        ServiceLoadBalancer balancer = balancer(() -> 0);
+        List<BalancedInstance> all = balancer.getInstances();
+        balancer.recordSuccess(all.get(0), 100_000_000);
+        balancer.recordSuccess(all.get(1), 5_000_000);
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(balancer.choose()).isSameAs(all.get(1));
+        }
+    }
+
+    @Test
+    public void avoidsFailingInstances() {
+        Instance healthy = start(200);
+        Instance failing = start(503);
+        WebClient client = client();
+
+        for (int i = 0; i < 20; i++) {
+            client.get().uri("/work").exchange().block();
+        }
+        int failuresBefore = failing.hits.get();
+        for (int i = 0; i < 20; i++) {
+            assertThat(client.get().uri("/work").exchange().block().statusCode().is2xxSuccessful()).isTrue();
+        }
+
+        assertThat(failuresBefore).isLessThanOrEqualTo(1);
+        assertThat(failing.hits.get()).isEqualTo(failuresBefore);
+        assertThat(healthy.hits.get()).isEqualTo(40 - failuresBefore);
+    }
+
+    @Test
+    public void ejectsInstancesAfterConsecutiveFailures() {
+        start(200);
+        LoadBalancerProperties properties = new LoadBalancerProperties();
+        long[] now = {0};
+        ServiceLoadBalancer balancer = balancer(() -> now[0]);
+        BalancedInstance instance = balancer.choose();
+
+        balancer.recordFailure(instance);
+        balancer.recordFailure(instance);
+        assertThat(instance.isEjected(now[0])).isFalse();
+        balancer.recordFailure(instance);
+        assertThat(instance.isEjected(now[0])).isTrue();
+        // with every instance ejected, they are all used again
+        assertThat(balancer.choose()).isSameAs(instance);
+
+        now[0] += properties.getEjectionTime().toNanos();
+        assertThat(instance.isEjected(now[0])).isFalse();
+        for (int i = 0; i < 3; i++) {
+            balancer.recordFailure(instance);
+        }
+        // the second ejection lasts twice as long
+        now[0] += properties.getEjectionTime().toNanos();
+        assertThat(instance.isEjected(now[0])).isTrue();
+        now[0] += properties.getEjectionTime().toNanos();
+        assertThat(instance.isEjected(now[0])).isFalse();
+    }
+
+    @Test
+    public void skipsEjectedInstancesUntilTheirEjectionExpires() {
+        start(2, 200);
+        LoadBalancerProperties properties = new LoadBalancerProperties();
+        long[] now = {0};
+        ServiceLoadBalancer balancer = balancer(() -> now[0]);
+        BalancedInstance ejected = balancer.getInstances().get(0);
+        BalancedInstance other = balancer.getInstances().get(1);
+        for (int i = 0; i < properties.getFailureThreshold(); i++) {
+            balancer.recordFailure(ejected);
+        }
+        // busier, so that only the ejection keeps the other instance from being chosen
+        other.started();
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(balancer.choose()).isSameAs(other);
+        }
+        now[0] += properties.getEjectionTime().toNanos();
+        assertThat(balancer.choose()).isSameAs(ejected);
+    }
+
+    private ServiceLoadBalancer balancer(LongSupplier nanoClock) {
+        return new LoadBalancers(new StubDiscoveryClient(), new LoadBalancerProperties(), nanoClock)
+                .forService(SERVICE);
+    }
+
+    private void start(int count, int status) {
+        for (int i = 0; i < count; i++) {
+            start(status);
+        }
+    }
+
+    private Instance start(int status) {
+        Instance instance = new Instance(status);
+        instances.add(instance);
+        return instance;
+    }
+
+    private WebClient client() {
+        LoadBalancerProperties properties = new LoadBalancerProperties();
+        properties.setEjectionTime(Duration.ofMinutes(1));
+        return new LoadBalancers(new StubDiscoveryClient(), properties).webClient("lb://" + SERVICE);
+    }
+
+    private class StubDiscoveryClient implements DiscoveryClient {
+
+        @Override
+        public String description() {
+            return "stub";
+        }
+
+        @Override
+        public List<ServiceInstance> getInstances(String serviceId) {
+            List<ServiceInstance> registered = new ArrayList<>();
+            for (Instance instance : instances) {
+                registered.add(new DefaultServiceInstance(serviceId + ":" + instance.server.port(), serviceId,
+                        "localhost", instance.server.port(), false));
+            }
+            return registered;
+        }
+
+        @Override
+        public List<String> getServices() {
+            return List.of(SERVICE);
+        }
+    }
+
+    private static class Instance {
+
+        private final AtomicInteger hits = new AtomicInteger();
+        private final DisposableServer server;
+
+        private Instance(int status) {
+            server = HttpServer.create()
+                    .host("localhost")
+                    .port(0)
+                    .route(routes -> routes.get("/work", (request, response) -> response
+                            .status(status)
+                            .sendString(Mono.fromCallable(() -> {
+                                hits.incrementAndGet();
+                                return "done";
+                            }))))
+                    .bindNow();
+        }
+
+        private void stop() {
+            server.disposeNow();
+        }
+    }
+}
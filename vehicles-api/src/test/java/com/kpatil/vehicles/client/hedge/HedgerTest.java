@@ -0,0 +1,95 @@
+package com.kpatil.vehicles.client.hedge;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HedgerTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void hedgesSlowCallsAndTakesTheFirstAnswer() {
+        Hedger hedger = new Hedger("test", registry, true, 0.95, Duration.ofMillis(10), 1.0, 10);
+        warmUp(hedger);
+
+        AtomicInteger attempts = new AtomicInteger();
+        String answer = hedger.hedge(() -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofSeconds(5)).thenReturn("first")
+                : Mono.just("hedge"))
+                .block(Duration.ofSeconds(1));
+
+        assertThat(answer).isEqualTo("hedge");
+        assertThat(attempts.get()).isEqualTo(2);
+        assertThat(registry.counter("hedge.sent", "client", "test").count()).isEqualTo(1);
+        assertThat(registry.counter("hedge.won", "client", "test").count()).isEqualTo(1);
+    }
+
+    @Test
+    public void doesNotHedgeFastCalls() {
+        Hedger hedger = new Hedger("test", registry, true, 0.95, Duration.ofMillis(50), 1.0, 10);
+        warmUp(hedger);
+
+        AtomicInteger attempts = new AtomicInteger();
+        for (int i = 0; i < 20; i++) {
+            hedger.hedge(() -> {
+                attempts.incrementAndGet();
+                return Mono.just("first");
+            }).block();
+        }
+
+        assertThat(attempts.get()).isEqualTo(20);
+        assertThat(registry.counter("hedge.sent", "client", "test").count()).isZero();
+    }
+
+    @Test
+    public void failedHedgeLeavesTheCallToTheFirstAttempt() {
+        Hedger hedger = new Hedger("test", registry, true, 0.95, Duration.ofMillis(10), 1.0, 10);
+        warmUp(hedger);
+
+        AtomicInteger attempts = new AtomicInteger();
+        String answer = hedger.hedge(() -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofMillis(100)).thenReturn("first")
+                : Mono.<String>error(new IllegalStateException("down")))
+                .block(Duration.ofSeconds(1));
+
+        assertThat(answer).isEqualTo("first");
+        assertThat(registry.counter("hedge.won", "client", "test").count()).isZero();
+    }
+
+    @Test
+    public void budgetCapsHedgesToAShareOfCalls() {
+        Hedger hedger = new Hedger("test", registry, true, 0.95, Duration.ofMillis(5), 0.1, 1);
+        warmUp(hedger);
+
+        for (int i = 0; i < 20; i++) {
+            hedger.hedge(() -> Mono.delay(Duration.ofMillis(30)).thenReturn("slow")).block();
+        }
+
+        assertThat(registry.counter("hedge.sent", "client", "test").count()).isEqualTo(2);
+        assertThat(registry.counter("hedge.denied", "client", "test").count()).isEqualTo(18);
+    }
+
+    @Test
+    public void disabledHedgerOnlyMeasures() {
+        Hedger hedger = new Hedger("test", registry, false, 0.95, Duration.ofMillis(5), 1.0, 10);
+        warmUp(hedger);
+
+        hedger.hedge(() -> Mono.delay(Duration.ofMillis(50)).thenReturn("slow")).block();
+
+        assertThat(registry.counter("hedge.sent", "client", "test").count()).isZero();
+        assertThat(registry.timer("hedge.attempts", "client", "test").count()).isEqualTo(101);
+    }
+
+    private static void warmUp(Hedger hedger) {
+        for (int i = 0; i < 100; i++) {
+            hedger.hedge(() -> Mono.just("warm")).block();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.kpatil.vehicles.client.maps;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.kpatil.vehicles.domain.Location;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.modelmapper.ModelMapper;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Implements testing of MapsClient against a local stand-in for the Maps
+ * batch endpoint, which answers each coordinate with an address naming it.
+ */
+public class MapsClientTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private volatile Duration delay = Duration.ZERO;
+
+    private DisposableServer maps;
+    private MapsClient client;
+
+    @Before
+    public void startMaps() {
+        maps = HttpServer.create()
+                .host("localhost")
+                .port(0)
+                .route(routes -> routes.post("/maps/batch", (request, response) -> response
+                        .header("Content-Type", "application/json")
+                        .sendString(request.receive().aggregate().asString().map(this::answer)
+                                .delayElement(delay))))
+                .bindNow();
+    }
+
+    @After
+    public void stopMaps() {
+        client.destroy();
+        maps.disposeNow();
+    }
+
+    @Test
+    public void collapsesConcurrentLookupsIntoBatches() throws Exception {
+        client = client(Duration.ofMillis(50), 8);
+        ExecutorService callers = Executors.newFixedThreadPool(20);
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Location>> lookups = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Location location = new Location((double) i, (double) -i);
+            lookups.add(CompletableFuture.supplyAsync(() -> {
+                awaitQuietly(start);
+                return client.getAddress(location);
+            }, callers));
+        }
+        start.countDown();
+
+        for (int i = 0; i < 20; i++) {
+            assertThat(lookups.get(i).get().getAddress()).isEqualTo(i + ".0," + -i + ".0");
+        }
+        callers.shutdown();
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(20);
+        assertThat(batchSizes.size()).isLessThan(20);
+        assertThat(batchSizes).allMatch(size -> size <= 8);
+    }
+
+    @Test
+    public void looksUpListsInChunksOfTheBatchSize() {
+        client = client(Duration.ZERO, 4);
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            locations.add(new Location((double) i, 1.0));
+        }
+
+        client.getAddresses(locations);
+
+        assertThat(batchSizes).containsExactly(4, 4, 2);
+        assertThat(locations.get(9).getAddress()).isEqualTo("9.0,1.0");
+    }
+
+    @Test
+    public void looksUpEachCoordinateOnce() {
+        client = client(Duration.ZERO, 4);
+        client.getAddress(new Location(1.0, 1.0));
+        List<Location> locations = List.of(new Location(1.0, 1.0), new Location(2.0, 1.0), new Location(3.0, 1.0));
+
+        client.getAddresses(locations);
+        Location again = client.getAddress(new Location(3.0, 1.0));
+
+        assertThat(batchSizes).containsExactly(1, 2);
+        assertThat(locations).extracting(Location::getAddress).containsExactly("1.0,1.0", "2.0,1.0", "3.0,1.0");
+        assertThat(again.getAddress()).isEqualTo("3.0,1.0");
+    }
+
+    @Test
+    public void sendsALoneLookupWithoutWaitingForTheWindow() {
+        client = client(Duration.ofSeconds(10), 4, Duration.ofSeconds(2));
+
+        long start = System.nanoTime();
+        Location location = client.getAddress(new Location(1.0, 2.0));
+
+        assertThat(location.getAddress()).isEqualTo("1.0,2.0");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void givesUpOnAStalledMaps() {
+        client = client(Duration.ofMillis(5), 4, Duration.ofMillis(200));
+        delay = Duration.ofSeconds(10);
+
+        long start = System.nanoTime();
+        Location collapsed = client.getAddress(new Location(1.0, 2.0));
+        List<Location> listed = client.getAddresses(List.of(new Location(3.0, 4.0)));
+
+        assertThat(collapsed.getAddress()).isNull();
+        assertThat(listed.get(0).getAddress()).isNull();
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void leavesLocationsUnchangedWhenMapsIsDown() {
+        client = client(Duration.ofMillis(5), 4);
+        maps.disposeNow();
+
+        Location location = client.getAddress(new Location(1.0, 2.0));
+
+        assertThat(location.getAddress()).isNull();
+        assertThat(location.getLat()).isEqualTo(1.0);
+    }
+
+    private MapsClient client(Duration window, int maxBatchSize) {
+        return client(window, maxBatchSize, Duration.ofSeconds(2));
+    }
+
+    private MapsClient client(Duration window, int maxBatchSize, Duration timeout) {
+        return new MapsClient(WebClient.create("http://localhost:" + maps.port()), new ModelMapper(),
+                new ConcurrentMapCacheManager(), window, maxBatchSize, timeout);
+    }
+
+    private String answer(String body) {
+        try {
+            JsonNode coordinates = objectMapper.readTree(body);
+            batchSizes.add(coordinates.size());
+            ArrayNode addresses = objectMapper.createArrayNode();
+            for (JsonNode coordinate : coordinates) {
+                addresses.addObject()
+                        .put("address", coordinate.get("lat").asDouble() + "," + coordinate.get("lon").asDouble())
+                        .put("city", "City")
+                        .put("state", "ST")
+                        .put("zip", "00000");
+            }
+            return objectMapper.writeValueAsString(addresses);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.kpatil.vehicles.client.prices;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.util.TestPropertyValues;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the price client against a local stand-in for the pricing service that
+ * serves prices and pushes price change events.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "pricing.events.enabled=true")
+@ContextConfiguration(initializers = PriceChangeListenerTest.PricingEndpoint.class)
+public class PriceChangeListenerTest {
+
+    private static final Map<Long, String> prices = new ConcurrentHashMap<>();
+    private static final AtomicInteger lookups = new AtomicInteger();
+    private static final AtomicInteger subscribers = new AtomicInteger();
+    private static final DirectProcessor<String> events = DirectProcessor.create();
+    private static final FluxSink<String> sink = events.sink();
+
+    private static final DisposableServer pricing = HttpServer.create()
+            .host("localhost")
+            .port(0)
+            .route(routes -> routes
+                    .get("/prices/vehicle/{id}", (request, response) -> {
+                        lookups.incrementAndGet();
+                        String price = prices.get(Long.valueOf(request.param("id")));
+                        return response
+                                .header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"currency\":\"USD\",\"price\":" + price
+                                        + ",\"vehicleId\":" + request.param("id") + "}"));
+                    })
+                    .get("/prices/events", (request, response) -> response
+                            .sse()
+                            .options(options -> options.flushOnEach())
+                            .sendString(Flux.concat(Mono.just("event:ready\ndata:\n\n"), events)
+                                    .doOnSubscribe(subscription -> subscribers.incrementAndGet()))))
+            .bindNow();
+
+    @Autowired
+    private PriceClient priceClient;
+
+    @AfterClass
+    public static void stopPricing() {
+        pricing.disposeNow();
+    }
+
+    @Test
+    public void evictsChangedPricesOnly() throws Exception {
+        awaitSubscriber();
+        prices.put(1L, "10000");
+        prices.put(2L, "20000");
+
+        assertThat(priceClient.getPrice(1L)).hasToString("USD 10000.00");
+        assertThat(priceClient.getPrice(2L)).hasToString("USD 20000.00");
+        assertThat(priceClient.getPrice(1L)).hasToString("USD 10000.00");
+        assertThat(lookups.get()).isEqualTo(2);
+
+        prices.put(1L, "9500");
+        sink.next("event:price\nid:1\ndata:{\"vehicleId\":1}\n\n");
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!"USD 9500.00".equals(String.valueOf(priceClient.getPrice(1L))) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(priceClient.getPrice(1L)).hasToString("USD 9500.00");
+        assertThat(priceClient.getPrice(2L)).hasToString("USD 20000.00");
+        assertThat(lookups.get()).isEqualTo(3);
+    }
+
+    private static void awaitSubscriber() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (subscribers.get() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(subscribers.get()).isEqualTo(1);
+    }
+
+    static class PricingEndpoint implements ApplicationContextInitializer<ConfigurableApplicationContext> {
+
+        @Override
+        public void initialize(ConfigurableApplicationContext context) {
+            TestPropertyValues.of("pricing.endpoint=http://localhost:" + pricing.port()).applyTo(context);
+        }
+    }
+}
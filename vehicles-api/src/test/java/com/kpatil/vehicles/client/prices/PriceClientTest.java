@@ -0,0 +1,158 @@
+package com.kpatil.vehicles.client.prices;
+
+import com.kpatil.vehicles.client.balancer.LoadBalancers;
+import com.kpatil.vehicles.client.hedge.Hedger;
+import com.kpatil.vehicles.config.LoadBalancerProperties;
+import com.kpatil.vehicles.domain.Money;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.discovery.DiscoveryClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the price client against three local pricing instances. Once a stall
+ * is set, the first request for each vehicle waits that long before it is
+ * answered, on whichever instance it lands, and every later request for the
+ * same vehicle is answered at once; so a call is slow unless it is hedged.
+ */
+public class PriceClientTest {
+
+    // well beyond the hedging delay, which is at least 20 ms
+    private static final Duration STALL = Duration.ofSeconds(1);
+
+    private final List<DisposableServer> instances = new ArrayList<>();
+    private final Set<String> requested = ConcurrentHashMap.newKeySet();
+    private volatile Duration stall = Duration.ZERO;
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Before
+    public void startInstances() {
+        for (int i = 0; i < 3; i++) {
+            instances.add(HttpServer.create()
+                    .host("localhost")
+                    .port(0)
+                    .route(routes -> routes.get("/prices/vehicle/{id}", (request, response) -> {
+                        String id = request.param("id");
+                        Duration delay = requested.add(id) ? stall : Duration.ZERO;
+                        return response
+                                .header("Content-Type", "application/json")
+                                .sendString(Mono.delay(delay).thenReturn(
+                                        "{\"currency\":\"USD\",\"price\":10000,\"vehicleId\":" + id + "}"));
+                    }))
+                    .bindNow());
+        }
+    }
+
+    @After
+    public void stopInstances() {
+        instances.forEach(DisposableServer::disposeNow);
+    }
+
+    @Test
+    public void hedgeToAnotherInstanceWinsOverAStalledCall() {
+        PriceClient client = warmedUp(new Hedger("pricing", registry, true, 0.95, Duration.ofMillis(20), 1.0, 10));
+        double sentBefore = count("hedge.sent");
+        double wonBefore = count("hedge.won");
+        stall = STALL;
+
+        for (long id = 1000; id < 1005; id++) {
+            assertThat(client.getPrice(id)).isEqualTo(new Money(BigDecimal.valueOf(10000), "USD"));
+        }
+
+        assertThat(count("hedge.sent") - sentBefore).isEqualTo(5);
+        assertThat(count("hedge.won") - wonBefore).isEqualTo(5);
+        assertThat(count("hedge.denied")).isZero();
+    }
+
+    @Test
+    public void budgetDeniesHedgesBeyondItsShare() {
+        // a tenth of a hedge per call, and at most one saved up
+        PriceClient client = warmedUp(new Hedger("pricing", registry, true, 0.95, Duration.ofMillis(20), 0.1, 1));
+        double sentBefore = count("hedge.sent");
+        stall = STALL;
+
+        for (long id = 1000; id < 1003; id++) {
+            assertThat(client.getPrice(id)).isNotNull();
+        }
+
+        // the saved up hedge is spent on the first call, the next two earn only 0.2
+        assertThat(count("hedge.sent") - sentBefore).isEqualTo(1);
+        assertThat(count("hedge.denied")).isEqualTo(2);
+    }
+
+    @Test
+    public void disabledHedgingWaitsForTheStalledCall() {
+        PriceClient client = warmedUp(new Hedger("pricing", registry, false, 0.95, Duration.ofMillis(20), 1.0, 10));
+        stall = STALL;
+
+        assertThat(client.getPrice(1000L)).isNotNull();
+
+        assertThat(count("hedge.sent")).isZero();
+        assertThat(count("hedge.denied")).isZero();
+    }
+
+    /**
+     * Makes enough calls for the hedger to trust its percentile. The
+     * connections are opened beforehand, without the hedger, so that the
+     * slow first calls do not raise the percentile to the stall.
+     */
+    private PriceClient warmedUp(Hedger hedger) {
+        LoadBalancers loadBalancers = new LoadBalancers(new StubDiscoveryClient(), new LoadBalancerProperties());
+        WebClient webClient = loadBalancers.webClient("lb://pricing-service");
+        PriceClient cold = new PriceClient(webClient,
+                new Hedger("cold", new SimpleMeterRegistry(), false, 0.95, Duration.ofMillis(20), 0.1, 1));
+        for (long id = -30; id < 0; id++) {
+            assertThat(cold.getPrice(id)).isNotNull();
+        }
+        PriceClient client = new PriceClient(webClient, hedger);
+        for (long id = 0; id < 60; id++) {
+            assertThat(client.getPrice(id)).isNotNull();
+        }
+        return client;
+    }
+
+    private double count(String name) {
+        return registry.counter(name, "client", "pricing").count();
+    }
+
+    private class StubDiscoveryClient implements DiscoveryClient {
+
+        @Override
+        public String description() {
+            return "stub";
+        }
+
+        @Override
+        public List<ServiceInstance> getInstances(String serviceId) {
+            List<ServiceInstance> registered = new ArrayList<>();
+            for (DisposableServer instance : instances) {
+                registered.add(new DefaultServiceInstance(serviceId + ":" + instance.port(), serviceId,
+                        "localhost", instance.port(), false));
+            }
+            return registered;
+        }
+
+        @Override
+        public List<String> getServices() {
+            return List.of("pricing-service");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.kpatil.vehicles.config;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import javax.servlet.FilterChain;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Implements testing of which flushes CompressionThresholdFilter holds back.
+ */
+public class CompressionThresholdFilterTest {
+
+    private final CompressionThresholdFilter filter = new CompressionThresholdFilter(DataSize.ofBytes(100));
+
+    @Test
+    public void holdsBackFlushesBelowTheMinimumSize() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest(), response, (FilterChain) (request, filtered) -> {
+            OutputStream body = filtered.getOutputStream();
+            body.write(new byte[99]);
+            body.flush();
+            filtered.flushBuffer();
+        });
+
+        assertThat(response.isCommitted()).isFalse();
+        assertThat(response.getContentAsByteArray()).hasSize(99);
+    }
+
+    @Test
+    public void passesFlushesOnFromTheMinimumSize() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        boolean[] committed = new boolean[2];
+
+        filter.doFilter(new MockHttpServletRequest(), response, (FilterChain) (request, filtered) -> {
+            OutputStream body = filtered.getOutputStream();
+            body.write(new byte[100]);
+            body.flush();
+            committed[0] = filtered.isCommitted();
+        });
+        MockHttpServletResponse written = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest(), written, (FilterChain) (request, filtered) -> {
+            PrintWriter body = filtered.getWriter();
+            body.print("x".repeat(100));
+            filtered.flushBuffer();
+            committed[1] = filtered.isCommitted();
+        });
+
+        assertThat(committed).containsExactly(true, true);
+        assertThat(written.getContentAsString()).hasSize(100);
+    }
+
+    @Test
+    public void writesOutWhatTheWriterHoldsWhenTheRequestCompletes() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(new MockHttpServletRequest(), response, (FilterChain) (request, filtered) -> {
+            filtered.getWriter().print("small");
+            filtered.getWriter().flush();
+        });
+
+        assertThat(response.isCommitted()).isFalse();
+        assertThat(response.getContentAsString()).isEqualTo("small");
+    }
+}
@@ -0,0 +1,35 @@
+package com.kpatil.vehicles.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Implements testing of the ConnectionPoolValidator sizing rules.
+ */
+public class ConnectionPoolValidatorTest {
+
+    private final ConnectionPoolValidator validator = new ConnectionPoolValidator(new ServerProperties(), null);
+
+    @Test
+    public void acceptsPoolWithinThreadCount() {
+        assertThatCode(() -> validator.validate(pool(20), 200)).doesNotThrowAnyException();
+    }
+
+    @Test
+    public void rejectsPoolLargerThanThreadCount() {
+        assertThatThrownBy(() -> validator.validate(pool(50), 20))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("test-pool");
+    }
+
+    private static HikariDataSource pool(int maximumPoolSize) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setPoolName("test-pool");
+        pool.setMaximumPoolSize(maximumPoolSize);
+        return pool;
+    }
+}
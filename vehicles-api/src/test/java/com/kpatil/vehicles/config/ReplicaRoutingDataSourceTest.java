@@ -0,0 +1,149 @@
+package com.kpatil.vehicles.config;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Implements testing of the ReplicaRoutingDataSource against separate embedded databases.
+ */
+public class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replicaOne;
+    private DataSource replicaTwo;
+
+    @Before
+    public void setup() {
+        primary = node("primary");
+        replicaOne = node("replica-one");
+        replicaTwo = node("replica-two");
+    }
+
+    @Test
+    public void readOnlyTransactionsGoToReplicas() {
+        DataSource dataSource = routing(Duration.ZERO, replicaOne, replicaTwo);
+
+        Set<String> readers = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            readers.add(nodeName(dataSource, true));
+        }
+
+        assertThat(readers).containsExactlyInAnyOrder("replica-one", "replica-two");
+    }
+
+    @Test
+    public void writeTransactionsGoToPrimary() {
+        DataSource dataSource = routing(Duration.ZERO, replicaOne);
+        assertThat(nodeName(dataSource, false)).isEqualTo("primary");
+    }
+
+    @Test
+    public void readsStayOnPrimaryWithinLagTolerance() {
+        DataSource dataSource = routing(Duration.ofMinutes(1), replicaOne);
+
+        assertThat(nodeName(dataSource, true)).isEqualTo("replica-one");
+        nodeName(dataSource, false);
+        assertThat(nodeName(dataSource, true)).isEqualTo("primary");
+    }
+
+    @Test
+    public void writesPinOnlyTheReadsOfTheirOwnThread() throws Exception {
+        DataSource dataSource = routing(Duration.ofMinutes(1), replicaOne);
+        nodeName(dataSource, false);
+
+        CompletableFuture<String> otherReader = CompletableFuture.supplyAsync(() -> nodeName(dataSource, true));
+
+        assertThat(otherReader.get()).isEqualTo("replica-one");
+        assertThat(nodeName(dataSource, true)).isEqualTo("primary");
+    }
+
+    @Test
+    public void cookiePinsTheReadsOfALaterRequestToPrimary() throws Exception {
+        ReplicaRoutingDataSource router = new ReplicaRoutingDataSource(primary,
+                Collections.singletonList(replicaOne), Duration.ofMinutes(1), ReadYourWritesFilter::remember);
+        router.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(router);
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(router, Duration.ofMinutes(1));
+
+        MockHttpServletResponse write = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("PUT", "/cars/1"), write, (request, response) -> {
+            RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(
+                    (HttpServletRequest) request, (HttpServletResponse) response));
+            try {
+                nodeName(dataSource, false);
+            } finally {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        });
+        Cookie cookie = write.getCookie(ReadYourWritesFilter.COOKIE);
+        assertThat(cookie).isNotNull();
+
+        List<String> readers = new ArrayList<>();
+        MockHttpServletRequest withCookie = new MockHttpServletRequest("GET", "/cars/1");
+        withCookie.setCookies(cookie);
+        filter.doFilter(withCookie, new MockHttpServletResponse(),
+                (request, response) -> readers.add(nodeName(dataSource, true)));
+        filter.doFilter(new MockHttpServletRequest("GET", "/cars/1"), new MockHttpServletResponse(),
+                (request, response) -> readers.add(nodeName(dataSource, true)));
+
+        assertThat(readers).containsExactly("primary", "replica-one");
+    }
+
+    @Test
+    public void readsFallBackToPrimaryWithoutReplicas() {
+        DataSource dataSource = routing(Duration.ZERO);
+        assertThat(nodeName(dataSource, true)).isEqualTo("primary");
+    }
+
+    private DataSource routing(Duration lagTolerance, DataSource... replicas) {
+        ReplicaRoutingDataSource router =
+                new ReplicaRoutingDataSource(primary, Arrays.asList(replicas), lagTolerance);
+        router.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(router);
+    }
+
+    private String nodeName(DataSource dataSource, boolean readOnly) {
+        TransactionTemplate transaction =
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status ->
+                new JdbcTemplate(dataSource).queryForObject("SELECT name FROM node", String.class));
+    }
+
+    /**
+     * Creates an in-memory database holding a single row with its own name.
+     */
+    private static DataSource node(String name) {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE IF NOT EXISTS node (name VARCHAR(32))");
+        jdbc.update("DELETE FROM node");
+        jdbc.update("INSERT INTO node VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,99 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.VehiclesApiApplication;
+import com.kpatil.vehicles.domain.Condition;
+import com.kpatil.vehicles.domain.car.CarRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the facet counts of every car and of a filtered subset, against
+ * the grouped query they are loaded with at startup, which is what computing
+ * them from the database on each request would cost. The cars have random
+ * values out of 5 manufacturers, 2 conditions, 6 bodies, 4 fuel types and 20
+ * model years, up to 4800 combinations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class CarFacetsBenchmark {
+
+    @Param({"1000000"})
+    private int cars;
+
+    private ConfigurableApplicationContext context;
+    private CarRepository carRepository;
+    private CarFacets facets;
+
+    private final FacetFilter filter = new FacetFilter(101, Condition.USED, null, null, 2015);
+
+    @Setup
+    public void setup() {
+        context = SpringApplication.run(VehiclesApiApplication.class,
+                "--server.port=0",
+                "--pricing.events.enabled=false",
+                "--logging.level.root=warn");
+        carRepository = context.getBean(CarRepository.class);
+        facets = context.getBean(CarFacets.class);
+
+        String[] bodies = {"sedan", "coupe", "hatchback", "suv", "pickup", "wagon"};
+        String[] fuels = {"Gasoline", "Diesel", "Hybrid", "Electric"};
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>(10_000);
+        for (long id = 1; id <= cars; id++) {
+            rows.add(new Object[]{id, random.nextBoolean() ? "USED" : "NEW", bodies[random.nextInt(6)], "Impala",
+                    100 + random.nextInt(5), fuels[random.nextInt(4)], 2000 + random.nextInt(20),
+                    40.730610, -73.935242});
+            if (rows.size() == 10_000 || id == cars) {
+                jdbcTemplate.batchUpdate("INSERT INTO car (id, condition, body, model, manufacturer_code, fuel_type,"
+                        + " model_year, lat, lon) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+        long start = System.nanoTime();
+        facets.load();
+        System.out.printf("%nloaded the counts of %d cars in %d ms%n", cars, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Facets counters() {
+        return facets.count(FacetFilter.all());
+    }
+
+    @Benchmark
+    public Facets countersFiltered() {
+        return facets.count(filter);
+    }
+
+    @Benchmark
+    public List<Object[]> groupedQuery() {
+        return carRepository.countByFacets();
+    }
+}
@@ -0,0 +1,133 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.client.maps.MapsClient;
+import com.kpatil.vehicles.client.prices.PriceClient;
+import com.kpatil.vehicles.domain.Condition;
+import com.kpatil.vehicles.domain.Location;
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.domain.manufacturer.Manufacturer;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Implements testing of the facet counts: their load from the database and
+ * the changes CarService makes to them. The cars of each test have a body of
+ * their own, so that the cars of other tests are filtered out.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CarFacetsTest {
+
+    // well above the ids handed out by the sequence to other tests
+    private static final long FIRST_ID = 4_000_000;
+
+    @Autowired
+    private CarFacets facets;
+
+    @Autowired
+    private CarService carService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockBean
+    private PriceClient priceClient;
+
+    @MockBean
+    private MapsClient mapsClient;
+
+    @After
+    public void deleteCars() {
+        jdbcTemplate.update("DELETE FROM car WHERE id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM car WHERE body LIKE 'facets-%'");
+        facets.load();
+    }
+
+    @Test
+    public void countsStoredCars() {
+        insert(FIRST_ID, "facets-load", 101, "USED", "Gasoline", 2018);
+        insert(FIRST_ID + 1, "facets-load", 101, "NEW", "Gasoline", 2019);
+        insert(FIRST_ID + 2, "facets-load", 102, "USED", null, 2018);
+        facets.load();
+
+        Facets counts = facets.count(filter("facets-load", null, null));
+        assertThat(counts.getTotal()).isEqualTo(3);
+        assertThat(counts.getFacets()).containsOnlyKeys("manufacturer", "condition", "body", "fuelType", "modelYear");
+        assertThat(counts.getFacets().get("manufacturer"))
+                .extracting(Facets.Count::getValue, Facets.Count::getLabel, Facets.Count::getCount)
+                .containsExactly(tuple("101", "Chevrolet", 2L), tuple("102", "Ford", 1L));
+        assertThat(counts.getFacets().get("condition"))
+                .extracting(Facets.Count::getValue, Facets.Count::getCount)
+                .containsExactly(tuple("USED", 2L), tuple("NEW", 1L));
+        assertThat(counts.getFacets().get("fuelType"))
+                .extracting(Facets.Count::getValue, Facets.Count::getCount)
+                .containsExactly(tuple("Gasoline", 2L));
+
+        Facets filtered = facets.count(filter("facets-load", 101, 2018));
+        assertThat(filtered.getTotal()).isEqualTo(1);
+        assertThat(filtered.getFacets().get("condition"))
+                .extracting(Facets.Count::getValue).containsExactly("USED");
+    }
+
+    @Test
+    public void followsWritesOnceCommitted() {
+        Car car = carService.save(car("facets-write", 101, 2018));
+        carService.save(car("facets-write", 101, 2019));
+        assertThat(facets.count(filter("facets-write", 101, null)).getTotal()).isEqualTo(2);
+
+        car.getDetails().setManufacturer(new Manufacturer(102, null));
+        carService.save(car);
+        assertThat(facets.count(filter("facets-write", 101, null)).getTotal()).isEqualTo(1);
+        assertThat(facets.count(filter("facets-write", 102, 2018)).getTotal()).isEqualTo(1);
+
+        transactionTemplate.execute(status -> {
+            carService.delete(car.getId());
+            status.setRollbackOnly();
+            return null;
+        });
+        assertThat(facets.count(filter("facets-write", 102, null)).getTotal()).isEqualTo(1);
+
+        carService.delete(car.getId());
+        Facets counts = facets.count(filter("facets-write", null, null));
+        assertThat(counts.getTotal()).isEqualTo(1);
+        assertThat(counts.getFacets().get("manufacturer")).extracting(Facets.Count::getValue).containsExactly("101");
+        assertThat(counts.getFacets().get("modelYear")).extracting(Facets.Count::getValue).containsExactly("2019");
+
+        facets.load();
+        assertThat(facets.count(filter("facets-write", null, null)).getTotal()).isEqualTo(1);
+    }
+
+    private static FacetFilter filter(String body, Integer manufacturer, Integer modelYear) {
+        return new FacetFilter(manufacturer, null, body, null, modelYear);
+    }
+
+    private void insert(long id, String body, int manufacturer, String condition, String fuelType, int modelYear) {
+        jdbcTemplate.update("INSERT INTO car (id, condition, body, model, manufacturer_code, fuel_type, model_year,"
+                        + " lat, lon) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                id, condition, body, "Impala", manufacturer, fuelType, modelYear, 40.730610, -73.935242);
+    }
+
+    private static Car car(String body, int manufacturer, int modelYear) {
+        Car car = new Car();
+        car.setCondition(Condition.USED);
+        car.getDetails().setBody(body);
+        car.getDetails().setModel("Impala");
+        car.getDetails().setManufacturer(new Manufacturer(manufacturer, null));
+        car.getDetails().setModelYear(modelYear);
+        car.setLocation(new Location(40.730610, -73.935242));
+        return car;
+    }
+}
@@ -0,0 +1,51 @@
+package com.kpatil.vehicles.service;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Implements testing of sparse fieldsets of cars.
+ */
+public class CarFieldsTest {
+
+    @Test
+    public void includesEverythingByDefault() {
+        assertThat(CarFields.parse(null).isAll()).isTrue();
+        assertThat(CarFields.parse(" ").includes("details.manufacturer.name")).isTrue();
+        assertThat(CarFields.all().needsAddress()).isTrue();
+        assertThat(CarFields.all().needsPrice()).isTrue();
+    }
+
+    @Test
+    public void includesNestedAndEnclosingFields() {
+        CarFields fields = CarFields.parse("id, details.manufacturer,location.city");
+        assertThat(fields.includes("id")).isTrue();
+        assertThat(fields.includes("details")).isTrue();
+        assertThat(fields.includes("details.manufacturer")).isTrue();
+        assertThat(fields.includes("details.manufacturer.code")).isTrue();
+        assertThat(fields.includes("details.model")).isFalse();
+        assertThat(fields.includes("location")).isTrue();
+        assertThat(fields.includes("location.lat")).isFalse();
+        assertThat(fields.includes(CarFields.LINKS)).isFalse();
+    }
+
+    @Test
+    public void needsOnlyTheEnrichmentsOfTheRequestedFields() {
+        assertThat(CarFields.parse("id,location.lat").needsAddress()).isFalse();
+        assertThat(CarFields.parse("location").needsAddress()).isTrue();
+        assertThat(CarFields.parse("location.zip").needsAddress()).isTrue();
+        assertThat(CarFields.parse("id,location").needsPrice()).isFalse();
+        assertThat(CarFields.parse("price.currency").needsPrice()).isTrue();
+    }
+
+    @Test
+    public void rejectsUnknownFields() {
+        assertThatThrownBy(() -> CarFields.parse("id,vin"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("vin");
+        assertThatThrownBy(() -> CarFields.parse("details."))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
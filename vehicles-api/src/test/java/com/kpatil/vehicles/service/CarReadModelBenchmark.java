@@ -0,0 +1,140 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.VehiclesApiApplication;
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.domain.car.CarRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jol.info.GraphLayout;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.reflect.Field;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading cars through JPA with reading them from the read model,
+ * both for a listing of every car in batches, as CarService does, and for a
+ * lookup by id. The heap held per car by the read model and by the same cars
+ * loaded through JPA is printed at setup; the JPA figure leaves out the
+ * persistence context, which holds a second copy of each car's state while
+ * its transaction lasts.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {
+        "--add-opens=java.base/java.lang=ALL-UNNAMED",
+        "--add-opens=java.base/java.time=ALL-UNNAMED",
+        "--add-opens=java.base/java.util=ALL-UNNAMED"})
+@State(Scope.Benchmark)
+public class CarReadModelBenchmark {
+
+    @Param({"10000"})
+    private int cars;
+
+    private ConfigurableApplicationContext context;
+    private CarRepository carRepository;
+    private CarReadModel readModel;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        context = SpringApplication.run(VehiclesApiApplication.class,
+                "--server.port=0",
+                "--vehicles.read-model.enabled=true",
+                "--pricing.events.enabled=false",
+                "--logging.level.root=warn");
+        carRepository = context.getBean(CarRepository.class);
+        readModel = context.getBean(CarReadModel.class);
+
+        String[] models = {"Impala", "Malibu", "Camaro", "Focus", "Mustang", "A4", "X5", "Charger"};
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object[]> rows = new ArrayList<>(cars);
+        for (long id = 1; id <= cars; id++) {
+            rows.add(new Object[]{id, now, now, id % 2 == 0 ? "USED" : "NEW", "sedan", models[(int) (id % 8)],
+                    100 + (int) (id % 5), 4, "Gasoline", "3.6L V6", (int) (id * 7 % 100_000), 2010 + (int) (id % 10),
+                    2010 + (int) (id % 10), "white", 40.730610 + id / 1e6, -73.935242});
+        }
+        context.getBean(JdbcTemplate.class).batchUpdate("INSERT INTO car (id, created_at, modified_at, condition,"
+                + " body, model, manufacturer_code, number_of_doors, fuel_type, engine, mileage, model_year,"
+                + " production_year, external_color, lat, lon) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                rows);
+        readModel.load();
+
+        long model = GraphLayout.parseInstance(held("snapshot"), held("strings"), held("manufacturers")).totalSize();
+        long jpa = GraphLayout.parseInstance(carRepository.findAll()).totalSize();
+        System.out.printf("%nheap per car: read model %d bytes (estimated %d), JPA %d bytes%n",
+                model / cars, readModel.estimatedBytes() / cars, jpa / cars);
+    }
+
+    // the data the read model holds, without the beans it refers to
+    private Object held(String field) throws ReflectiveOperationException {
+        Field held = CarReadModel.class.getDeclaredField(field);
+        held.setAccessible(true);
+        return held.get(readModel);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int listJpa() {
+        int count = 0;
+        long after = Long.MIN_VALUE;
+        List<Car> batch;
+        do {
+            batch = carRepository.findByIdGreaterThanOrderByIdAsc(after,
+                    PageRequest.of(0, CarService.LIST_BATCH_SIZE));
+            count += batch.size();
+            after = batch.isEmpty() ? after : batch.get(batch.size() - 1).getId();
+        } while (batch.size() == CarService.LIST_BATCH_SIZE);
+        return count;
+    }
+
+    @Benchmark
+    public int listReadModel() {
+        int count = 0;
+        long after = Long.MIN_VALUE;
+        List<Car> batch;
+        do {
+            batch = readModel.findAfter(after, CarService.LIST_BATCH_SIZE);
+            count += batch.size();
+            after = batch.isEmpty() ? after : batch.get(batch.size() - 1).getId();
+        } while (batch.size() == CarService.LIST_BATCH_SIZE);
+        return count;
+    }
+
+    @Benchmark
+    public Car getJpa() {
+        return carRepository.findById(randomId()).orElseThrow();
+    }
+
+    @Benchmark
+    public Car getReadModel() {
+        return readModel.findById(randomId()).orElseThrow();
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, cars + 1);
+    }
+}
@@ -0,0 +1,155 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.client.maps.MapsClient;
+import com.kpatil.vehicles.client.prices.PriceClient;
+import com.kpatil.vehicles.domain.Condition;
+import com.kpatil.vehicles.domain.Location;
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.domain.car.CarRepository;
+import com.kpatil.vehicles.domain.manufacturer.Manufacturer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+
+/**
+ * Implements testing of the in-memory read model: its load from the
+ * database, the changes CarService makes to it and the reads it serves.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "vehicles.read-model.enabled=true")
+public class CarReadModelTest {
+
+    // well above the ids handed out by the sequence to other tests
+    private static final long FIRST_ID = 3_000_000;
+
+    @Autowired
+    private CarReadModel readModel;
+
+    @Autowired
+    private CarService carService;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockBean
+    private PriceClient priceClient;
+
+    @MockBean
+    private MapsClient mapsClient;
+
+    @Before
+    public void setup() {
+        given(mapsClient.getAddress(any())).willAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @After
+    public void deleteCars() {
+        jdbcTemplate.update("DELETE FROM car WHERE id >= ?", FIRST_ID);
+        readModel.load();
+    }
+
+    @Test
+    public void loadsCarsAsStored() {
+        insert(FIRST_ID, "Impala", 101);
+        insert(FIRST_ID + 1, "Focus", 102);
+        readModel.load();
+
+        assertThat(readModel.isLoaded()).isTrue();
+        for (long id = FIRST_ID; id <= FIRST_ID + 1; id++) {
+            assertSameCar(readModel.findById(id).orElseThrow(), carRepository.findById(id).orElseThrow());
+        }
+        List<Car> cars = readModel.findAfter(FIRST_ID - 1, 10);
+        assertThat(cars).extracting(Car::getId).containsExactly(FIRST_ID, FIRST_ID + 1);
+        assertThat(readModel.findById(FIRST_ID).get().getDetails().getModel())
+                .isSameAs(readModel.findById(FIRST_ID).get().getDetails().getModel());
+        assertThat(readModel.estimatedBytes()).isPositive();
+    }
+
+    @Test
+    public void followsWritesOnceCommitted() {
+        Car car = carService.save(car("Impala", 101));
+        Long id = car.getId();
+        assertSameCar(readModel.findById(id).orElseThrow(), carRepository.findById(id).orElseThrow());
+
+        car.getDetails().setModel("Malibu");
+        carService.save(car);
+        assertThat(readModel.findById(id).orElseThrow().getDetails().getModel()).isEqualTo("Malibu");
+        assertSameCar(readModel.findById(id).orElseThrow(), carRepository.findById(id).orElseThrow());
+
+        transactionTemplate.execute(status -> {
+            Car update = readModel.findById(id).orElseThrow();
+            update.getDetails().setModel("Camaro");
+            carService.save(update);
+            assertThat(readModel.findById(id).orElseThrow().getDetails().getModel()).isEqualTo("Malibu");
+            status.setRollbackOnly();
+            return null;
+        });
+        assertThat(readModel.findById(id).orElseThrow().getDetails().getModel()).isEqualTo("Malibu");
+
+        carService.delete(id);
+        assertThat(readModel.findById(id)).isEmpty();
+    }
+
+    @Test
+    public void servesReadsOfCarService() {
+        Car saved = carService.save(car("Impala", 101));
+        // written behind the service's back, so only visible in the database
+        insert(FIRST_ID, "Focus", 102);
+
+        List<Car> cars = new ArrayList<>();
+        carService.forEach(PriceQuery.all(), CarFields.parse("id,details.model"), cars::add);
+        assertThat(cars).extracting(Car::getId).contains(saved.getId()).doesNotContain(FIRST_ID);
+        assertThat(carService.findById(saved.getId(), CarFields.parse("id")).getDetails().getModel())
+                .isEqualTo("Impala");
+        carService.delete(saved.getId());
+    }
+
+    private void insert(long id, String model, int manufacturer) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.of(2019, 6, 1, 12, 30, 15, 123_456_000));
+        jdbcTemplate.update("INSERT INTO car (id, created_at, modified_at, condition, body, model,"
+                        + " manufacturer_code, number_of_doors, fuel_type, engine, mileage, model_year, production_year,"
+                        + " external_color, lat, lon) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                id, now, now, "USED", "sedan", model, manufacturer, 4, "Gasoline", null,
+                32280, 2018, null, "white", 40.730610, -73.935242);
+    }
+
+    private static Car car(String model, int manufacturer) {
+        Car car = new Car();
+        car.setCondition(Condition.NEW);
+        car.getDetails().setBody("sedan");
+        car.getDetails().setModel(model);
+        car.getDetails().setManufacturer(new Manufacturer(manufacturer, null));
+        car.setLocation(new Location(40.730610, -73.935242));
+        return car;
+    }
+
+    private static void assertSameCar(Car actual, Car expected) {
+        assertThat(actual).isEqualToIgnoringGivenFields(expected, "details", "location", "price");
+        assertThat(actual.getDetails()).isEqualToIgnoringGivenFields(expected.getDetails(), "manufacturer");
+        assertThat(actual.getDetails().getManufacturer())
+                .isEqualToComparingFieldByField(expected.getDetails().getManufacturer());
+        assertThat(actual.getLocation()).isEqualToComparingFieldByField(expected.getLocation());
+    }
+}
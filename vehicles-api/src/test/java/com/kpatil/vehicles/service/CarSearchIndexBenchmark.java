@@ -0,0 +1,119 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.VehiclesApiApplication;
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.domain.manufacturer.Manufacturer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures searching the index of every car: a common three word query, the
+ * same query 50 pages deep, and a rare word. {@code reindex} measures
+ * indexing a changed car, as CarService does on each write; searches see it
+ * after the next refresh of the index. The time to build the index from the database is printed at setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class CarSearchIndexBenchmark {
+
+    private static final String[] MODELS = {"Impala", "Malibu", "Camaro", "Focus", "Mustang", "Fiesta", "Charger",
+            "Challenger", "Durango", "A4", "A6", "Q5", "X3", "X5", "M3"};
+    private static final String[] BODIES = {"sedan", "coupe", "hatchback", "suv", "pickup", "wagon"};
+    private static final String[] ENGINES = {"3.6L V6", "2.0L I4 turbo", "5.0L V8", "1.5L I3", "electric motor"};
+    private static final String[] FUELS = {"Gasoline", "Diesel", "Hybrid", "Electric"};
+    private static final String[] COLORS = {"white", "black", "silver", "gray", "red", "blue", "green", "yellow",
+            "orange", "brown"};
+
+    @Param({"1000000"})
+    private int cars;
+
+    private ConfigurableApplicationContext context;
+    private CarSearchIndex searchIndex;
+
+    @Setup
+    public void setup() {
+        context = SpringApplication.run(VehiclesApiApplication.class,
+                "--server.port=0",
+                "--pricing.events.enabled=false",
+                "--logging.level.root=warn");
+        searchIndex = context.getBean(CarSearchIndex.class);
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        Random random = new Random(42);
+        List<Object[]> rows = new ArrayList<>(10_000);
+        for (long id = 1; id <= cars; id++) {
+            rows.add(new Object[]{id, "USED", pick(BODIES, random), pick(MODELS, random), 100 + random.nextInt(5),
+                    pick(FUELS, random), pick(ENGINES, random), pick(COLORS, random), 40.730610, -73.935242});
+            if (rows.size() == 10_000 || id == cars) {
+                jdbcTemplate.batchUpdate("INSERT INTO car (id, condition, body, model, manufacturer_code, fuel_type,"
+                        + " engine, external_color, lat, lon) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+                rows.clear();
+            }
+        }
+        long start = System.nanoTime();
+        searchIndex.rebuild();
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("%nindexed %d cars in %d ms, %d cars/s%n", cars, millis, cars * 1000L / millis);
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<Long> search() {
+        return searchIndex.search("red diesel sedan", PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public Page<Long> searchDeep() {
+        return searchIndex.search("red diesel sedan", PageRequest.of(50, 20));
+    }
+
+    @Benchmark
+    public Page<Long> searchRare() {
+        return searchIndex.search("challenger", PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public void reindex() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Car car = new Car();
+        car.setId(random.nextLong(1, cars + 1));
+        car.getDetails().setModel(MODELS[random.nextInt(MODELS.length)]);
+        car.getDetails().setBody(BODIES[random.nextInt(BODIES.length)]);
+        car.getDetails().setManufacturer(new Manufacturer(100 + random.nextInt(5), null));
+        car.getDetails().setExternalColor(COLORS[random.nextInt(COLORS.length)]);
+        searchIndex.put(car);
+    }
+}
@@ -0,0 +1,158 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.client.maps.MapsClient;
+import com.kpatil.vehicles.client.prices.PriceClient;
+import com.kpatil.vehicles.domain.Condition;
+import com.kpatil.vehicles.domain.Location;
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.domain.car.CarRepository;
+import com.kpatil.vehicles.domain.manufacturer.Manufacturer;
+import com.kpatil.vehicles.domain.manufacturer.ManufacturerRepository;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Implements testing of the search index: ranking, pagination, building on
+ * demand and the changes CarService makes to it. The cars of these tests have words of
+ * their own, so that the cars of other tests do not match.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CarSearchIndexTest {
+
+    // well above the ids handed out by the sequence to other tests
+    private static final long FIRST_ID = 5_000_000;
+
+    @Autowired
+    private CarSearchIndex searchIndex;
+
+    @Autowired
+    private CarService carService;
+
+    @Autowired
+    private CarRepository carRepository;
+
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @MockBean
+    private PriceClient priceClient;
+
+    @MockBean
+    private MapsClient mapsClient;
+
+    @After
+    public void deleteCars() {
+        jdbcTemplate.update("DELETE FROM car WHERE id >= ?", FIRST_ID);
+        jdbcTemplate.update("DELETE FROM car WHERE model LIKE 'Zephyr%'");
+        searchIndex.rebuild();
+    }
+
+    @Test
+    public void ranksCarsMatchingMoreWordsFirst() {
+        insert(FIRST_ID, "Zephyr", "roadster", "Hydrogen", "crimson");
+        insert(FIRST_ID + 1, "Zephyr", "roadster", "Hydrogen", "teal");
+        insert(FIRST_ID + 2, "Zephyr", "hatchback", "Hydrogen", "crimson");
+        insert(FIRST_ID + 3, "Zephyr", "hatchback", "Gasoline", "teal");
+        searchIndex.rebuild();
+
+        Page<Long> ids = searchIndex.search("Crimson hydrogen ROADSTER", PageRequest.of(0, 10));
+        assertThat(ids.getTotalElements()).isEqualTo(3);
+        assertThat(ids.getContent().get(0)).isEqualTo(FIRST_ID);
+        assertThat(ids.getContent()).containsExactlyInAnyOrder(FIRST_ID, FIRST_ID + 1, FIRST_ID + 2);
+        assertThat(searchIndex.search("crimson", PageRequest.of(0, 10)).getContent())
+                .containsExactlyInAnyOrder(FIRST_ID, FIRST_ID + 2);
+        // by manufacturer name, which only the database holds
+        assertThat(searchIndex.search("Chevrolet zephyr", PageRequest.of(0, 4)).getContent())
+                .containsExactlyInAnyOrder(FIRST_ID, FIRST_ID + 1, FIRST_ID + 2, FIRST_ID + 3);
+        assertThat(searchIndex.search("  ,; ", PageRequest.of(0, 10)).getTotalElements()).isZero();
+    }
+
+    @Test
+    public void pagesThroughMatches() {
+        for (long id = FIRST_ID; id < FIRST_ID + 25; id++) {
+            insert(id, "Zephyr", "roadster", "Hydrogen", "teal");
+        }
+        searchIndex.rebuild();
+
+        Page<Long> first = searchIndex.search("zephyr", PageRequest.of(0, 10));
+        Page<Long> last = searchIndex.search("zephyr", PageRequest.of(2, 10));
+        assertThat(first.getContent()).hasSize(10);
+        assertThat(last.getContent()).hasSize(5).doesNotContainAnyElementsOf(first.getContent());
+        assertThat(last.getTotalElements()).isEqualTo(25);
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    public void buildsOnTheFirstSearch() throws Exception {
+        CarSearchIndex index = new CarSearchIndex(carRepository, manufacturerRepository, Duration.ofSeconds(1));
+        insert(FIRST_ID, "Zephyr", "roadster", "Hydrogen", "crimson");
+        try {
+            assertThat(index.search("zephyr", PageRequest.of(0, 10)).getContent()).containsExactly(FIRST_ID);
+        } finally {
+            index.destroy();
+        }
+    }
+
+    @Test
+    public void followsWritesOnceCommitted() throws Exception {
+        Car car = carService.save(car("Zephyr", "crimson"));
+        searchIndex.awaitChanges();
+        Page<Car> found = carService.search("zephyr crimson", PageRequest.of(0, 10), CarFields.parse("id,details"));
+        assertThat(found.getContent()).extracting(Car::getId).containsExactly(car.getId());
+        assertThat(found.getContent().get(0).getDetails().getModel()).isEqualTo("Zephyr");
+
+        car.getDetails().setExternalColor("teal");
+        carService.save(car);
+        searchIndex.awaitChanges();
+        assertThat(searchIndex.search("crimson", PageRequest.of(0, 10)).getContent()).isEmpty();
+        assertThat(searchIndex.search("teal", PageRequest.of(0, 10)).getContent()).containsExactly(car.getId());
+
+        transactionTemplate.execute(status -> {
+            carService.delete(car.getId());
+            status.setRollbackOnly();
+            return null;
+        });
+        assertThat(searchIndex.search("teal", PageRequest.of(0, 10)).getContent()).containsExactly(car.getId());
+
+        carService.delete(car.getId());
+        searchIndex.awaitChanges();
+        assertThat(searchIndex.search("teal zephyr", PageRequest.of(0, 10)).getTotalElements()).isZero();
+    }
+
+    private void insert(long id, String model, String body, String fuelType, String color) {
+        jdbcTemplate.update("INSERT INTO car (id, condition, body, model, manufacturer_code, fuel_type,"
+                        + " external_color, lat, lon) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                id, "USED", body, model, 101, fuelType, color, 40.730610, -73.935242);
+    }
+
+    private static Car car(String model, String color) {
+        Car car = new Car();
+        car.setCondition(Condition.USED);
+        car.getDetails().setBody("roadster");
+        car.getDetails().setModel(model);
+        car.getDetails().setExternalColor(color);
+        car.getDetails().setManufacturer(new Manufacturer(101, null));
+        car.setLocation(new Location(40.730610, -73.935242));
+        return car;
+    }
+}
@@ -0,0 +1,242 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.client.maps.MapsClient;
+import com.kpatil.vehicles.client.prices.PriceClient;
+import com.kpatil.vehicles.config.ReplicaRoutingDataSource;
+import com.kpatil.vehicles.domain.Location;
+import com.kpatil.vehicles.domain.Money;
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.domain.car.CarRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Implements testing of which enrichments CarService makes for the fields
+ * a client asked for.
+ */
+public class CarServiceTest {
+
+    private final CarRepository carRepository = mock(CarRepository.class);
+    private final PriceClient priceClient = mock(PriceClient.class);
+    private final MapsClient mapsClient = mock(MapsClient.class);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final CarService carService = new CarService(carRepository, priceClient, mapsClient, registry,
+            Optional.empty(), mock(CarFacets.class), mock(CarSearchIndex.class), Optional.empty(),
+            mock(DataSource.class), Duration.ofSeconds(10));
+
+    @Before
+    public void setup() {
+        List<Car> cars = List.of(car(1L), car(2L));
+        given(carRepository.findByIdGreaterThanOrderByIdAsc(any(), any())).willReturn(cars);
+        given(carRepository.findById(1L)).willReturn(Optional.of(cars.get(0)));
+        given(priceClient.getPrice(anyLong())).willReturn(new Money(new BigDecimal("20000"), "USD"));
+    }
+
+    @Test
+    public void listsWithoutAddressesUnlessAsked() {
+        List<Car> cars = list(PriceQuery.all(), CarFields.parse("id,details.model,price"));
+        assertThat(cars).extracting(Car::getPrice).doesNotContainNull();
+        verify(priceClient, times(2)).getPrice(anyLong());
+        verify(mapsClient, never()).getAddresses(any());
+    }
+
+    @Test
+    public void listsWithoutPricesUnlessAskedOrFiltered() {
+        list(PriceQuery.all(), CarFields.parse("id,location.city"));
+        verify(priceClient, never()).getPrice(anyLong());
+        verify(mapsClient, times(1)).getAddresses(any());
+
+        List<Car> cars = list(new PriceQuery(new BigDecimal("25000"), null, null, null), CarFields.parse("id"));
+        assertThat(cars).isEmpty();
+        verify(priceClient, times(2)).getPrice(anyLong());
+    }
+
+    @Test
+    public void findsWithTheEnrichmentsOfTheFields() {
+        carService.findById(1L, CarFields.parse("id,details"));
+        verify(priceClient, never()).getPrice(anyLong());
+        verify(mapsClient, never()).getAddress(any());
+
+        carService.findById(1L);
+        verify(priceClient, times(1)).getPrice(1L);
+        verify(mapsClient, times(1)).getAddress(any());
+    }
+
+    @Test
+    public void coalescesConcurrentLookupsOfACar() throws Exception {
+        int callers = 50;
+        // hold the load until every other caller is waiting for it
+        given(carRepository.findById(1L)).willAnswer(invocation -> {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (counter("coalesce.shared") < callers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            return Optional.of(car(1L));
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Car>> lookups = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            lookups.add(executor.submit(() -> {
+                start.await();
+                return carService.findById(1L);
+            }));
+        }
+        start.countDown();
+        Set<Car> cars = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Future<Car> lookup : lookups) {
+            cars.add(lookup.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // each caller gets a car of its own
+        assertThat(cars).hasSize(callers);
+        assertThat(cars).allSatisfy(car -> assertThat(car.getPrice()).isNotNull());
+        verify(carRepository, times(1)).findById(1L);
+        verify(priceClient, times(1)).getPrice(1L);
+        verify(mapsClient, times(1)).getAddress(any());
+        assertThat(counter("coalesce.calls")).isEqualTo(callers);
+        assertThat(counter("coalesce.shared")).isEqualTo(callers - 1);
+
+        // nothing is kept once the load is done
+        carService.findById(1L);
+        verify(carRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void sharesFailuresOfCoalescedLookups() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch waiting = new CountDownLatch(1);
+        given(carRepository.findById(3L)).willAnswer(invocation -> {
+            loading.countDown();
+            waiting.await(10, TimeUnit.SECONDS);
+            return Optional.empty();
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Car> first = executor.submit(() -> carService.findById(3L));
+        loading.await(10, TimeUnit.SECONDS);
+        Future<Car> second = executor.submit(() -> carService.findById(3L));
+        while (counter("coalesce.shared") < 1) {
+            Thread.sleep(1);
+        }
+        waiting.countDown();
+        for (Future<Car> lookup : List.of(first, second)) {
+            assertThatThrownBy(() -> lookup.get(10, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(CarNotFoundException.class);
+        }
+        executor.shutdown();
+        verify(carRepository, times(1)).findById(3L);
+    }
+
+    @Test
+    public void keepsLookupsPinnedToThePrimaryApart() throws Exception {
+        ReplicaRoutingDataSource router = new ReplicaRoutingDataSource(mock(DataSource.class),
+                List.of(mock(DataSource.class)), Duration.ZERO);
+        CarService routed = new CarService(carRepository, priceClient, mapsClient, registry, Optional.empty(),
+                mock(CarFacets.class), mock(CarSearchIndex.class), Optional.empty(), router,
+                Duration.ofSeconds(10));
+        // hold the read of the replica until the pinned lookup has read as well
+        CountDownLatch reads = new CountDownLatch(2);
+        given(carRepository.findById(1L)).willAnswer(invocation -> {
+            reads.countDown();
+            reads.await(10, TimeUnit.SECONDS);
+            return Optional.of(car(1L));
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        Future<Car> replicaRead = executor.submit(() -> routed.findById(1L));
+        Future<Car> pinned = executor.submit(() -> {
+            router.pinToPrimaryUntil(System.currentTimeMillis() + 60_000);
+            try {
+                return routed.findById(1L);
+            } finally {
+                router.unpin();
+            }
+        });
+        replicaRead.get(10, TimeUnit.SECONDS);
+        pinned.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(counter("coalesce.shared")).isZero();
+        verify(carRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void stopsWaitingForAStalledLookup() throws Exception {
+        CarService impatient = new CarService(carRepository, priceClient, mapsClient, registry, Optional.empty(),
+                mock(CarFacets.class), mock(CarSearchIndex.class), Optional.empty(), mock(DataSource.class),
+                Duration.ofMillis(50));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch stalled = new CountDownLatch(1);
+        given(carRepository.findById(1L)).willAnswer(invocation -> {
+            if (loading.getCount() > 0) {
+                loading.countDown();
+                stalled.await(10, TimeUnit.SECONDS);
+            }
+            return Optional.of(car(1L));
+        });
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Car> first = executor.submit(() -> impatient.findById(1L));
+        loading.await(10, TimeUnit.SECONDS);
+
+        Car car = impatient.findById(1L);
+        stalled.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        assertThat(car.getId()).isEqualTo(1L);
+        assertThat(counter("coalesce.timeouts")).isEqualTo(1);
+        verify(carRepository, times(2)).findById(1L);
+    }
+
+    @Test
+    public void loadsDifferentFieldsSeparately() {
+        carService.findById(1L);
+        carService.findById(1L, CarFields.parse("id"));
+        assertThat(counter("coalesce.shared")).isZero();
+        verify(carRepository, times(2)).findById(1L);
+    }
+
+    private double counter(String name) {
+        return registry.counter(name, "name", "car.lookup").count();
+    }
+
+    private List<Car> list(PriceQuery query, CarFields fields) {
+        List<Car> cars = new ArrayList<>();
+        carService.forEach(query, fields, cars::add);
+        return cars;
+    }
+
+    private static Car car(Long id) {
+        Car car = new Car();
+        car.setId(id);
+        car.setLocation(new Location(40.73061, -73.935242));
+        return car;
+    }
+}
@@ -0,0 +1,83 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.client.maps.MapsClient;
+import com.kpatil.vehicles.client.prices.PriceClient;
+import com.kpatil.vehicles.domain.Location;
+import com.kpatil.vehicles.domain.car.Car;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Implements testing of CarWarmup with a single thread and room for a single
+ * waiting warmup, outside of any transaction.
+ */
+public class CarWarmupTest {
+
+    private final PriceClient priceClient = mock(PriceClient.class);
+    private final MapsClient mapsClient = mock(MapsClient.class);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final CarWarmup warmup = new CarWarmup(priceClient, mapsClient, registry, 1, 1);
+
+    @After
+    public void shutdown() {
+        warmup.destroy();
+    }
+
+    @Test
+    public void fetchesPriceAndAddressOfACopy() {
+        Car car = car(1L);
+
+        warmup.warm(car);
+
+        ArgumentCaptor<Location> location = ArgumentCaptor.forClass(Location.class);
+        verify(priceClient, timeout(5000)).getPrice(1L);
+        verify(mapsClient, timeout(5000)).getAddress(location.capture());
+        assertThat(location.getValue()).isNotSameAs(car.getLocation());
+        assertThat(location.getValue().getLat()).isEqualTo(car.getLocation().getLat());
+    }
+
+    @Test
+    public void shedsWarmupsOnceTheQueueIsFull() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(priceClient.getPrice(1L)).thenAnswer(invocation -> {
+            running.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+
+        warmup.warm(car(1L));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+        warmup.warm(car(2L));
+        warmup.warm(car(3L));
+
+        assertThat(registry.get("car.warmup.queue").gauge().value()).isEqualTo(1);
+        assertThat(registry.counter("car.warmup.shed").count()).isEqualTo(1);
+
+        release.countDown();
+        verify(priceClient, timeout(5000)).getPrice(2L);
+        assertThat(registry.get("car.warmup.queue").gauge().value()).isZero();
+        verify(priceClient, after(1000).never()).getPrice(3L);
+        assertThat(registry.timer("car.warmup").count()).isEqualTo(2);
+    }
+
+    private static Car car(Long id) {
+        Car car = new Car();
+        car.setId(id);
+        car.setLocation(new Location(40.730610, -73.935242));
+        return car;
+    }
+}
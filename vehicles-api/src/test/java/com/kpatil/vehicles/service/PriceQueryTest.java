@@ -0,0 +1,60 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.domain.Money;
+import com.kpatil.vehicles.domain.car.Car;
+import org.junit.Test;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Implements testing of price range filtering and price ordering.
+ */
+public class PriceQueryTest {
+
+    private final List<Car> cars = List.of(
+            car(1L, "20000", "USD"),
+            car(2L, null, null),
+            car(3L, "15000", "USD"),
+            car(4L, "15000", "EUR"),
+            car(5L, "30000", "USD"));
+
+    @Test
+    public void unrestrictedQueryKeepsCarsWithoutPrice() {
+        assertThat(ids(PriceQuery.all())).containsExactly(1L, 2L, 3L, 4L, 5L);
+    }
+
+    @Test
+    public void filtersByRangeAndCurrency() {
+        PriceQuery query = new PriceQuery(new BigDecimal("15000"), new BigDecimal("20000"), "USD", null);
+        assertThat(ids(query)).containsExactly(1L, 3L);
+    }
+
+    @Test
+    public void ordersByPriceWithUnpricedCarsLast() {
+        assertThat(ids(new PriceQuery(null, null, null, Sort.Direction.ASC))).containsExactly(4L, 3L, 1L, 5L, 2L);
+        assertThat(ids(new PriceQuery(null, null, null, Sort.Direction.DESC))).containsExactly(5L, 1L, 3L, 4L, 2L);
+    }
+
+    private List<Long> ids(PriceQuery query) {
+        Stream<Car> matching = cars.stream().filter(query::matches);
+        if (query.getOrder() != null) {
+            matching = matching.sorted(query.comparator());
+        }
+        return matching.map(Car::getId).collect(Collectors.toList());
+    }
+
+    private static Car car(Long id, String amount, String currency) {
+        Car car = new Car();
+        car.setId(id);
+        if (amount != null) {
+            car.setPrice(new Money(new BigDecimal(amount), currency));
+        }
+        return car;
+    }
+}
@@ -0,0 +1,87 @@
+package com.kpatil.vehicles.service;
+
+import com.kpatil.vehicles.client.maps.MapsClient;
+import com.kpatil.vehicles.client.prices.PriceClient;
+import com.kpatil.vehicles.domain.Location;
+import com.kpatil.vehicles.domain.car.Car;
+import com.kpatil.vehicles.domain.car.CarRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Implements testing of StartupWarmup against a repository of 100 cars.
+ */
+public class StartupWarmupTest {
+
+    private final CarRepository carRepository = mock(CarRepository.class);
+    private final CarSearchIndex searchIndex = mock(CarSearchIndex.class);
+    private final PriceClient priceClient = mock(PriceClient.class);
+    private final MapsClient mapsClient = mock(MapsClient.class);
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    public void buildsTheSearchIndexAndWarmsPricesAndAddressesInChunksBeforeReportingUp() {
+        StartupWarmup warmup = warmup(2, Duration.ofSeconds(10));
+        assertThat(warmup.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        warmup.warm();
+
+        verify(searchIndex).build();
+        verify(priceClient, times(100)).getPrice(anyLong());
+        verify(mapsClient, times(2)).getAddresses(anyList());
+        Health health = warmup.health();
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsEntry("warmed", 100);
+        assertThat(registry.get("startup.ready.time").timeGauge().value(TimeUnit.MILLISECONDS)).isPositive();
+    }
+
+    @Test
+    public void reportsUpOnceTimedOut() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(priceClient.getPrice(100L)).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        });
+        StartupWarmup warmup = warmup(1, Duration.ofMillis(200));
+
+        warmup.warm();
+
+        Health health = warmup.health();
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsEntry("warmed", 0);
+        release.countDown();
+    }
+
+    private StartupWarmup warmup(int parallelism, Duration timeout) {
+        List<Car> cars = new ArrayList<>();
+        for (long id = 100; id > 0; id--) {
+            Car car = new Car();
+            car.setId(id);
+            car.setLocation(new Location(40.730610, -73.935242));
+            cars.add(car);
+        }
+        when(carRepository.findAll(any(Pageable.class))).thenReturn(new PageImpl<>(cars));
+        return new StartupWarmup(carRepository, searchIndex, priceClient, mapsClient, registry, 1000, parallelism,
+                timeout);
+    }
+}